@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tomgibara.storage.StoreBenchmark.Kind;
+
+// the common store operations, measured over a store populated by a subclass
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractStoreBenchmark {
+
+	@Param({"1000", "1000000"})
+	int size;
+
+	// strong references to the values, so that weak and soft stores retain them
+	private Object[] values;
+	private Store<Object> store;
+	private Store<Object> copy;
+	private Store<Object> target;
+	private Object fillValue;
+	private int index;
+
+	abstract Kind kind();
+
+	abstract double nullDensity();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Kind kind = kind();
+		double nullDensity = nullDensity();
+		Storage<Object> storage = kind.storage();
+		Random r = new Random(0L);
+		values = new Object[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = r.nextDouble() < nullDensity ? null : kind.value(r.nextInt(Integer.MAX_VALUE));
+		}
+		store = storage.newStore(size);
+		copy = storage.newStore(size);
+		target = storage.newStore(size);
+		for (int i = 0; i < size; i++) {
+			store.set(i, values[i]);
+			copy.set(i, values[i]);
+		}
+		fillValue = kind.value(1);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetIndex() {
+		index = 0;
+	}
+
+	@Benchmark
+	public Object get() {
+		index = (index + 7919) % size;
+		return store.get(index);
+	}
+
+	@Benchmark
+	public Object set() {
+		index = (index + 7919) % size;
+		return store.set(index, values[index]);
+	}
+
+	@Benchmark
+	public void getAll(Blackhole bh) {
+		for (int i = 0; i < size; i++) {
+			bh.consume(store.get(i));
+		}
+	}
+
+	@Benchmark
+	public Store<Object> fill() {
+		target.fill(fillValue);
+		return target;
+	}
+
+	@Benchmark
+	public Store<Object> setStore() {
+		target.setStore(0, store);
+		return target;
+	}
+
+	@Benchmark
+	public Store<Object> resizedCopy() {
+		return store.resizedCopy(size);
+	}
+
+	@Benchmark
+	public void iterator(Blackhole bh) {
+		for (Iterator<Object> i = store.iterator(); i.hasNext(); ) {
+			bh.consume(i.next());
+		}
+	}
+
+	@Benchmark
+	public void forEach(Blackhole bh) {
+		store.forEach((Object v) -> bh.consume(v));
+	}
+
+	@Benchmark
+	public void spliterator(Blackhole bh) {
+		store.spliterator().forEachRemaining(bh::consume);
+	}
+
+	@Benchmark
+	public boolean equalStores() {
+		return store.equals(copy);
+	}
+
+	@Benchmark
+	public int storeHashCode() {
+		return store.hashCode();
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.tomgibara.storage.StoreBenchmark.Kind;
+
+// measures the common store operations over the kinds of storage that can hold nulls, as their density varies
+public class NullDensityBenchmark extends AbstractStoreBenchmark {
+
+	// distinct from the kind parameter of StoreBenchmark so that restricting those kinds cannot select one without nulls
+	@Param({"NULL_PRIMITIVE", "SMALL_NULLABLE", "OBJECT", "WEAK", "SOFT", "ENUM", "OFF_HEAP"})
+	Kind nullableKind;
+
+	@Param({"0.5", "0.99"})
+	double nullDensity;
+
+	@Override
+	Kind kind() {
+		return nullableKind;
+	}
+
+	@Override
+	double nullDensity() {
+		return nullDensity;
+	}
+
+}
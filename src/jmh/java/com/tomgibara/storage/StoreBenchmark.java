@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Param;
+
+// measures the common store operations across each kind of storage, without nulls
+public class StoreBenchmark extends AbstractStoreBenchmark {
+
+	public enum Grade { A, B, C, D, E }
+
+	private static final Grade[] GRADES = Grade.values();
+
+	@SuppressWarnings("unchecked")
+	public enum Kind {
+
+		PRIMITIVE       (i -> i % 100, () -> StoreType.of(int.class).settingNullToValue(0).storage()),
+		NULL_PRIMITIVE  (i -> i % 100, () -> StoreType.of(int.class).storage()),
+		SMALL_TERNARY   (i -> i % 3,   () -> StoreType.of(int.class).settingNullToValue(0).smallValueStorage(3)),
+		SMALL_QUINARY   (i -> i % 5,   () -> StoreType.of(int.class).settingNullToValue(0).smallValueStorage(5)),
+		SMALL_ARBITRARY (i -> i % 100, () -> StoreType.of(int.class).settingNullToValue(0).smallValueStorage(100)),
+		SMALL_NULLABLE  (i -> i % 100, () -> StoreType.of(int.class).smallValueStorage(100)),
+		OBJECT          (i -> i % 100, () -> StoreType.of(Integer.class).storage()),
+		WEAK            (i -> i % 100, () -> Storage.weak()),
+		SOFT            (i -> i % 100, () -> Storage.soft()),
+		ENUM            (i -> GRADES[i % GRADES.length], () -> StoreType.of(Grade.class).storage()),
+		OFF_HEAP        (i -> i % 100, () -> StoreType.of(int.class).offHeapStorage()),
+		COPY_ON_WRITE   (i -> i % 100, () -> StoreType.of(int.class).settingNullToValue(0).storage().copyOnWrite());
+
+		private final IntFunction<Object> values;
+		private final Supplier<Storage<?>> storage;
+
+		private Kind(IntFunction<Object> values, Supplier<Storage<?>> storage) {
+			this.values = values;
+			this.storage = storage;
+		}
+
+		Storage<Object> storage() {
+			return (Storage<Object>) storage.get();
+		}
+
+		Object value(int i) {
+			return values.apply(i);
+		}
+	}
+
+	@Param
+	Kind kind;
+
+	@Override
+	Kind kind() {
+		return kind;
+	}
+
+	@Override
+	double nullDensity() {
+		return 0.0;
+	}
+
+}
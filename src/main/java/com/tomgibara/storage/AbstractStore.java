@@ -110,6 +110,18 @@ public abstract class AbstractStore<V> implements Store<V> {
 		return false;
 	}
 
+	// returns the result of searching the range by natural order, or Stores.NO_SEARCH if unavailable
+	// implementation assumes that the key is non-null and that the range is valid
+	int search(int from, int to, V key, int mode) {
+		return Stores.NO_SEARCH;
+	}
+
+	// returns true if the non-null values in the range were supplied to the aggregator
+	// must not modify the store, since disjoint ranges may be aggregated concurrently
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		return false;
+	}
+
 	// private helper methods
 
 	private String toString(Object value) {
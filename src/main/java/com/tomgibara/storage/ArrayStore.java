@@ -18,6 +18,7 @@ package com.tomgibara.storage;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
@@ -213,6 +214,45 @@ class ArrayStore<V> extends AbstractStore<V> {
 		}
 	}
 
+	@Override
+	public void parallelFill(V value) {
+		V v = type.checkedValue(value);
+		Stores.inParallel(0, values.length, (from, to) -> {
+			Arrays.fill(values, from, to, v);
+			return 0;
+		});
+	}
+
+	@Override
+	public <W extends V> void parallelSetStore(int position, Store<W> store) {
+		int length = checkSetStore(position, store);
+		// partitions of a copy within the same array could overwrite their sources
+		Store<W> source = Stores.underlying(store) == this ? store.immutableCopy() : store;
+		if (source instanceof ArrayStore<?>) {
+			W[] thatValues = ((ArrayStore<W>) source).values;
+			Stores.inParallel(position, position + length, (from, to) -> {
+				System.arraycopy(thatValues, from - position, values, from, to - from);
+				return 0;
+			});
+		} else {
+			// setting values only modifies the array, so the partitions are independent
+			Stores.inParallel(position, position + length, (from, to) -> {
+				setStore(from, source.range(from - position, to - position));
+				return 0;
+			});
+		}
+	}
+
+	@Override
+	public void sort(Comparator<? super V> comparator) {
+		Arrays.sort(values, comparator);
+	}
+
+	@Override
+	public void parallelSort() {
+		Arrays.parallelSort(values, null);
+	}
+
 	// iterable methods
 
 	@Override
@@ -235,6 +275,10 @@ class ArrayStore<V> extends AbstractStore<V> {
 
 	@Override
 	boolean fastFill(int from, int to, V value) {
+		if (value == null) {
+			if (!type.nullSettable) return false;
+			value = type.nullValue;
+		}
 		Arrays.fill(values, from, to, value);
 		return true;
 	}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.AtomicStoreInts;
+import com.tomgibara.storage.StoreAccessors.AtomicStoreLongs;
+
+// stores values in atomic arrays so that individual values may be safely updated concurrently
+abstract class AtomicStore<V> extends AbstractStore<V> {
+
+	private static final class AtomicStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+
+		AtomicStorage(StoreType<V> type) {
+			this.type = type;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V initialValue) throws IllegalArgumentException {
+			return AtomicStore.newStore(type, size, initialValue);
+		}
+
+	}
+
+	static <V> Storage<V> newStorage(StoreType<V> type) {
+		return new AtomicStorage<>(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <V> AtomicStore<V> newStore(StoreType<V> type, int size, V initialValue) {
+		if (size < 0) throw new IllegalArgumentException("negative size");
+		if (initialValue == null) {
+			if (!type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+			initialValue = type.nullValue;
+		}
+		AtomicStore<V> store;
+		switch (Stores.hash(type.valueType)) {
+		case Stores.INT:  store = (AtomicStore<V>) new IntegerStore((StoreType<Integer>) type, new AtomicIntegerArray(size), true); break;
+		case Stores.LONG: store = (AtomicStore<V>) new LongStore   ((StoreType<Long>   ) type, new AtomicLongArray   (size), true); break;
+		default: throw new IllegalArgumentException(type.valueType.getName());
+		}
+		if (initialValue != null) store.fillImpl(0, size, initialValue);
+		return store;
+	}
+
+	final StoreType<V> type;
+	final boolean mutable;
+
+	AtomicStore(StoreType<V> type, boolean mutable) {
+		this.type = type;
+		this.mutable = mutable;
+	}
+
+	// store
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int count() {
+		return size();
+	}
+
+	@Override
+	public V get(int index) {
+		checkIndex(index);
+		return getImpl(index);
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return false;
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkIndex(index);
+		checkMutable();
+		if (value == null) {
+			if (!type.nullSettable) StoreType.failNull();
+			value = type.nullValue;
+		}
+		return getAndSetImpl(index, value);
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (!type.nullSettable) throw new IllegalStateException("null not supported");
+		fillImpl(0, size(), type.nullValue);
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		if (value == null) {
+			clear();
+		} else {
+			fillImpl(0, size(), value);
+		}
+	}
+
+	@Override
+	public BitStore population() {
+		return Bits.oneBits(size());
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative newSize");
+		int size = size();
+		if (newSize > size && !type.nullSettable) throw new IllegalArgumentException("cannot increase size, null not settable");
+		AtomicStore<V> store = copy(newSize, true);
+		if (newSize > size) store.fillImpl(size, newSize, type.nullValue);
+		return store;
+	}
+
+	// abstract store methods
+
+	@Override
+	boolean fastFill(int from, int to, V value) {
+		if (value == null) {
+			if (!type.nullSettable) return false;
+			value = type.nullValue;
+		}
+		fillImpl(from, to, value);
+		return true;
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return copy(size(), true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return copy(size(), false);
+	}
+
+	// for extension
+
+	// note: caller responsible for checking index
+	abstract V getImpl(int index);
+
+	// note: caller responsible for checking index and value
+	abstract V getAndSetImpl(int index, V value);
+
+	// note: caller responsible for checking range and value
+	abstract void fillImpl(int from, int to, V value);
+
+	// copies the values of this store into a new store of the specified size
+	abstract AtomicStore<V> copy(int newSize, boolean mutable);
+
+	// helper methods
+
+	void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size()) throw new IllegalArgumentException("index too large");
+	}
+
+	void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	void checkBulk(int from, Object array, int offset, int length) {
+		StoreAccessors.checkArray(array, offset, length);
+		StoreAccessors.checkRange(size(), from, length);
+	}
+
+	// inner classes
+
+	static final class IntegerStore extends AtomicStore<Integer> implements AtomicStoreInts {
+
+		private final AtomicIntegerArray values;
+
+		IntegerStore(StoreType<Integer> type, AtomicIntegerArray values, boolean mutable) {
+			super(type, mutable);
+			this.values = values;
+		}
+
+		@Override
+		public int size() {
+			return values.length();
+		}
+
+		@Override
+		Integer getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		Integer getAndSetImpl(int index, Integer value) {
+			return values.getAndSet(index, value);
+		}
+
+		@Override
+		void fillImpl(int from, int to, Integer value) {
+			int v = value;
+			for (int i = from; i < to; i++) {
+				values.set(i, v);
+			}
+		}
+
+		@Override
+		IntegerStore copy(int newSize, boolean mutable) {
+			AtomicIntegerArray copy = new AtomicIntegerArray(newSize);
+			int limit = Math.min(newSize, values.length());
+			for (int i = 0; i < limit; i++) {
+				copy.set(i, values.get(i));
+			}
+			return new IntegerStore(type, copy, mutable);
+		}
+
+		// store ints
+
+		@Override
+		public boolean isInt(int index) {
+			checkIndex(index);
+			return true;
+		}
+
+		@Override
+		public int getInt(int index) {
+			checkIndex(index);
+			return values.get(index);
+		}
+
+		@Override
+		public void setInt(int index, int value) {
+			checkIndex(index);
+			checkMutable();
+			values.set(index, value);
+		}
+
+		@Override
+		public void getInts(int from, int[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = values.get(from + i);
+			}
+		}
+
+		@Override
+		public void setInts(int from, int[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) {
+				values.set(from + i, src[offset + i]);
+			}
+		}
+
+		// atomic store ints
+
+		@Override
+		public void lazySetInt(int index, int value) {
+			checkIndex(index);
+			checkMutable();
+			values.lazySet(index, value);
+		}
+
+		@Override
+		public int getAndSetInt(int index, int value) {
+			checkIndex(index);
+			checkMutable();
+			return values.getAndSet(index, value);
+		}
+
+		@Override
+		public boolean compareAndSetInt(int index, int expect, int update) {
+			checkIndex(index);
+			checkMutable();
+			return values.compareAndSet(index, expect, update);
+		}
+
+		@Override
+		public int getAndAddInt(int index, int delta) {
+			checkIndex(index);
+			checkMutable();
+			return values.getAndAdd(index, delta);
+		}
+
+		@Override
+		public int addAndGetInt(int index, int delta) {
+			checkIndex(index);
+			checkMutable();
+			return values.addAndGet(index, delta);
+		}
+
+		@Override
+		public int getAndUpdateInt(int index, IntUnaryOperator update) {
+			if (update == null) throw new IllegalArgumentException("null update");
+			checkIndex(index);
+			checkMutable();
+			return values.getAndUpdate(index, update);
+		}
+
+		@Override
+		public int updateAndGetInt(int index, IntUnaryOperator update) {
+			if (update == null) throw new IllegalArgumentException("null update");
+			checkIndex(index);
+			checkMutable();
+			return values.updateAndGet(index, update);
+		}
+	}
+
+	static final class LongStore extends AtomicStore<Long> implements AtomicStoreLongs {
+
+		private final AtomicLongArray values;
+
+		LongStore(StoreType<Long> type, AtomicLongArray values, boolean mutable) {
+			super(type, mutable);
+			this.values = values;
+		}
+
+		@Override
+		public int size() {
+			return values.length();
+		}
+
+		@Override
+		Long getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		Long getAndSetImpl(int index, Long value) {
+			return values.getAndSet(index, value);
+		}
+
+		@Override
+		void fillImpl(int from, int to, Long value) {
+			long v = value;
+			for (int i = from; i < to; i++) {
+				values.set(i, v);
+			}
+		}
+
+		@Override
+		LongStore copy(int newSize, boolean mutable) {
+			AtomicLongArray copy = new AtomicLongArray(newSize);
+			int limit = Math.min(newSize, values.length());
+			for (int i = 0; i < limit; i++) {
+				copy.set(i, values.get(i));
+			}
+			return new LongStore(type, copy, mutable);
+		}
+
+		// store longs
+
+		@Override
+		public boolean isLong(int index) {
+			checkIndex(index);
+			return true;
+		}
+
+		@Override
+		public long getLong(int index) {
+			checkIndex(index);
+			return values.get(index);
+		}
+
+		@Override
+		public void setLong(int index, long value) {
+			checkIndex(index);
+			checkMutable();
+			values.set(index, value);
+		}
+
+		@Override
+		public void getLongs(int from, long[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = values.get(from + i);
+			}
+		}
+
+		@Override
+		public void setLongs(int from, long[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) {
+				values.set(from + i, src[offset + i]);
+			}
+		}
+
+		// atomic store longs
+
+		@Override
+		public void lazySetLong(int index, long value) {
+			checkIndex(index);
+			checkMutable();
+			values.lazySet(index, value);
+		}
+
+		@Override
+		public long getAndSetLong(int index, long value) {
+			checkIndex(index);
+			checkMutable();
+			return values.getAndSet(index, value);
+		}
+
+		@Override
+		public boolean compareAndSetLong(int index, long expect, long update) {
+			checkIndex(index);
+			checkMutable();
+			return values.compareAndSet(index, expect, update);
+		}
+
+		@Override
+		public long getAndAddLong(int index, long delta) {
+			checkIndex(index);
+			checkMutable();
+			return values.getAndAdd(index, delta);
+		}
+
+		@Override
+		public long addAndGetLong(int index, long delta) {
+			checkIndex(index);
+			checkMutable();
+			return values.addAndGet(index, delta);
+		}
+
+		@Override
+		public long getAndUpdateLong(int index, LongUnaryOperator update) {
+			if (update == null) throw new IllegalArgumentException("null update");
+			checkIndex(index);
+			checkMutable();
+			return values.getAndUpdate(index, update);
+		}
+
+		@Override
+		public long updateAndGetLong(int index, LongUnaryOperator update) {
+			if (update == null) throw new IllegalArgumentException("null update");
+			checkIndex(index);
+			checkMutable();
+			return values.updateAndGet(index, update);
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+/**
+ * Creates {@link BigStore} instances with a specified size. Big storage is
+ * obtained from regular storage via {@link Storage#bigStorage()} or
+ * {@link Storage#bigStorage(int)}, and creates each chunk of a big store with
+ * that storage.
+ *
+ * @author Tom Gibara
+ *
+ * @param <V>
+ *            the type of values to be stored
+ */
+public interface BigStorage<V> {
+
+	/**
+	 * The number of values in each chunk used by the default big storage.
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+	/**
+	 * The type of stores created with this storage.
+	 *
+	 * @return the type assigned to new stores
+	 */
+	StoreType<V> type();
+
+	/**
+	 * The number of values held in each chunk of the big stores created by
+	 * this storage. Only the final chunk of a store may be smaller.
+	 *
+	 * @return the chunk size, a power of two
+	 */
+	int chunkSize();
+
+	/**
+	 * Creates a new big store with the requested size. A convenience method
+	 * equivalent to passing a null value to {@link #newStore(long, Object)}.
+	 *
+	 * @param size
+	 *            the required size
+	 * @return a new big store
+	 * @throws IllegalArgumentException
+	 *             if the size is negative
+	 */
+	default BigStore<V> newStore(long size) throws IllegalArgumentException {
+		return newStore(size, null);
+	}
+
+	/**
+	 * Creates a new big store with the requested size, assigning the supplied
+	 * value to every index as per {@link Storage#newStore(int, Object)}.
+	 *
+	 * @param size
+	 *            the required size
+	 * @param value
+	 *            the value to be assigned to every index, or null
+	 * @return a new big store
+	 * @throws IllegalArgumentException
+	 *             if the size is negative
+	 */
+	BigStore<V> newStore(long size, V value) throws IllegalArgumentException;
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.List;
+
+import com.tomgibara.fundament.Mutability;
+
+/**
+ * <p>
+ * Provides array-like storage of values with <code>long</code> indices. Big
+ * stores are composed of chunks, each of which is a regular {@link Store}
+ * created by some underlying {@link Storage}, and are thus able to contain
+ * more than <code>Integer.MAX_VALUE</code> values.
+ *
+ * <p>
+ * Big stores observe the same conventions regarding null values as stores.
+ * Iteration is over the non-null values of the store, and the spliterators of
+ * big stores split on chunk boundaries so that chunks may be processed in
+ * parallel.
+ *
+ * <p>
+ * Big stores are equal if they have the same size and contain equal values at
+ * every index. Their hashcodes are computed in the same way as those of
+ * stores.
+ *
+ * @author Tom Gibara
+ *
+ * @param <V>
+ *            the type of the values stored
+ * @see BigStorage
+ */
+public interface BigStore<V> extends Iterable<V>, Mutability<BigStore<V>> {
+
+	/**
+	 * The greatest number of values that the store can contain. Valid indices
+	 * range from <code>0 &lt;= i &lt; size</code>.
+	 *
+	 * @return the size of store
+	 */
+	long size();
+
+	/**
+	 * The number of non-null values in the store.
+	 *
+	 * @return the number of non-null values in the store
+	 */
+	long count();
+
+	/**
+	 * The type of values stored by this store and how null values are
+	 * supported.
+	 *
+	 * @return the store type
+	 */
+	StoreType<V> type();
+
+	/**
+	 * Retrieves a value held in the store.
+	 *
+	 * @param index
+	 *            the index from which to retrieve the value
+	 * @return the value stored at the specified index, possibly null
+	 * @see Store#get(int)
+	 */
+	V get(long index);
+
+	/**
+	 * Whether the value at the specified index is null.
+	 *
+	 * @param index
+	 *            the index of the value to be compared to null
+	 * @return true if and only if the value at the specified index is null
+	 * @see Store#isNull(int)
+	 */
+	boolean isNull(long index);
+
+	/**
+	 * Stores a value in the store.
+	 *
+	 * @param index
+	 *            the index at which to store the value
+	 * @param value
+	 *            the value to store, or null to remove any previous value
+	 * @return the previously stored value, or null
+	 * @see Store#set(int, Object)
+	 */
+	V set(long index, V value);
+
+	/**
+	 * Assigns every index the same value.
+	 *
+	 * @param value
+	 *            the value to be assigned to every index
+	 * @see Store#fill(Object)
+	 */
+	void fill(V value);
+
+	/**
+	 * Removes all stored values.
+	 *
+	 * @throws IllegalStateException
+	 *             if the store does not allow null values to be set.
+	 * @see Store#clear()
+	 */
+	void clear() throws IllegalStateException;
+
+	/**
+	 * A big store consisting of the indexed values in the specified range. The
+	 * returned store is a live view of this store.
+	 *
+	 * @param from
+	 *            the index in this store at which the range starts, inclusive
+	 * @param to
+	 *            the index in this store at which the range ends, exclusive
+	 * @return a view of the values in the range
+	 */
+	BigStore<V> range(long from, long to);
+
+	/**
+	 * <p>
+	 * A regular store consisting of the indexed values in the specified range.
+	 * The returned store is a live view of this store. Where the range lies
+	 * within a single chunk, the returned store is a range of that chunk and
+	 * so incurs no additional overhead.
+	 *
+	 * @param from
+	 *            the index in this store at which the range starts, inclusive
+	 * @param to
+	 *            the index in this store at which the range ends, exclusive
+	 * @return a view of the values in the range
+	 * @throws IllegalArgumentException
+	 *             if the range contains more than
+	 *             <code>Integer.MAX_VALUE</code> values
+	 */
+	Store<V> asStore(long from, long to) throws IllegalArgumentException;
+
+	/**
+	 * Views of the chunks from which this store is composed, in index order.
+	 * For big stores that are ranges, the first and last chunks may be
+	 * partial. The returned list is unmodifiable but the values of the chunks
+	 * may be modified if this store is mutable.
+	 *
+	 * @return the chunks of this store
+	 */
+	List<Store<V>> chunks();
+
+}
@@ -10,9 +10,10 @@ import com.tomgibara.bits.BitStore;
 import com.tomgibara.bits.Bits;
 import com.tomgibara.fundament.Bijection;
 import com.tomgibara.fundament.Mapping;
+import com.tomgibara.storage.StoreAccessors.StoreBooleans;
 
 //TODO transformed BitsStore does not report itself as mutable - possibly make transformedBy contract more lenient?
-final class BitsStore extends AbstractStore<Boolean> {
+final class BitsStore extends AbstractStore<Boolean> implements StoreBooleans {
 
 	private final BitStore bits;
 
@@ -111,6 +112,30 @@ final class BitsStore extends AbstractStore<Boolean> {
 		this.bits.setStore(position, bits);
 	}
 
+	@Override
+	public int hashCode() {
+		int size = bits.size();
+		int hashCode = 1;
+		for (int i = 0; i < size; i += 64) {
+			int length = Math.min(64, size - i);
+			long word = bits.getBits(i, length);
+			for (int j = 0; j < length; j++) {
+				hashCode = 31 * hashCode + ((word & (1L << j)) == 0L ? 1237 : 1231);
+			}
+		}
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof BitsStore) {
+			BitStore that = ((BitsStore) obj).bits;
+			return bits.size() == that.size() && bits.equals().store(that);
+		}
+		return super.equals(obj);
+	}
+
 	@Override
 	public Iterator<Boolean> iterator() {
 		return bits.asList().iterator();
@@ -178,6 +203,56 @@ final class BitsStore extends AbstractStore<Boolean> {
 		return isMutable() ? new BitsStore(bits.immutableView()) : this;
 	}
 
+	// store booleans
+
+	@Override
+	public boolean isBoolean(int index) {
+		return true;
+	}
+
+	@Override
+	public boolean getBoolean(int index) {
+		return bits.getBit(index);
+	}
+
+	@Override
+	public void setBoolean(int index, boolean value) {
+		bits.setBit(index, value);
+	}
+
+	@Override
+	public void getBooleans(int from, boolean[] dest, int offset, int length) {
+		StoreAccessors.checkArray(dest, offset, length);
+		StoreAccessors.checkRange(bits.size(), from, length);
+		while (length > 0) {
+			int n = Math.min(64, length);
+			long word = bits.getBits(from, n);
+			for (int i = 0; i < n; i++) {
+				dest[offset++] = (word & 1L) != 0L;
+				word >>>= 1;
+			}
+			from += n;
+			length -= n;
+		}
+	}
+
+	@Override
+	public void setBooleans(int from, boolean[] src, int offset, int length) {
+		StoreAccessors.checkArray(src, offset, length);
+		StoreAccessors.checkRange(bits.size(), from, length);
+		while (length > 0) {
+			int n = Math.min(64, length);
+			long word = 0L;
+			for (int i = n - 1; i >= 0; i--) {
+				word = (word << 1) | (src[offset + i] ? 1L : 0L);
+			}
+			bits.setBits(from, word, n);
+			offset += n;
+			from += n;
+			length -= n;
+		}
+	}
+
 	// abstract store methods
 
 	@Override
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import com.tomgibara.bits.AbstractBitStore;
+import com.tomgibara.bits.BitStore;
+
+// a bit store whose bits are held in a long buffer, typically outside the heap
+final class BufferBitStore extends AbstractBitStore {
+
+	static LongBuffer allocate(int size) {
+		int words = (size + 63) >> 6;
+		return ByteBuffer.allocateDirect(words << 3).order(ByteOrder.nativeOrder()).asLongBuffer();
+	}
+
+	private final LongBuffer words;
+	private final int size;
+	private final boolean mutable;
+
+	BufferBitStore(int size) {
+		this(allocate(size), size, true);
+	}
+
+	BufferBitStore(LongBuffer words, int size, boolean mutable) {
+		this.words = words;
+		this.size = size;
+		this.mutable = mutable;
+	}
+
+	// bit store
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean getBit(int index) {
+		checkIndex(index);
+		return ((words.get(index >> 6) >>> (index & 63)) & 1L) != 0L;
+	}
+
+	@Override
+	public void setBit(int index, boolean value) {
+		checkIndex(index);
+		checkMutable();
+		int i = index >> 6;
+		long mask = 1L << (index & 63);
+		long word = words.get(i);
+		words.put(i, value ? word | mask : word & ~mask);
+	}
+
+	@Override
+	public long getBits(int position, int count) {
+		checkBits(position, count);
+		if (count == 0) return 0L;
+		int i = position >> 6;
+		int offset = position & 63;
+		long bits = words.get(i) >>> offset;
+		if (offset + count > 64) bits |= words.get(i + 1) << (64 - offset);
+		return count == 64 ? bits : bits & ((1L << count) - 1L);
+	}
+
+	@Override
+	public void setBits(int position, long value, int count) {
+		checkBits(position, count);
+		checkMutable();
+		if (count == 0) return;
+		long mask = count == 64 ? -1L : (1L << count) - 1L;
+		value &= mask;
+		int i = position >> 6;
+		int offset = position & 63;
+		words.put(i, words.get(i) & ~(mask << offset) | value << offset);
+		if (offset + count > 64) {
+			int shift = 64 - offset;
+			words.put(i + 1, words.get(i + 1) & ~(mask >>> shift) | value >>> shift);
+		}
+	}
+
+	@Override
+	public void setAll(boolean value) {
+		checkMutable();
+		int limit = size >> 6;
+		long word = value ? -1L : 0L;
+		for (int i = 0; i < limit; i++) {
+			words.put(i, word);
+		}
+		int remainder = size & 63;
+		if (remainder != 0) {
+			long mask = (1L << remainder) - 1L;
+			words.put(limit, words.get(limit) & ~mask | word & mask);
+		}
+	}
+
+	@Override
+	public void fill() {
+		setAll(true);
+	}
+
+	@Override
+	public void clear() {
+		setAll(false);
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public BitStore mutableCopy() {
+		return duplicate(true, true);
+	}
+
+	@Override
+	public BitStore immutableCopy() {
+		return duplicate(true, false);
+	}
+
+	@Override
+	public BitStore immutableView() {
+		return duplicate(false, false);
+	}
+
+	// package scoped methods
+
+	BufferBitStore duplicate(boolean copy, boolean mutable) {
+		if (!copy) return new BufferBitStore(words, size, mutable);
+		return new BufferBitStore(copyOf(words, words.capacity()), size, mutable);
+	}
+
+	BufferBitStore resizedCopy(int newSize) {
+		LongBuffer copy = allocate(newSize);
+		int limit = Math.min(words.capacity(), copy.capacity());
+		for (int i = 0; i < limit; i++) {
+			copy.put(i, words.get(i));
+		}
+		BufferBitStore store = new BufferBitStore(copy, newSize, true);
+		// clear any bits beyond the original size
+		if (newSize > size) store.range(size, newSize).clear();
+		return store;
+	}
+
+	// private helper methods
+
+	private static LongBuffer copyOf(LongBuffer words, int length) {
+		LongBuffer copy = allocate(length << 6);
+		for (int i = 0; i < length; i++) {
+			copy.put(i, words.get(i));
+		}
+		return copy;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkBits(int position, int count) {
+		if (position < 0) throw new IllegalArgumentException("negative position");
+		if (count < 0) throw new IllegalArgumentException("negative count");
+		if (count > 64) throw new IllegalArgumentException("count too great");
+		if (position + count > size) throw new IllegalArgumentException("position too large");
+	}
+
+	private void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+}
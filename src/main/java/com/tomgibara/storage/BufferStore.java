@@ -0,0 +1,832 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Spliterator;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.StoreBooleans;
+import com.tomgibara.storage.StoreAccessors.StoreBytes;
+import com.tomgibara.storage.StoreAccessors.StoreChars;
+import com.tomgibara.storage.StoreAccessors.StoreDoubles;
+import com.tomgibara.storage.StoreAccessors.StoreFloats;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+import com.tomgibara.storage.StoreAccessors.StoreLongs;
+import com.tomgibara.storage.StoreAccessors.StoreShorts;
+
+// stores primitive values in byte buffers, by default allocated directly outside the heap
+abstract class BufferStore<V> extends AbstractStore<V> {
+
+	private static final class BufferStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+
+		BufferStorage(StoreType<V> type) {
+			this.type = type;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V initialValue) throws IllegalArgumentException {
+			return BufferStore.newStore(type, size, initialValue);
+		}
+
+	}
+
+	static <V> Storage<V> newStorage(StoreType<V> type) {
+		return new BufferStorage<>(type);
+	}
+
+	static <V> BufferStore<V> newStore(StoreType<V> type, int size, V initialValue) {
+		if (size < 0) throw new IllegalArgumentException("negative size");
+		if (initialValue == null) {
+			if (!type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+			initialValue = type.nullValue;
+		}
+		BitStore populated = type.nullGettable ? new BufferBitStore(size) : null;
+		BufferStore<V> store = newStore(type, allocate(type.valueType, size), populated, 0, true);
+		if (initialValue != null) store.fastFill(0, size, initialValue);
+		return store;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <V> BufferStore<V> newStore(StoreType<V> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+		switch (Stores.hash(type.valueType)) {
+		case Stores.BYTE:    return (BufferStore<V>) new ByteStore     ((StoreType<Byte>     ) type, buffer, populated, count, mutable);
+		case Stores.FLOAT:   return (BufferStore<V>) new FloatStore    ((StoreType<Float>    ) type, buffer, populated, count, mutable);
+		case Stores.CHAR:    return (BufferStore<V>) new CharacterStore((StoreType<Character>) type, buffer, populated, count, mutable);
+		case Stores.SHORT:   return (BufferStore<V>) new ShortStore    ((StoreType<Short>    ) type, buffer, populated, count, mutable);
+		case Stores.LONG:    return (BufferStore<V>) new LongStore     ((StoreType<Long>     ) type, buffer, populated, count, mutable);
+		case Stores.INT:     return (BufferStore<V>) new IntegerStore  ((StoreType<Integer>  ) type, buffer, populated, count, mutable);
+		case Stores.DOUBLE:  return (BufferStore<V>) new DoubleStore   ((StoreType<Double>   ) type, buffer, populated, count, mutable);
+		case Stores.BOOLEAN: return (BufferStore<V>) new BooleanStore  ((StoreType<Boolean>  ) type, buffer, populated, count, mutable);
+		default: throw new IllegalArgumentException(type.valueType.getName());
+		}
+	}
+
+	static int width(Class<?> type) {
+		switch (Stores.hash(type)) {
+		case Stores.BYTE:
+		case Stores.BOOLEAN:
+			return 1;
+		case Stores.CHAR:
+		case Stores.SHORT:
+			return 2;
+		case Stores.INT:
+		case Stores.FLOAT:
+			return 4;
+		case Stores.LONG:
+		case Stores.DOUBLE:
+			return 8;
+		default: throw new IllegalArgumentException(type.getName());
+		}
+	}
+
+	static ByteBuffer allocate(Class<?> type, int size) {
+		return allocate(type, size, ByteOrder.nativeOrder());
+	}
+
+	static ByteBuffer allocate(Class<?> type, int size, ByteOrder order) {
+		long bytes = (long) size * width(type);
+		if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("size too large");
+		return ByteBuffer.allocateDirect((int) bytes).order(order);
+	}
+
+	// copies bytes between buffers without disturbing their positions, so buffers must share a byte order
+	static void copy(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset, int length) {
+		ByteBuffer s = src.duplicate();
+		((Buffer) s).position(srcOffset);
+		((Buffer) s).limit(srcOffset + length);
+		ByteBuffer d = dst.duplicate();
+		((Buffer) d).position(dstOffset);
+		d.put(s);
+	}
+
+	final StoreType<V> type;
+	final ByteBuffer buffer;
+	final int size;
+	final BitStore populated;
+	final boolean mutable;
+	int count;
+
+	BufferStore(StoreType<V> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+		this.type = type;
+		this.buffer = buffer;
+		this.size = buffer.capacity() / width(type.valueType);
+		this.populated = populated;
+		this.count = populated == null ? size : count;
+		this.mutable = mutable;
+	}
+
+	// store
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int count() {
+		return count;
+	}
+
+	@Override
+	public V get(int index) {
+		if (populated != null && !populated.getBit(index)) return null;
+		return getImpl(index);
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		if (populated != null) return !populated.getBit(index);
+		if (index < 0 || index >= size) throw new IllegalArgumentException("invalid index");
+		return false;
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkMutable();
+		V previous = get(index);
+		if (value == null) {
+			if (populated != null) {
+				if (previous != null) {
+					populated.setBit(index, false);
+					count --;
+				}
+				return previous;
+			}
+			if (!type.nullSettable) StoreType.failNull();
+			value = type.nullValue;
+		}
+		setImpl(index, value);
+		if (populated != null && previous == null) {
+			populated.setBit(index, true);
+			count ++;
+		}
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (populated == null && !type.nullSettable) throw new IllegalStateException("null not supported");
+		fastFill(0, size, null);
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		if (value == null) {
+			clear();
+		} else {
+			fastFill(0, size, value);
+		}
+	}
+
+	@Override
+	public BitStore population() {
+		return populated == null ? Bits.oneBits(size) : populated.immutableView();
+	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return populated == null ? super.spliterator() : new PopulationSpliterator<>(this, populated);
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative newSize");
+		boolean growing = newSize > size;
+		if (growing && populated == null && !type.nullSettable) throw new IllegalArgumentException("cannot increase size, null not settable");
+		int width = width(type.valueType);
+		// copies retain the byte order of this store, which may not be native if it is mapped
+		ByteBuffer buffer = allocate(type.valueType, newSize, this.buffer.order());
+		copy(this.buffer, 0, buffer, 0, Math.min(size, newSize) * width);
+		BitStore populated = this.populated == null ? null : resizedCopyOf(this.populated, newSize);
+		int count = populated == null || growing ? this.count : populated.ones().count();
+		BufferStore<V> store = newStore(type, buffer, populated, count, true);
+		if (growing && populated == null) store.fillImpl(size, newSize, type.nullValue);
+		return store;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <W extends V> void setStore(int position, Store<W> store) {
+		int from = 0;
+		int to = checkSetStore(position, store);
+		checkMutable();
+		if (store instanceof RangeStore<?>) {
+			RangeStore<W> range = (RangeStore<W>) store;
+			store = range.store;
+			from = range.from;
+			to = range.to;
+		}
+		if (store instanceof BufferStore<?>) {
+			BufferStore<V> that = (BufferStore<V>) store;
+			if (that.type.valueType == this.type.valueType && that.buffer.order() == this.buffer.order() && (that.populated == null || this.populated != null)) {
+				int width = width(type.valueType);
+				copy(that.buffer, from * width, this.buffer, position * width, (to - from) * width);
+				if (populated != null) {
+					BitStore range = populated.range(position, position + to - from);
+					int previous = range.ones().count();
+					if (that.populated == null) {
+						range.fill();
+					} else {
+						range.setStore(0, that.populated.range(from, to));
+					}
+					count += range.ones().count() - previous;
+				}
+				return;
+			}
+		}
+		setStoreImpl(position, store, from, to);
+	}
+
+	// abstract store methods
+
+	@Override
+	boolean fastFill(int from, int to, V value) {
+		if (value == null) {
+			if (populated != null) {
+				populate(from, to, false);
+				return true;
+			}
+			value = type.nullValue;
+		}
+		fillImpl(from, to, value);
+		populate(from, to);
+		return true;
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return duplicate(true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return duplicate(false);
+	}
+
+	// for extension
+
+	abstract protected V getImpl(int index);
+
+	abstract protected void setImpl(int index, V value);
+
+	abstract protected void fillImpl(int from, int to, V value);
+
+	// helper methods
+
+	void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	// marks the value at the index as present, called after a primitive value is set
+	void populate(int index) {
+		if (populated != null && !populated.getBit(index)) {
+			populated.setBit(index, true);
+			count ++;
+		}
+	}
+
+	// marks a range of values as present, called after primitive values are set
+	void populate(int from, int to) {
+		if (populated != null && from < to) populate(from, to, true);
+	}
+
+	// throws if a primitive value is requested for a null index
+	void checkPopulated(int index, String message) {
+		if (populated != null && !populated.getBit(index)) throw new RuntimeException(message);
+	}
+
+	// throws if primitive values are requested for a range containing a null
+	void checkPopulated(int from, int length, String message) {
+		if (populated != null && length > 0 && !populated.range(from, from + length).ones().isAll()) throw new RuntimeException(message);
+	}
+
+	void checkBulk(int from, Object array, int offset, int length) {
+		StoreAccessors.checkArray(array, offset, length);
+		StoreAccessors.checkRange(size, from, length);
+	}
+
+	boolean isPopulated(int index) {
+		return populated == null || populated.getBit(index);
+	}
+
+	// adjusts the count by the change in the population of the range only
+	private void populate(int from, int to, boolean present) {
+		BitStore range = populated.range(from, to);
+		int previous = range.ones().count();
+		range.setAll(present);
+		count += (present ? to - from : 0) - previous;
+	}
+
+	private BufferStore<V> duplicate(boolean mutable) {
+		ByteBuffer buffer = allocate(type.valueType, size, this.buffer.order());
+		copy(this.buffer, 0, buffer, 0, buffer.capacity());
+		BitStore populated = this.populated == null ? null : resizedCopyOf(this.populated, size);
+		return newStore(type, buffer, populated, count, mutable);
+	}
+
+	private static BitStore resizedCopyOf(BitStore populated, int newSize) {
+		if (populated instanceof BufferBitStore) return ((BufferBitStore) populated).resizedCopy(newSize);
+		BufferBitStore copy = new BufferBitStore(newSize);
+		int size = Math.min(newSize, populated.size());
+		copy.setStore(0, populated.range(0, size));
+		return copy;
+	}
+
+	// inner classes
+
+	final static class ByteStore extends BufferStore<Byte> implements StoreBytes {
+
+		private final ByteBuffer values;
+
+		ByteStore(StoreType<Byte> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer;
+		}
+
+		@Override
+		protected Byte getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Byte value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Byte value) {
+			byte v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store bytes
+
+		@Override public boolean isByte(int index) { return isPopulated(index); }
+		@Override public byte getByte(int index) {
+			checkPopulated(index, "null, not a byte");
+			return values.get(index);
+		}
+		@Override public void setByte(int index, byte value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getBytes(int from, byte[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a byte");
+			ByteBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setBytes(int from, byte[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			ByteBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class FloatStore extends BufferStore<Float> implements StoreFloats {
+
+		private final FloatBuffer values;
+
+		FloatStore(StoreType<Float> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asFloatBuffer();
+		}
+
+		@Override
+		protected Float getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Float value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Float value) {
+			float v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store floats
+
+		@Override public boolean isFloat(int index) { return isPopulated(index); }
+		@Override public float getFloat(int index) {
+			checkPopulated(index, "null, not a float");
+			return values.get(index);
+		}
+		@Override public void setFloat(int index, float value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getFloats(int from, float[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a float");
+			FloatBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setFloats(int from, float[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			FloatBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class CharacterStore extends BufferStore<Character> implements StoreChars {
+
+		private final CharBuffer values;
+
+		CharacterStore(StoreType<Character> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asCharBuffer();
+		}
+
+		@Override
+		protected Character getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Character value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Character value) {
+			char v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store chars
+
+		@Override public boolean isChar(int index) { return isPopulated(index); }
+		@Override public char getChar(int index) {
+			checkPopulated(index, "null, not a char");
+			return values.get(index);
+		}
+		@Override public void setChar(int index, char value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getChars(int from, char[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a char");
+			CharBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setChars(int from, char[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			CharBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class ShortStore extends BufferStore<Short> implements StoreShorts {
+
+		private final ShortBuffer values;
+
+		ShortStore(StoreType<Short> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asShortBuffer();
+		}
+
+		@Override
+		protected Short getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Short value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Short value) {
+			short v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store shorts
+
+		@Override public boolean isShort(int index) { return isPopulated(index); }
+		@Override public short getShort(int index) {
+			checkPopulated(index, "null, not a short");
+			return values.get(index);
+		}
+		@Override public void setShort(int index, short value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getShorts(int from, short[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a short");
+			ShortBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setShorts(int from, short[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			ShortBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class LongStore extends BufferStore<Long> implements StoreLongs {
+
+		private final LongBuffer values;
+
+		LongStore(StoreType<Long> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asLongBuffer();
+		}
+
+		@Override
+		protected Long getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Long value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Long value) {
+			long v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store longs
+
+		@Override public boolean isLong(int index) { return isPopulated(index); }
+		@Override public long getLong(int index) {
+			checkPopulated(index, "null, not a long");
+			return values.get(index);
+		}
+		@Override public void setLong(int index, long value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getLongs(int from, long[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a long");
+			LongBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setLongs(int from, long[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			LongBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class IntegerStore extends BufferStore<Integer> implements StoreInts {
+
+		private final IntBuffer values;
+
+		IntegerStore(StoreType<Integer> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asIntBuffer();
+		}
+
+		@Override
+		protected Integer getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Integer value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Integer value) {
+			int v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store ints
+
+		@Override public boolean isInt(int index) { return isPopulated(index); }
+		@Override public int getInt(int index) {
+			checkPopulated(index, "null, not an int");
+			return values.get(index);
+		}
+		@Override public void setInt(int index, int value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getInts(int from, int[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not an int");
+			IntBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setInts(int from, int[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			IntBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class DoubleStore extends BufferStore<Double> implements StoreDoubles {
+
+		private final DoubleBuffer values;
+
+		DoubleStore(StoreType<Double> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer.asDoubleBuffer();
+		}
+
+		@Override
+		protected Double getImpl(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		protected void setImpl(int index, Double value) {
+			values.put(index, value);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Double value) {
+			double v = value;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store doubles
+
+		@Override public boolean isDouble(int index) { return isPopulated(index); }
+		@Override public double getDouble(int index) {
+			checkPopulated(index, "null, not a double");
+			return values.get(index);
+		}
+		@Override public void setDouble(int index, double value) {
+			checkMutable();
+			values.put(index, value);
+			populate(index);
+		}
+		@Override public void getDoubles(int from, double[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a double");
+			DoubleBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.get(dest, offset, length);
+		}
+		@Override public void setDoubles(int from, double[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			DoubleBuffer buffer = values.duplicate();
+			((Buffer) buffer).position(from);
+			buffer.put(src, offset, length);
+			populate(from, from + length);
+		}
+	}
+
+	final static class BooleanStore extends BufferStore<Boolean> implements StoreBooleans {
+
+		private final ByteBuffer values;
+
+		BooleanStore(StoreType<Boolean> type, ByteBuffer buffer, BitStore populated, int count, boolean mutable) {
+			super(type, buffer, populated, count, mutable);
+			values = buffer;
+		}
+
+		@Override
+		protected Boolean getImpl(int index) {
+			return values.get(index) != 0;
+		}
+
+		@Override
+		protected void setImpl(int index, Boolean value) {
+			values.put(index, value ? (byte) 1 : (byte) 0);
+		}
+
+		@Override
+		protected void fillImpl(int from, int to, Boolean value) {
+			byte v = value ? (byte) 1 : (byte) 0;
+			for (int i = from; i < to; i++) {
+				values.put(i, v);
+			}
+		}
+
+		// store booleans
+
+		@Override public boolean isBoolean(int index) { return isPopulated(index); }
+		@Override public boolean getBoolean(int index) {
+			checkPopulated(index, "null, not a boolean");
+			return values.get(index) != 0;
+		}
+		@Override public void setBoolean(int index, boolean value) {
+			checkMutable();
+			values.put(index, value ? (byte) 1 : (byte) 0);
+			populate(index);
+		}
+		@Override public void getBooleans(int from, boolean[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			checkPopulated(from, length, "null, not a boolean");
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = values.get(from + i) != 0;
+			}
+		}
+		@Override public void setBooleans(int from, boolean[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) {
+				values.put(from + i, src[offset + i] ? (byte) 1 : (byte) 0);
+			}
+			populate(from, from + length);
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+/**
+ * <p>
+ * A store that retains a bounded number of values, evicting values as
+ * necessary when new values are stored. Cache stores are created by
+ * {@link Storage#cache(int)} and the related methods on {@link Storage}.
+ *
+ * <p>
+ * Values are evicted using the CLOCK algorithm: a value that has been
+ * retrieved since the eviction process last passed over it is spared once.
+ * Eviction is deterministic, so that the values retained by a cache depend
+ * only on the sequence of operations performed on it.
+ *
+ * <p>
+ * Only the {@link #get(int)} method counts as an access; methods such as
+ * {@link #isNull(int)}, iteration over the store, its list view and its
+ * object methods read only the values that are resident in the cache, do not
+ * load values, do not affect which values are evicted and are not recorded
+ * as hits or misses.
+ *
+ * @author Tom Gibara
+ *
+ * @param <V>
+ *            the type of values stored
+ * @see Storage#cache(int)
+ */
+public interface CacheStore<V> extends Store<V> {
+
+	/**
+	 * The total weight of values that the store may retain. For caches that
+	 * are not weighed, this is the maximum number of non-null values.
+	 *
+	 * @return the capacity of the cache
+	 */
+	long capacity();
+
+	/**
+	 * The total weight of the values currently retained by the store. For
+	 * caches that are not weighed, this is the same as {@link #count()}.
+	 *
+	 * @return the weight of the stored values
+	 */
+	long weight();
+
+	/**
+	 * The number of calls to {@link #get(int)} that returned a stored value.
+	 *
+	 * @return the number of cache hits
+	 */
+	long hitCount();
+
+	/**
+	 * The number of calls to {@link #get(int)} that found no stored value,
+	 * including those for which a value was then loaded.
+	 *
+	 * @return the number of cache misses
+	 */
+	long missCount();
+
+	/**
+	 * The number of values that have been removed from the store to
+	 * accommodate other values. Values that are replaced or explicitly
+	 * removed are not counted.
+	 *
+	 * @return the number of evictions
+	 */
+	long evictionCount();
+
+}
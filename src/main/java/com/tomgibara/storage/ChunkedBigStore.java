@@ -0,0 +1,446 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+// a big store composed of equally sized chunks (except possibly the last), each a regular store
+final class ChunkedBigStore<V> implements BigStore<V> {
+
+	static final class ChunkedStorage<V> implements BigStorage<V> {
+
+		private final Storage<V> storage;
+		private final int chunkBits;
+
+		ChunkedStorage(Storage<V> storage, int chunkSize) {
+			if (chunkSize <= 0) throw new IllegalArgumentException("non-positive chunkSize");
+			if ((chunkSize & (chunkSize - 1)) != 0) throw new IllegalArgumentException("chunkSize not a power of two");
+			this.storage = storage;
+			this.chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return storage.type();
+		}
+
+		@Override
+		public int chunkSize() {
+			return 1 << chunkBits;
+		}
+
+		@Override
+		public BigStore<V> newStore(long size, V value) throws IllegalArgumentException {
+			if (size < 0L) throw new IllegalArgumentException("negative size");
+			long chunkSize = 1L << chunkBits;
+			long chunkCount = (size + chunkSize - 1L) >>> chunkBits;
+			if (chunkCount > Integer.MAX_VALUE) throw new IllegalArgumentException("size too large");
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			Store<V>[] chunks = new Store[(int) chunkCount];
+			for (int i = 0; i < chunks.length; i++) {
+				long length = Math.min(chunkSize, size - ((long) i << chunkBits));
+				chunks[i] = storage.newStore((int) length, value);
+			}
+			return new ChunkedBigStore<>(storage, chunkBits, chunks, 0L, size);
+		}
+
+	}
+
+	private final Storage<V> storage;
+	private final int chunkBits;
+	private final long chunkMask;
+	private final Store<V>[] chunks;
+	// position of the first value of this store over all chunks
+	private final long offset;
+	private final long size;
+
+	private ChunkedBigStore(Storage<V> storage, int chunkBits, Store<V>[] chunks, long offset, long size) {
+		this.storage = storage;
+		this.chunkBits = chunkBits;
+		this.chunkMask = (1L << chunkBits) - 1L;
+		this.chunks = chunks;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	// big store
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public long count() {
+		if (!type().nullGettable) return size;
+		long count = 0L;
+		for (Store<V> segment : segments()) {
+			count += segment.count();
+		}
+		return count;
+	}
+
+	@Override
+	public StoreType<V> type() {
+		return storage.type();
+	}
+
+	@Override
+	public V get(long index) {
+		checkIndex(index);
+		long position = offset + index;
+		return chunk(position).get(indexInChunk(position));
+	}
+
+	@Override
+	public boolean isNull(long index) {
+		checkIndex(index);
+		long position = offset + index;
+		return chunk(position).isNull(indexInChunk(position));
+	}
+
+	@Override
+	public V set(long index, V value) {
+		checkIndex(index);
+		long position = offset + index;
+		return chunk(position).set(indexInChunk(position), value);
+	}
+
+	@Override
+	public void fill(V value) {
+		for (Store<V> segment : segments()) {
+			segment.fill(value);
+		}
+	}
+
+	@Override
+	public void clear() throws IllegalStateException {
+		for (Store<V> segment : segments()) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public BigStore<V> range(long from, long to) {
+		checkRange(from, to);
+		return new ChunkedBigStore<>(storage, chunkBits, chunks, offset + from, to - from);
+	}
+
+	@Override
+	public Store<V> asStore(long from, long to) throws IllegalArgumentException {
+		checkRange(from, to);
+		long length = to - from;
+		if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("range too large");
+		if (length > 0L) {
+			long first = offset + from;
+			long last = offset + to - 1L;
+			if ((first >>> chunkBits) == (last >>> chunkBits)) {
+				Store<V> chunk = chunk(first);
+				int start = indexInChunk(first);
+				int end = indexInChunk(last) + 1;
+				return start == 0 && end == chunk.size() ? chunk : chunk.range(start, end);
+			}
+		}
+		return new ChunkedRangeStore(from, (int) length);
+	}
+
+	@Override
+	public List<Store<V>> chunks() {
+		return Collections.unmodifiableList(Arrays.asList(segments()));
+	}
+
+	// iteration
+
+	@Override
+	public Iterator<V> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public void forEach(Consumer<? super V> action) {
+		for (Store<V> segment : segments()) {
+			segment.forEach(action);
+		}
+	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return new ChunkSpliterator(offset, offset + size);
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return chunks.length == 0 ? storage.isStorageMutable() : chunks[0].isMutable();
+	}
+
+	@Override
+	public BigStore<V> mutableCopy() {
+		return copy(storage.mutable());
+	}
+
+	@Override
+	public BigStore<V> immutableCopy() {
+		return copy(storage.mutable()).immutableView();
+	}
+
+	@Override
+	public BigStore<V> immutableView() {
+		if (!isMutable()) return this;
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Store<V>[] views = new Store[chunks.length];
+		for (int i = 0; i < views.length; i++) {
+			views[i] = chunks[i].immutableView();
+		}
+		return new ChunkedBigStore<>(storage, chunkBits, views, offset, size);
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		int hashCode = 1;
+		for (long i = 0L; i < size; i++) {
+			V v = get(i);
+			hashCode = 31 * hashCode + (v == null ? 0 : v.hashCode());
+		}
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof BigStore)) return false;
+		BigStore<?> that = (BigStore<?>) obj;
+		if (this.size != that.size()) return false;
+		for (long i = 0L; i < size; i++) {
+			V v = this.get(i);
+			Object w = that.get(i);
+			if (v == w) continue;
+			if (v == null || w == null) return false;
+			if (!v.equals(w)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder().append('[');
+		for (long i = 0L; i < size; i++) {
+			if (i > 0L) sb.append(',').append(' ');
+			sb.append(get(i));
+		}
+		return sb.append(']').toString();
+	}
+
+	// private helper methods
+
+	private Store<V> chunk(long position) {
+		return chunks[(int) (position >>> chunkBits)];
+	}
+
+	private int indexInChunk(long position) {
+		return (int) (position & chunkMask);
+	}
+
+	// the parts of chunks that lie within this store
+	private Store<V>[] segments() {
+		if (size == 0L) {
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			Store<V>[] none = new Store[0];
+			return none;
+		}
+		long first = offset;
+		long last = offset + size - 1L;
+		int firstChunk = (int) (first >>> chunkBits);
+		int lastChunk = (int) (last >>> chunkBits);
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Store<V>[] segments = new Store[lastChunk - firstChunk + 1];
+		for (int i = 0; i < segments.length; i++) {
+			Store<V> chunk = chunks[firstChunk + i];
+			int from = i == 0 ? indexInChunk(first) : 0;
+			int to = i == segments.length - 1 ? indexInChunk(last) + 1 : chunk.size();
+			segments[i] = from == 0 && to == chunk.size() ? chunk : chunk.range(from, to);
+		}
+		return segments;
+	}
+
+	private BigStore<V> copy(Storage<V> storage) {
+		long chunkSize = 1L << chunkBits;
+		int chunkCount = (int) ((size + chunkSize - 1L) >>> chunkBits);
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Store<V>[] copies = new Store[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			long from = (long) i << chunkBits;
+			long to = Math.min(size, from + chunkSize);
+			copies[i] = storage.newCopyOf(asStore(from, to));
+		}
+		return new ChunkedBigStore<>(storage, chunkBits, copies, 0L, size);
+	}
+
+	private void checkIndex(long index) {
+		if (index < 0L) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkRange(long from, long to) {
+		if (from < 0L) throw new IllegalArgumentException("negative from");
+		if (from > to) throw new IllegalArgumentException("from exceeds to");
+		if (to > size) throw new IllegalArgumentException("to exceeds size");
+	}
+
+	// inner classes
+
+	// a regular store over a range of values that spans more than one chunk
+	private final class ChunkedRangeStore extends AbstractStore<V> {
+
+		private final long from;
+		private final int size;
+
+		ChunkedRangeStore(long from, int size) {
+			this.from = from;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return ChunkedBigStore.this.type();
+		}
+
+		@Override
+		public V get(int index) {
+			checkIndex(index);
+			return ChunkedBigStore.this.get(from + index);
+		}
+
+		@Override
+		public boolean isNull(int index) {
+			checkIndex(index);
+			return ChunkedBigStore.this.isNull(from + index);
+		}
+
+		@Override
+		public V set(int index, V value) {
+			checkIndex(index);
+			return ChunkedBigStore.this.set(from + index, value);
+		}
+
+		@Override
+		public boolean isMutable() {
+			return ChunkedBigStore.this.isMutable();
+		}
+
+		@Override
+		public Store<V> immutableView() {
+			return isMutable() ? ChunkedBigStore.this.immutableView().asStore(from, from + size) : this;
+		}
+
+		private void checkIndex(int index) {
+			if (index < 0) throw new IllegalArgumentException("negative index");
+			if (index >= size) throw new IllegalArgumentException("index too large");
+		}
+	}
+
+	// splits on chunk boundaries where possible, otherwise defers to the spliterator of a chunk
+	private final class ChunkSpliterator implements Spliterator<V> {
+
+		private final long to;
+		private long from;
+		// spliterator over the remainder of the chunk containing from, lazily created
+		private Spliterator<V> current;
+
+		ChunkSpliterator(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			while (from < to) {
+				if (current().tryAdvance(action)) return true;
+				nextChunk();
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super V> action) {
+			while (from < to) {
+				current().forEachRemaining(action);
+				nextChunk();
+			}
+		}
+
+		@Override
+		public Spliterator<V> trySplit() {
+			if (from >= to) return null;
+			long end = chunkEnd();
+			if (end == to) return current().trySplit();
+			long mid = ((from + to) >>> 1) & ~chunkMask;
+			if (mid <= from) mid = end;
+			ChunkSpliterator prefix = new ChunkSpliterator(from, mid);
+			prefix.current = current;
+			current = null;
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			if (from >= to) return 0L;
+			long end = chunkEnd();
+			return (current == null ? end - from : current.estimateSize()) + to - end;
+		}
+
+		@Override
+		public int characteristics() {
+			return type().nullGettable ? ORDERED : ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+
+		private long chunkEnd() {
+			return Math.min(to, ((from >>> chunkBits) + 1L) << chunkBits);
+		}
+
+		private Spliterator<V> current() {
+			if (current == null) {
+				Store<V> chunk = chunk(from);
+				int start = indexInChunk(from);
+				int end = indexInChunk(chunkEnd() - 1L) + 1;
+				current = (start == 0 && end == chunk.size() ? chunk : chunk.range(start, end)).spliterator();
+			}
+			return current;
+		}
+
+		private void nextChunk() {
+			from = chunkEnd();
+			current = null;
+		}
+	}
+
+}
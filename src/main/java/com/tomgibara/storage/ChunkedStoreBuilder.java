@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.tomgibara.storage.StoreAccessors.StoreDoubles;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+import com.tomgibara.storage.StoreAccessors.StoreLongs;
+
+final class ChunkedStoreBuilder<V> implements StoreBuilder<V> {
+
+	static final int DEFAULT_CAPACITY = 16;
+
+	private final Storage<V> storage;
+	// used to create chunks, since they must be populated
+	private final Storage<V> mutable;
+	private final StoreType<V> type;
+	private final int initialCapacity;
+
+	private List<Store<V>> chunks = new ArrayList<>();
+	// the chunk currently being populated
+	private Store<V> current = null;
+	// lazily created accessors for the current chunk
+	private StoreInts ints = null;
+	private StoreLongs longs = null;
+	private StoreDoubles doubles = null;
+	// the index of the next value in the current chunk
+	private int position = 0;
+	// the capacity of the current chunk
+	private int capacity = 0;
+	private int size = 0;
+	private boolean sealed = false;
+
+	ChunkedStoreBuilder(Storage<V> storage, int initialCapacity) {
+		if (initialCapacity < 1) throw new IllegalArgumentException("non-positive initial capacity");
+		this.storage = storage;
+		this.mutable = storage.mutable();
+		this.type = storage.type();
+		this.initialCapacity = initialCapacity;
+	}
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public StoreBuilder<V> append(V value) {
+		if (position == capacity) {
+			if (type.nullSettable) {
+				newChunk(null);
+			} else {
+				if (value == null) StoreType.failNull();
+				newChunk(value);
+			}
+		}
+		current.set(position++, value);
+		size++;
+		return this;
+	}
+
+	@Override
+	public StoreBuilder<V> appendInt(int value) {
+		if (position == capacity) newChunk(seed(s -> StoreAccessors.intsFor(s).setInt(0, value)));
+		if (ints == null) ints = StoreAccessors.intsFor(current);
+		ints.setInt(position++, value);
+		size++;
+		return this;
+	}
+
+	@Override
+	public StoreBuilder<V> appendLong(long value) {
+		if (position == capacity) newChunk(seed(s -> StoreAccessors.longsFor(s).setLong(0, value)));
+		if (longs == null) longs = StoreAccessors.longsFor(current);
+		longs.setLong(position++, value);
+		size++;
+		return this;
+	}
+
+	@Override
+	public StoreBuilder<V> appendDouble(double value) {
+		if (position == capacity) newChunk(seed(s -> StoreAccessors.doublesFor(s).setDouble(0, value)));
+		if (doubles == null) doubles = StoreAccessors.doublesFor(current);
+		doubles.setDouble(position++, value);
+		size++;
+		return this;
+	}
+
+	@Override
+	public Store<V> seal() {
+		checkNotSealed();
+		sealed = true;
+		Store<V> store;
+		if (size == 0) {
+			store = mutable.newStore(0);
+		} else if (chunks.size() == 1 && position == capacity) {
+			// the values exactly occupy the only chunk
+			store = current;
+		} else {
+			store = type.nullSettable ? mutable.newStore(size) : mutable.newStore(size, chunks.get(0).get(0));
+			int index = 0;
+			for (Store<V> chunk : chunks) {
+				int length = chunk == current ? position : chunk.size();
+				store.setStore(index, length == chunk.size() ? chunk : chunk.range(0, length));
+				index += length;
+			}
+		}
+		// release the chunks
+		chunks = null;
+		current = null;
+		ints = null;
+		longs = null;
+		doubles = null;
+		// ensures any further append attempts a new chunk and fails
+		position = 0;
+		capacity = 0;
+		return storage.isStorageMutable() ? store : store.immutableView();
+	}
+
+	@Override
+	public String toString() {
+		return sealed ? "sealed builder" : "builder of " + size + " values";
+	}
+
+	private void checkNotSealed() {
+		if (sealed) throw new IllegalStateException("sealed");
+	}
+
+	// a value with which a new chunk can be created, null if the store type accepts null
+	private V seed(Consumer<Store<V>> setter) {
+		checkNotSealed();
+		if (type.nullSettable) return null;
+		if (!chunks.isEmpty()) return chunks.get(0).get(0);
+		// no previous value to use, so convert the value via a single element store
+		Store<V> store = type.settingNullAllowed().storage().newStore(1);
+		setter.accept(store);
+		return store.get(0);
+	}
+
+	// the seed is only used for store types that do not accept null values
+	private void newChunk(V seed) {
+		checkNotSealed();
+		int cap;
+		if (chunks.isEmpty()) {
+			cap = initialCapacity;
+		} else {
+			// each chunk doubles the capacity of the builder
+			cap = Math.min(size, Integer.MAX_VALUE - size);
+			if (cap == 0) throw new IllegalStateException("full");
+		}
+		current = mutable.newStore(cap, seed);
+		chunks.add(current);
+		ints = null;
+		longs = null;
+		doubles = null;
+		position = 0;
+		capacity = cap;
+	}
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.BitStore.Matches;
+import com.tomgibara.bits.Bits;
+
+// a cache which evicts values with the CLOCK algorithm, the reference bits are kept in a bit store
+final class ClockStore<V> extends AbstractStore<V> implements CacheStore<V> {
+
+	static final class ClockStorage<V> implements Storage<V> {
+
+		private final long capacity;
+		// null if every value has unit weight
+		private final ToLongFunction<? super V> weigher;
+		// null if values are not loaded
+		private final IntFunction<? extends V> loader;
+
+		ClockStorage(long capacity, ToLongFunction<? super V> weigher, IntFunction<? extends V> loader) {
+			if (capacity <= 0L) throw new IllegalArgumentException("non-positive capacity");
+			this.capacity = capacity;
+			this.weigher = weigher;
+			this.loader = loader;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return StoreType.generic();
+		}
+
+		@Override
+		public Store<V> newStore(int size, V value) throws IllegalArgumentException {
+			if (size < 0) throw new IllegalArgumentException("negative size");
+			ClockStore<V> store = new ClockStore<>(this, size);
+			if (value != null) store.fill(value);
+			return store;
+		}
+
+	}
+
+	private final ClockStorage<V> storage;
+	private final Object[] values;
+	private final BitStore populated;
+	private final Matches ones;
+	// set when a value is accessed, cleared as the hand passes
+	private final BitStore referenced;
+	// reads values without recording an access, used for iteration and object methods
+	private final Resident resident = new Resident();
+	private int count = 0;
+	private long weight = 0L;
+	// the index from which the next eviction will search
+	private int hand = 0;
+	private long hits = 0L;
+	private long misses = 0L;
+	private long evictions = 0L;
+
+	private ClockStore(ClockStorage<V> storage, int size) {
+		this.storage = storage;
+		values = new Object[size];
+		populated = Bits.store(size);
+		ones = populated.ones();
+		referenced = Bits.store(size);
+	}
+
+	// cache store methods
+
+	@Override
+	public long capacity() {
+		return storage.capacity;
+	}
+
+	@Override
+	public long weight() {
+		return weight;
+	}
+
+	@Override
+	public long hitCount() {
+		return hits;
+	}
+
+	@Override
+	public long missCount() {
+		return misses;
+	}
+
+	@Override
+	public long evictionCount() {
+		return evictions;
+	}
+
+	// store methods
+
+	@Override
+	public StoreType<V> type() {
+		return StoreType.generic();
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public int count() {
+		return count;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(int index) {
+		checkIndex(index);
+		V value = (V) values[index];
+		if (value != null) {
+			hits++;
+			referenced.setBit(index, true);
+			return value;
+		}
+		misses++;
+		if (storage.loader == null) return null;
+		value = storage.loader.apply(index);
+		if (value != null) put(index, value);
+		return value;
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return values[index] == null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V set(int index, V value) {
+		checkIndex(index);
+		V previous = (V) values[index];
+		if (value == null) {
+			if (previous != null) remove(index);
+		} else {
+			put(index, value);
+		}
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(values, null);
+		populated.clear();
+		referenced.clear();
+		count = 0;
+		weight = 0L;
+	}
+
+	@Override
+	public BitStore population() {
+		return populated.immutableView();
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative size");
+		ClockStore<V> that = new ClockStore<>(storage, newSize);
+		int limit = Math.min(newSize, values.length);
+		for (int i = ones.next(0); i < limit; i = ones.next(i + 1)) {
+			@SuppressWarnings("unchecked")
+			V value = (V) values[i];
+			that.put(i, value);
+		}
+		return that;
+	}
+
+	// iteration and views, which do not count as accesses
+
+	@Override
+	public Iterator<V> iterator() {
+		return resident.iterator();
+	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return resident.spliterator();
+	}
+
+	@Override
+	public void forEach(Consumer<? super V> action) {
+		resident.forEach(action);
+	}
+
+	@Override
+	public void forEach(BiConsumer<Integer, ? super V> action) {
+		resident.forEach(action);
+	}
+
+	@Override
+	public void forEachIndexed(StoreAccessors.IntObjConsumer<? super V> action) {
+		resident.forEachIndexed(action);
+	}
+
+	@Override
+	public List<V> asList() {
+		return resident.asList();
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		@SuppressWarnings("unchecked")
+		V[] vs = (V[]) values.clone();
+		return new ImmutableArrayStore<>(vs, count, type());
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		return resident.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof ClockStore<?>) obj = ((ClockStore<?>) obj).resident;
+		return resident.equals(obj);
+	}
+
+	@Override
+	public String toString() {
+		return resident.toString();
+	}
+
+	// private helper methods
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= values.length) throw new IllegalArgumentException("index too large");
+	}
+
+	private long weigh(Object value) {
+		@SuppressWarnings("unchecked")
+		V v = (V) value;
+		return storage.weigher == null ? 1L : storage.weigher.applyAsLong(v);
+	}
+
+	// stores a non-null value and evicts others until the cache is within capacity
+	private void put(int index, V value) {
+		Object previous = values[index];
+		if (previous == null) {
+			populated.setBit(index, true);
+			count++;
+		} else {
+			weight -= weigh(previous);
+		}
+		// new values are not marked as referenced until they are accessed
+		values[index] = value;
+		weight += weigh(value);
+		evict(index);
+	}
+
+	private void remove(int index) {
+		weight -= weigh(values[index]);
+		values[index] = null;
+		populated.setBit(index, false);
+		referenced.setBit(index, false);
+		count--;
+	}
+
+	// a value that is too heavy for the cache is retained alone
+	private void evict(int protect) {
+		long capacity = storage.capacity;
+		while (weight > capacity && count > 1) {
+			int i = ones.next(hand);
+			if (i == values.length) {
+				hand = 0;
+				continue;
+			}
+			hand = i + 1;
+			if (i == protect) continue;
+			if (referenced.getBit(i)) {
+				// spare the value once
+				referenced.setBit(i, false);
+			} else {
+				remove(i);
+				evictions++;
+			}
+		}
+	}
+
+	// inner classes
+
+	// the values currently held by the cache, modifications are made to the cache
+	private final class Resident extends AbstractStore<V> {
+
+		@Override
+		public StoreType<V> type() {
+			return ClockStore.this.type();
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public int count() {
+			return count;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(int index) {
+			checkIndex(index);
+			return (V) values[index];
+		}
+
+		@Override
+		public boolean isNull(int index) {
+			return ClockStore.this.isNull(index);
+		}
+
+		@Override
+		public V set(int index, V value) {
+			return ClockStore.this.set(index, value);
+		}
+
+		@Override
+		public void clear() {
+			ClockStore.this.clear();
+		}
+
+		@Override
+		public BitStore population() {
+			return ClockStore.this.population();
+		}
+
+		@Override
+		public Store<V> resizedCopy(int newSize) {
+			return ClockStore.this.resizedCopy(newSize);
+		}
+
+		@Override
+		public boolean isMutable() {
+			return true;
+		}
+
+		@Override
+		public Store<V> immutableCopy() {
+			return ClockStore.this.immutableCopy();
+		}
+
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+
+// stores values as codes into a dictionary, the codes are packed into small value stores
+final class CodedStore<V> extends AbstractStore<V> implements DictionaryStore<V> {
+
+	static final class CodedStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+
+		CodedStorage(StoreType<V> type) {
+			this.type = type;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V value) throws IllegalArgumentException {
+			if (size < 0) throw new IllegalArgumentException("negative size");
+			if (value == null && !type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+			CodedStore<V> store = new CodedStore<>(type, new ArrayList<>(), new HashMap<>(), null, true);
+			// ensures that growing a store assigns the null value
+			if (type.nullSettable && !type.nullGettable) store.intern(type.nullValue);
+			Integer code = value == null ? null : store.intern(checkedValue(type, value));
+			store.codes = codeStorage(type, store.range).newStore(size, code);
+			store.ints = StoreAccessors.intsFor(store.codes);
+			return store;
+		}
+
+	}
+
+	private static <V> V checkedValue(StoreType<V> type, V value) {
+		if (!type.checkValue(value)) throw new IllegalArgumentException("invalid value");
+		return value;
+	}
+
+	// codes are stored with a value of zero for null, only used where nulls are not gettable
+	private static <V> Storage<Integer> codeStorage(StoreType<V> type, int range) {
+		StoreType<Integer> codeType = type.nullGettable ? StoreType.of(int.class) : StoreType.of(int.class).settingNullToValue(0);
+		return SmallValueStore.newStorage(range, codeType);
+	}
+
+	private final StoreType<V> type;
+	private final List<V> values;
+	private final Map<V, Integer> lookup;
+	private final boolean mutable;
+	// the number of codes that the codes store can accommodate
+	private int range;
+	private Store<Integer> codes;
+	private StoreInts ints;
+
+	private CodedStore(StoreType<V> type, List<V> values, Map<V, Integer> lookup, Store<Integer> codes, boolean mutable) {
+		this.type = type;
+		this.values = values;
+		this.lookup = lookup;
+		this.mutable = mutable;
+		this.range = rangeFor(values.size());
+		this.codes = codes;
+		this.ints = codes == null ? null : StoreAccessors.intsFor(codes);
+	}
+
+	// dictionary store methods
+
+	@Override
+	public Store<V> dictionary() {
+		return new AbstractStore<V>() {
+			@Override public int size() { return values.size(); }
+			@Override public V get(int index) { return values.get(index); }
+			@Override public StoreType<V> type() { return type.settingNullDisallowed(); }
+		};
+	}
+
+	@Override
+	public Store<Integer> codes() {
+		return codes.immutableView();
+	}
+
+	@Override
+	public int codeOf(Object value) {
+		Integer code = lookup.get(value);
+		return code == null ? -1 : code;
+	}
+
+	// store methods
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return codes.size();
+	}
+
+	@Override
+	public int count() {
+		return codes.count();
+	}
+
+	@Override
+	public V get(int index) {
+		checkIndex(index);
+		return ints.isInt(index) ? values.get(ints.getInt(index)) : null;
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		return codes.isNull(index);
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkMutable();
+		checkIndex(index);
+		V previous = get(index);
+		if (value == null) {
+			if (!type.nullSettable) StoreType.failNull();
+			if (type.nullGettable) {
+				codes.set(index, null);
+				return previous;
+			}
+			value = type.nullValue;
+		}
+		// interning may repack the codes, so must precede access to them
+		int code = intern(checkedValue(type, value));
+		ints.setInt(index, code);
+		return previous;
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		if (value == null) {
+			clear();
+		} else {
+			int code = intern(checkedValue(type, value));
+			codes.fill(code);
+		}
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (!type.nullSettable) throw new IllegalStateException("null not settable");
+		codes.clear();
+	}
+
+	@Override
+	public BitStore population() {
+		return codes.population();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <W extends V> void setStore(int position, Store<W> store) {
+		checkMutable();
+		if (store instanceof CodedStore<?> && ((CodedStore<W>) store).values.equals(values)) {
+			// identical dictionaries, so codes can be copied directly
+			codes.setStore(position, ((CodedStore<W>) store).codes);
+		} else {
+			super.setStore(position, store);
+		}
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize > size() && !type.nullSettable) throw new IllegalArgumentException("cannot increase size, null not settable");
+		return copy(codes.resizedCopy(newSize), true);
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return copy(codes.mutableCopy(), true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return copy(codes.immutableCopy(), false);
+	}
+
+	// package scoped methods
+
+	int intern(V value) {
+		Integer code = lookup.get(value);
+		if (code != null) return code;
+		int c = values.size();
+		values.add(value);
+		lookup.put(value, c);
+		if (c == range) {
+			// repack the codes into a store that can accommodate more values
+			range = rangeFor(c + 1);
+			if (codes != null) {
+				Store<Integer> grown = codeStorage(type, range).newStore(codes.size());
+				grown.setStore(0, codes);
+				codes = grown;
+				ints = StoreAccessors.intsFor(codes);
+			}
+		}
+		return c;
+	}
+
+	// private helper methods
+
+	// ranges are chosen to fully utilize the bits of each code
+	private int rangeFor(int count) {
+		int range = 1;
+		while (range < count) {
+			if (range >= 1 << 29) return Integer.MAX_VALUE - 1;
+			range = type.nullGettable ? range * 2 + 1 : range * 2;
+		}
+		return range;
+	}
+
+	private CodedStore<V> copy(Store<Integer> codes, boolean mutable) {
+		return new CodedStore<>(type, new ArrayList<>(values), new HashMap<>(lookup), codes, mutable);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size()) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tomgibara.storage.RefStore.RefStorage;
+
+// holds weak or soft references which may be accessed concurrently, cleared references are reclaimed by a shared background thread
+final class ConcurrentRefStore<V> extends AbstractStore<V> {
+
+	// shared by all stores so that a single thread can reclaim references
+	private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	// started with the first storage, since stores (and so their references) are only created by storage
+	private static Thread reclaimer = null;
+
+	static <V> Storage<V> newStorage(boolean soft) {
+		startReclaimer();
+		return (RefStorage<V>) (size, value) -> new ConcurrentRefStore<>(size, value, soft);
+	}
+
+	private static synchronized void startReclaimer() {
+		if (reclaimer != null) return;
+		Thread thread = new Thread(ConcurrentRefStore::reclaim, "storage-reference-reclaimer");
+		thread.setDaemon(true);
+		// the thread outlives whichever code first requested storage, and must not pin its class loader
+		thread.setContextClassLoader(null);
+		thread.start();
+		reclaimer = thread;
+	}
+
+	private static void reclaim() {
+		while (true) {
+			try {
+				((IndexedRef) queue.remove()).reclaim();
+			} catch (InterruptedException e) {
+				/* the reclaimer runs for the lifetime of the VM */
+			}
+		}
+	}
+
+	private final boolean soft;
+	private final AtomicReferenceArray<Reference<V>> refs;
+	// counts number of references (cleared or not), striped to avoid contention between writers
+	private final LongAdder count = new LongAdder();
+
+	ConcurrentRefStore(int size, V initialValue, boolean soft) {
+		if (size < 0) throw new IllegalArgumentException("negative size");
+		this.soft = soft;
+		refs = new AtomicReferenceArray<>(size);
+		if (initialValue != null) {
+			for (int i = 0; i < size; i++) {
+				refs.set(i, newReference(initialValue, i));
+			}
+			count.add(size);
+		}
+	}
+
+	@Override
+	public StoreType<V> type() {
+		return StoreType.generic();
+	}
+
+	@Override
+	public int size() {
+		return refs.length();
+	}
+
+	@Override
+	public int count() {
+		return count.intValue();
+	}
+
+	@Override
+	public V get(int index) {
+		checkIndex(index);
+		Reference<V> ref = refs.get(index);
+		return ref == null ? null : ref.get();
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		Reference<V> ref = refs.get(index);
+		return ref == null || ref.get() == null;
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkIndex(index);
+		Reference<V> ref = refs.getAndSet(index, value == null ? null : newReference(value, index));
+		if (ref == null) {
+			if (value != null) count.increment();
+			return null;
+		}
+		if (value == null) count.decrement();
+		return ref.get();
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < refs.length(); i++) {
+			if (refs.getAndSet(i, null) != null) count.decrement();
+		}
+	}
+
+	@Override
+	public void fill(V value) {
+		for (int i = 0; i < refs.length(); i++) {
+			set(i, value);
+		}
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		ConcurrentRefStore<V> that = new ConcurrentRefStore<>(newSize, null, soft);
+		int limit = Math.min(refs.length(), newSize);
+		for (int i = 0; i < limit; i++) {
+			V value = get(i);
+			if (value != null) that.set(i, value);
+		}
+		return that;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		int size = refs.length();
+		@SuppressWarnings("unchecked")
+		V[] vs = (V[]) new Object[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			V value = get(i);
+			if (value == null) continue;
+			vs[i] = value;
+			count++;
+		}
+		return new ImmutableArrayStore<>(vs, count, type());
+	}
+
+	// package scoped methods
+
+	// the reference currently held at the index, which may be null
+	Reference<V> reference(int index) {
+		checkIndex(index);
+		return refs.get(index);
+	}
+
+	// private helper methods
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= refs.length()) throw new IllegalArgumentException("index too large");
+	}
+
+	private Reference<V> newReference(V referent, int index) {
+		return soft ? new SoftRef<>(referent, this, index) : new WeakRef<>(referent, this, index);
+	}
+
+	// called on the reclaimer thread, the reference may already have been replaced
+	private void reclaim(Reference<V> ref, int index) {
+		if (refs.compareAndSet(index, ref, null)) count.decrement();
+	}
+
+	// inner classes
+
+	private interface IndexedRef {
+
+		void reclaim();
+
+	}
+
+	private static final class WeakRef<T> extends WeakReference<T> implements IndexedRef {
+
+		private final ConcurrentRefStore<T> store;
+		private final int index;
+
+		WeakRef(T referent, ConcurrentRefStore<T> store, int index) {
+			super(referent, queue);
+			this.store = store;
+			this.index = index;
+		}
+
+		@Override
+		public void reclaim() {
+			store.reclaim(this, index);
+		}
+	}
+
+	private static final class SoftRef<T> extends SoftReference<T> implements IndexedRef {
+
+		private final ConcurrentRefStore<T> store;
+		private final int index;
+
+		SoftRef(T referent, ConcurrentRefStore<T> store, int index) {
+			super(referent, queue);
+			this.store = store;
+			this.index = index;
+		}
+
+		@Override
+		public void reclaim() {
+			store.reclaim(this, index);
+		}
+	}
+
+}
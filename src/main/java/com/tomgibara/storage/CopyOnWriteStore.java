@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.function.Consumer;
+
+// a store composed of pages that are shared between copies until they are modified
+final class CopyOnWriteStore<V> extends AbstractStore<V> {
+
+	static final int DEFAULT_PAGE_SIZE = 4096;
+
+	static final class CopyOnWriteStorage<V> implements Storage<V> {
+
+		private final Storage<V> storage;
+		private final boolean mutable;
+		private final int pageBits;
+
+		CopyOnWriteStorage(Storage<V> storage, int pageSize) {
+			if (pageSize <= 0) throw new IllegalArgumentException("non-positive pageSize");
+			if ((pageSize & (pageSize - 1)) != 0) throw new IllegalArgumentException("pageSize not a power of two");
+			this.storage = storage.mutable();
+			this.mutable = storage.isStorageMutable();
+			this.pageBits = Integer.numberOfTrailingZeros(pageSize);
+		}
+
+		@Override
+		public boolean isStorageMutable() {
+			return mutable;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return storage.type();
+		}
+
+		@Override
+		public Store<V> newStore(int size, V value) throws IllegalArgumentException {
+			if (size < 0) throw new IllegalArgumentException("negative size");
+			int count = pageCount(size, pageBits);
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			Store<V>[] pages = new Store[count];
+			Object[] owners = new Object[count];
+			Object token = new Object();
+			for (int i = 0; i < count; i++) {
+				pages[i] = storage.newStore(pageLength(i, size, pageBits), value);
+				owners[i] = token;
+			}
+			return new CopyOnWriteStore<>(storage, pageBits, size, mutable, pages, owners, token, false);
+		}
+
+	}
+
+	private static int pageCount(int size, int pageBits) {
+		return (int) ((size + (1L << pageBits) - 1L) >>> pageBits);
+	}
+
+	private static int pageLength(int page, int size, int pageBits) {
+		return Math.min(1 << pageBits, size - (page << pageBits));
+	}
+
+	private final Storage<V> storage;
+	private final int pageBits;
+	private final int pageMask;
+	private final int size;
+	private final boolean mutable;
+	private Store<V>[] pages;
+	// the token of the store permitted to modify each page in place
+	private Object[] owners;
+	// identifies the pages this store may modify, replaced when pages are shared
+	private Object token;
+	// whether the pages and owners arrays are shared with another store
+	private boolean tableShared;
+
+	private CopyOnWriteStore(Storage<V> storage, int pageBits, int size, boolean mutable, Store<V>[] pages, Object[] owners, Object token, boolean tableShared) {
+		this.storage = storage;
+		this.pageBits = pageBits;
+		this.pageMask = (1 << pageBits) - 1;
+		this.size = size;
+		this.mutable = mutable;
+		this.pages = pages;
+		this.owners = owners;
+		this.token = token;
+		this.tableShared = tableShared;
+	}
+
+	// store
+
+	@Override
+	public StoreType<V> type() {
+		return storage.type();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int count() {
+		if (!type().nullGettable) return size;
+		int count = 0;
+		for (Store<V> page : pages) {
+			count += page.count();
+		}
+		return count;
+	}
+
+	@Override
+	public V get(int index) {
+		checkIndex(index);
+		return pages[index >>> pageBits].get(index & pageMask);
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return pages[index >>> pageBits].isNull(index & pageMask);
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkMutable();
+		checkIndex(index);
+		return writablePage(index >>> pageBits).set(index & pageMask, value);
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (!type().nullSettable) throw new IllegalStateException("null not settable");
+		fillPages(null);
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		if (value == null && !type().nullSettable) StoreType.failNull();
+		fillPages(value);
+	}
+
+	@Override
+	public <W extends V> void setStore(int position, Store<W> store) {
+		checkMutable();
+		int length = checkSetStore(position, store);
+		for (int from = 0; from < length; ) {
+			int index = position + from;
+			int offset = index & pageMask;
+			int to = Math.min(length, from + (1 << pageBits) - offset);
+			writablePage(index >>> pageBits).setStore(offset, store.range(from, to));
+			from = to;
+		}
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative size");
+		int count = pageCount(newSize, pageBits);
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Store<V>[] newPages = new Store[count];
+		Object[] newOwners = new Object[count];
+		Object newToken = new Object();
+		boolean shared = false;
+		for (int i = 0; i < count; i++) {
+			int length = pageLength(i, newSize, pageBits);
+			if (i >= pages.length) {
+				newPages[i] = storage.newStore(length);
+				newOwners[i] = newToken;
+			} else if (pages[i].size() == length) {
+				newPages[i] = pages[i];
+				shared = true;
+			} else {
+				newPages[i] = pages[i].resizedCopy(length);
+				newOwners[i] = newToken;
+			}
+		}
+		// this store can no longer modify any shared pages in place
+		if (shared) token = new Object();
+		return new CopyOnWriteStore<>(storage, pageBits, newSize, true, newPages, newOwners, newToken, false);
+	}
+
+	@Override
+	public void forEach(Consumer<? super V> action) {
+		for (Store<V> page : pages) {
+			page.forEach(action);
+		}
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return share(true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return mutable ? share(false) : this;
+	}
+
+	// private helper methods
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	// copies are constant time, pages are copied lazily as they are modified
+	private Store<V> share(boolean mutable) {
+		tableShared = true;
+		token = new Object();
+		return new CopyOnWriteStore<>(storage, pageBits, size, mutable, pages, owners, new Object(), true);
+	}
+
+	private void unshareTable() {
+		if (tableShared) {
+			pages = pages.clone();
+			owners = owners.clone();
+			tableShared = false;
+		}
+	}
+
+	private Store<V> writablePage(int i) {
+		unshareTable();
+		Store<V> page = pages[i];
+		if (owners[i] != token) {
+			page = page.mutableCopy();
+			pages[i] = page;
+			owners[i] = token;
+		}
+		return page;
+	}
+
+	private void fillPages(V value) {
+		unshareTable();
+		for (int i = 0; i < pages.length; i++) {
+			if (owners[i] == token) {
+				pages[i].fill(value);
+			} else {
+				// no need to copy a page that is about to be overwritten
+				pages[i] = storage.newStore(pages[i].size(), value);
+				owners[i] = token;
+			}
+		}
+	}
+
+}
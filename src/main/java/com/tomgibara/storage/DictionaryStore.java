@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+/**
+ * <p>
+ * A store that records each distinct value once in a dictionary, and which
+ * stores, at each index, the integer code of the value in that dictionary.
+ * Dictionary stores are created by {@link StoreType#dictionaryStorage()}.
+ *
+ * <p>
+ * The codes are exposed so that operations which only depend on the equality
+ * of values, such as filtering or grouping, may operate on integers without
+ * retrieving the values themselves. A value that has been assigned a code
+ * retains it for the lifetime of the store, and codes are preserved by copies
+ * of the store.
+ *
+ * @author Tom Gibara
+ *
+ * @param <V>
+ *            the type of values stored
+ * @see StoreType#dictionaryStorage()
+ */
+public interface DictionaryStore<V> extends Store<V> {
+
+	/**
+	 * The values that have been assigned codes, indexed by code. Values remain
+	 * in the dictionary after they have been removed from the store. The
+	 * returned store is immutable but will grow as new values are stored.
+	 *
+	 * @return the dictionary of values
+	 */
+	Store<V> dictionary();
+
+	/**
+	 * The code assigned to each value in the store. The returned store is an
+	 * immutable live view, which is null where this store is null, and
+	 * which implements {@link StoreAccessors.StoreInts} so that codes may be
+	 * read without boxing. Since the store is repacked when the dictionary
+	 * grows, the view reflects changes made to values of this store only
+	 * until a new value is added to the dictionary.
+	 *
+	 * @return the codes of the store values
+	 */
+	Store<Integer> codes();
+
+	/**
+	 * The code assigned to the supplied value.
+	 *
+	 * @param value
+	 *            a possibly null value
+	 * @return the code of the value, or -1 if the value has not been assigned
+	 *         a code
+	 */
+	int codeOf(Object value);
+
+}
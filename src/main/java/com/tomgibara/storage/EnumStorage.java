@@ -16,6 +16,8 @@
  */
 package com.tomgibara.storage;
 
+import java.util.Comparator;
+
 import com.tomgibara.fundament.Mapping;
 import com.tomgibara.storage.SmallValueStore.SmallValueStorage;
 
@@ -119,6 +121,32 @@ final class EnumStorage<E extends Enum<E>> implements Storage<E> {
 			return new EnumStore(store.resizedCopy(newSize));
 		}
 
+		// enums are naturally ordered by ordinal
+
+		@Override
+		public void sort(Comparator<? super E> comparator) {
+			if (comparator == null) {
+				store.countingSort(false);
+			} else {
+				super.sort(comparator);
+			}
+		}
+
+		@Override
+		public void parallelSort() {
+			store.countingSort(false);
+		}
+
+		@Override
+		public Store<Integer> sortIndices(Comparator<? super E> comparator) {
+			return comparator == null ? store.countingSortIndices(false) : super.sortIndices(comparator);
+		}
+
+		@Override
+		int search(int from, int to, E key, int mode) {
+			return store.searchImpl(from, to, key.ordinal(), mode, false);
+		}
+
 		// mutability methods
 
 		@Override
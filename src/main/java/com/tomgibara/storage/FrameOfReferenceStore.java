@@ -0,0 +1,602 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntToLongFunction;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+import com.tomgibara.storage.StoreAccessors.StoreLongs;
+
+// packs blocks of integral values relative to a base, optionally as the differences between successive values
+abstract class FrameOfReferenceStore<V> extends AbstractStore<V> {
+
+	static final int BLOCK_BITS = 7;
+	static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private static final class FrameOfReferenceStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+		// true if blocks pack the differences between successive values
+		private final boolean delta;
+
+		FrameOfReferenceStorage(StoreType<V> type, boolean delta) {
+			this.type = type;
+			this.delta = delta;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V initialValue) throws IllegalArgumentException {
+			return FrameOfReferenceStore.newStore(type, delta, size, initialValue);
+		}
+
+	}
+
+	static <V> Storage<V> newStorage(StoreType<V> type, boolean delta) {
+		return new FrameOfReferenceStorage<>(type, delta);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <V> FrameOfReferenceStore<V> newStore(StoreType<V> type, boolean delta, int size, V initialValue) {
+		if (size < 0) throw new IllegalArgumentException("negative size");
+		if (initialValue == null) {
+			if (!type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+			initialValue = type.nullValue;
+		} else if (!type.checkValue(initialValue)) {
+			throw new IllegalArgumentException("invalid value");
+		}
+		FrameOfReferenceStore<V> store;
+		switch (Stores.hash(type.valueType)) {
+		case Stores.INT:  store = (FrameOfReferenceStore<V>) new IntegerStore((StoreType<Integer>) type, delta, size, true); break;
+		case Stores.LONG: store = (FrameOfReferenceStore<V>) new LongStore   ((StoreType<Long>   ) type, delta, size, true); break;
+		default: throw new IllegalArgumentException(type.valueType.getName());
+		}
+		if (initialValue != null) {
+			long value = store.toLong(initialValue);
+			for (int b = 0; b < store.blocks.length; b++) {
+				store.constant(b, value);
+			}
+		}
+		return store;
+	}
+
+	private static int blockCount(int size) {
+		return (size + BLOCK_MASK) >>> BLOCK_BITS;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long code) {
+		return (code >>> 1) ^ -(code & 1L);
+	}
+
+	// true if the unsigned code can be represented in the given number of bits
+	private static boolean fits(long code, int width) {
+		return width == 64 || code >>> width == 0L;
+	}
+
+	final StoreType<V> type;
+	final boolean delta;
+	final int size;
+	final boolean mutable;
+	// the value relative to which the values in each block are encoded
+	private final long[] bases;
+	// the number of bits used to encode each value in a block, zero when all codes are zero
+	private final byte[] widths;
+	private final BitStore[] blocks;
+
+	FrameOfReferenceStore(StoreType<V> type, boolean delta, int size, boolean mutable) {
+		this.type = type;
+		this.delta = delta;
+		this.size = size;
+		this.mutable = mutable;
+		int count = blockCount(size);
+		bases = new long[count];
+		widths = new byte[count];
+		blocks = new BitStore[count];
+	}
+
+	// store
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int count() {
+		return size;
+	}
+
+	@Override
+	public V get(int index) {
+		checkIndex(index);
+		return toValue(getImpl(index));
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return false;
+	}
+
+	@Override
+	public V set(int index, V value) {
+		checkMutable();
+		checkIndex(index);
+		return toValue(setImpl(index, checkedValue(value)));
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (!type.nullSettable) throw new IllegalStateException("null not settable");
+		fillImpl(0, size, toLong(type.nullValue));
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		fillImpl(0, size, checkedValue(value));
+	}
+
+	@Override
+	public BitStore population() {
+		return Bits.oneBits(size);
+	}
+
+	@Override
+	public <W extends V> void setStore(int position, Store<W> store) {
+		checkMutable();
+		int length = checkSetStore(position, store);
+		// values are assigned a block at a time, so an overlapping source must be copied first
+		if (store == this || store instanceof RangeStore<?> && ((RangeStore<?>) store).store == this) {
+			store = store.immutableCopy();
+		}
+		Store<W> source = store;
+		assign(position, position + length, i -> checkedValue(source.get(i - position)));
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative size");
+		if (newSize > size && !type.nullSettable) throw new IllegalArgumentException("cannot increase size, null not settable");
+		FrameOfReferenceStore<V> copy = newCopy(newSize, true);
+		long[] values = new long[BLOCK_SIZE];
+		for (int b = 0; b < copy.blocks.length; b++) {
+			int length = copy.blockLength(b);
+			if (b >= blocks.length) {
+				copy.constant(b, toLong(type.nullValue));
+			} else if (length == blockLength(b)) {
+				copy.copyBlock(b, this, blocks[b].mutableCopy());
+			} else {
+				// the block is truncated or extended
+				int old = decode(b, values);
+				for (int i = old; i < length; i++) {
+					values[i] = toLong(type.nullValue);
+				}
+				copy.encode(b, values, length);
+			}
+		}
+		return copy;
+	}
+
+	// iteration
+
+	@Override
+	public void forEach(Consumer<? super V> action) {
+		long[] values = new long[BLOCK_SIZE];
+		for (int b = 0; b < blocks.length; b++) {
+			int length = decode(b, values);
+			for (int i = 0; i < length; i++) {
+				action.accept(toValue(values[i]));
+			}
+		}
+	}
+
+	@Override
+	public void forEach(BiConsumer<Integer, ? super V> action) {
+		long[] values = new long[BLOCK_SIZE];
+		for (int b = 0; b < blocks.length; b++) {
+			int length = decode(b, values);
+			int offset = b << BLOCK_BITS;
+			for (int i = 0; i < length; i++) {
+				action.accept(offset + i, toValue(values[i]));
+			}
+		}
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return copy(true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return copy(false);
+	}
+
+	// abstract store methods
+
+	@Override
+	boolean fastFill(int from, int to, V value) {
+		if (value == null) {
+			if (!type.nullSettable) return false;
+			value = type.nullValue;
+		}
+		fillImpl(from, to, toLong(value));
+		return true;
+	}
+
+	// for extension
+
+	abstract long toLong(V value);
+
+	abstract V toValue(long value);
+
+	abstract FrameOfReferenceStore<V> newCopy(int newSize, boolean mutable);
+
+	// helper methods
+
+	void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	void checkBulk(int from, Object array, int offset, int length) {
+		StoreAccessors.checkArray(array, offset, length);
+		StoreAccessors.checkRange(size, from, length);
+	}
+
+	long checkedValue(V value) {
+		if (value == null) {
+			if (!type.nullSettable) StoreType.failNull();
+			value = type.nullValue;
+		} else if (!type.checkValue(value)) {
+			throw new IllegalArgumentException("invalid value");
+		}
+		return toLong(value);
+	}
+
+	// note: caller responsible for checking index
+	long getImpl(int index) {
+		int b = index >>> BLOCK_BITS;
+		int j = index & BLOCK_MASK;
+		long value = bases[b];
+		if (delta) {
+			for (int i = 0; i <= j; i++) {
+				value += unzigzag(code(b, i));
+			}
+			return value;
+		}
+		return value + code(b, j);
+	}
+
+	// note: caller responsible for checking index and mutability, returns the previous value
+	long setImpl(int index, long value) {
+		int b = index >>> BLOCK_BITS;
+		int j = index & BLOCK_MASK;
+		int width = widths[b];
+		long previous = bases[b];
+		if (delta) {
+			for (int i = 0; i < j; i++) {
+				previous += unzigzag(code(b, i));
+			}
+			// the code of the value is relative to the value that precedes it
+			long preceding = previous;
+			previous += unzigzag(code(b, j));
+			long code = zigzag(value - preceding);
+			boolean last = j + 1 == blockLength(b);
+			long next = last ? 0L : zigzag(previous + unzigzag(code(b, j + 1)) - value);
+			if (fits(code, width) && (last || fits(next, width))) {
+				if (width == 0) return previous;
+				blocks[b].setBits(j * width, code, width);
+				if (!last) blocks[b].setBits((j + 1) * width, next, width);
+				return previous;
+			}
+		} else {
+			long code = value - previous;
+			previous += code(b, j);
+			if (fits(code, width)) {
+				if (width > 0) blocks[b].setBits(j * width, code, width);
+				return previous;
+			}
+		}
+		// the value cannot be encoded in the block, so it is repacked
+		long[] values = new long[BLOCK_SIZE];
+		int length = decode(b, values);
+		values[j] = value;
+		encode(b, values, length);
+		return previous;
+	}
+
+	// note: caller responsible for checking range and mutability
+	void fillImpl(int from, int to, long value) {
+		assign(from, to, i -> value);
+	}
+
+	// decodes values in a range a block at a time
+	// note: caller responsible for checking range
+	void getImpl(int from, int to, LongSink sink) {
+		long[] values = new long[BLOCK_SIZE];
+		while (from < to) {
+			int b = from >>> BLOCK_BITS;
+			int start = b << BLOCK_BITS;
+			int limit = Math.min(to, start + decode(b, values));
+			for (int i = from; i < limit; i++) {
+				sink.accept(i, values[i - start]);
+			}
+			from = limit;
+		}
+	}
+
+	// assigns values to a range of indices a block at a time
+	void assign(int from, int to, IntToLongFunction source) {
+		long[] values = new long[BLOCK_SIZE];
+		while (from < to) {
+			int b = from >>> BLOCK_BITS;
+			int start = b << BLOCK_BITS;
+			int length = blockLength(b);
+			int limit = Math.min(to, start + length);
+			// no need to decode blocks that are completely overwritten
+			if (from > start || limit < start + length) decode(b, values);
+			for (int i = from; i < limit; i++) {
+				values[i - start] = source.applyAsLong(i);
+			}
+			encode(b, values, length);
+			from = limit;
+		}
+	}
+
+	// private helper methods
+
+	private int blockLength(int block) {
+		return Math.min(BLOCK_SIZE, size - (block << BLOCK_BITS));
+	}
+
+	private long code(int block, int index) {
+		int width = widths[block];
+		return width == 0 ? 0L : blocks[block].getBits(index * width, width);
+	}
+
+	// decodes the values of a block into the array, returning the number of values in the block
+	private int decode(int block, long[] values) {
+		int length = blockLength(block);
+		int width = widths[block];
+		long base = bases[block];
+		if (width == 0) {
+			for (int i = 0; i < length; i++) {
+				values[i] = base;
+			}
+		} else if (delta) {
+			BitStore bits = blocks[block];
+			long value = base;
+			for (int i = 0; i < length; i++) {
+				value += unzigzag(bits.getBits(i * width, width));
+				values[i] = value;
+			}
+		} else {
+			BitStore bits = blocks[block];
+			for (int i = 0; i < length; i++) {
+				values[i] = base + bits.getBits(i * width, width);
+			}
+		}
+		return length;
+	}
+
+	// encodes the values into a block using the least number of bits
+	private void encode(int block, long[] values, int length) {
+		long base;
+		long bound = 0L;
+		if (delta) {
+			base = values[0];
+			for (int i = 1; i < length; i++) {
+				bound |= zigzag(values[i] - values[i - 1]);
+			}
+		} else {
+			long min = values[0];
+			long max = min;
+			for (int i = 1; i < length; i++) {
+				long value = values[i];
+				if (value < min) min = value;
+				else if (value > max) max = value;
+			}
+			base = min;
+			bound = max - min;
+		}
+		int width = 64 - Long.numberOfLeadingZeros(bound);
+		BitStore bits = Bits.store(length * width);
+		if (width > 0) {
+			for (int i = 0; i < length; i++) {
+				long code = delta ? zigzag(i == 0 ? 0L : values[i] - values[i - 1]) : values[i] - base;
+				bits.setBits(i * width, code, width);
+			}
+		}
+		bases[block] = base;
+		widths[block] = (byte) width;
+		blocks[block] = bits;
+	}
+
+	private void constant(int block, long value) {
+		bases[block] = value;
+		widths[block] = 0;
+		blocks[block] = Bits.store(0);
+	}
+
+	private void copyBlock(int block, FrameOfReferenceStore<V> that, BitStore bits) {
+		bases[block] = that.bases[block];
+		widths[block] = that.widths[block];
+		blocks[block] = bits;
+	}
+
+	private FrameOfReferenceStore<V> copy(boolean mutable) {
+		FrameOfReferenceStore<V> copy = newCopy(size, mutable);
+		for (int b = 0; b < blocks.length; b++) {
+			copy.copyBlock(b, this, mutable ? blocks[b].mutableCopy() : blocks[b].immutableCopy());
+		}
+		return copy;
+	}
+
+	// inner classes
+
+	interface LongSink {
+		void accept(int index, long value);
+	}
+
+	static final class IntegerStore extends FrameOfReferenceStore<Integer> implements StoreInts {
+
+		IntegerStore(StoreType<Integer> type, boolean delta, int size, boolean mutable) {
+			super(type, delta, size, mutable);
+		}
+
+		@Override
+		long toLong(Integer value) {
+			return value;
+		}
+
+		@Override
+		Integer toValue(long value) {
+			return (int) value;
+		}
+
+		@Override
+		IntegerStore newCopy(int newSize, boolean mutable) {
+			return new IntegerStore(type, delta, newSize, mutable);
+		}
+
+		// store ints
+
+		@Override
+		public boolean isInt(int index) {
+			checkIndex(index);
+			return true;
+		}
+
+		@Override
+		public int getInt(int index) {
+			checkIndex(index);
+			return (int) getImpl(index);
+		}
+
+		@Override
+		public void setInt(int index, int value) {
+			checkMutable();
+			checkIndex(index);
+			setImpl(index, value);
+		}
+
+		@Override
+		public void getInts(int from, int[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			getImpl(from, from + length, (i, v) -> dest[offset + i - from] = (int) v);
+		}
+
+		@Override
+		public void setInts(int from, int[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			assign(from, from + length, i -> src[offset + i - from]);
+		}
+	}
+
+	static final class LongStore extends FrameOfReferenceStore<Long> implements StoreLongs {
+
+		LongStore(StoreType<Long> type, boolean delta, int size, boolean mutable) {
+			super(type, delta, size, mutable);
+		}
+
+		@Override
+		long toLong(Long value) {
+			return value;
+		}
+
+		@Override
+		Long toValue(long value) {
+			return value;
+		}
+
+		@Override
+		LongStore newCopy(int newSize, boolean mutable) {
+			return new LongStore(type, delta, newSize, mutable);
+		}
+
+		// store longs
+
+		@Override
+		public boolean isLong(int index) {
+			checkIndex(index);
+			return true;
+		}
+
+		@Override
+		public long getLong(int index) {
+			checkIndex(index);
+			return getImpl(index);
+		}
+
+		@Override
+		public void setLong(int index, long value) {
+			checkMutable();
+			checkIndex(index);
+			setImpl(index, value);
+		}
+
+		@Override
+		public void getLongs(int from, long[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			getImpl(from, from + length, (i, v) -> dest[offset + i - from] = v);
+		}
+
+		@Override
+		public void setLongs(int from, long[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			assign(from, from + length, i -> src[offset + i - from]);
+		}
+	}
+
+}
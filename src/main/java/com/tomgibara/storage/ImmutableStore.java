@@ -20,7 +20,7 @@ import com.tomgibara.bits.BitStore;
 
 final class ImmutableStore<V> extends AbstractStore<V> {
 
-	private Store<V> store;
+	final Store<V> store;
 
 	ImmutableStore(Store<V> store) {
 		this.store = store;
@@ -66,4 +66,11 @@ final class ImmutableStore<V> extends AbstractStore<V> {
 		return store.population();
 	}
 
+	// package methods
+
+	@Override
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		return store instanceof AbstractStore && ((AbstractStore<V>) store).aggregate(from, to, aggregator);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.tomgibara.bits.BitStore;
+
+// stores values in memory mapped files, prefixed with a header that describes the store
+// each storage maps a single store, since creating another would truncate the file beneath it
+final class MappedStorage<V> implements Storage<V> {
+
+	// header layout
+	// 0: magic (int)
+	// 4: version (byte)
+	// 5: value type hash (byte)
+	// 6: flags (byte)
+	// 7: unused (byte)
+	// 8: size (int)
+	// 12: range of packed values, or zero (int)
+	// 16: encoded null value (long)
+	// 24: unused (long)
+
+	private static final int MAGIC = 0x53544f52; // STOR
+	private static final byte VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	private static final int FLAG_NULL_SETTABLE = 1;
+	private static final int FLAG_NULL_GETTABLE = 2;
+	private static final int FLAG_PACKED        = 4;
+
+	// data is always little endian so that files are portable between platforms
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static <V> Store<V> open(StoreType<V> type, Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long length = channel.size();
+			if (length < HEADER_SIZE) throw new IllegalArgumentException("file too short");
+			if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("file too long");
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0L, length);
+			if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("file does not contain a store");
+			if (buffer.get(4) != VERSION) throw new IllegalArgumentException("unsupported store version");
+			int flags = buffer.get(6);
+			int size = buffer.getInt(8);
+			int range = buffer.getInt(12);
+			boolean packed = (flags & FLAG_PACKED) != 0;
+			if (
+					buffer.get(5) != Stores.hash(type.valueType) ||
+					((flags & FLAG_NULL_SETTABLE) != 0) != type.nullSettable ||
+					((flags & FLAG_NULL_GETTABLE) != 0) != type.nullGettable ||
+					packed != (range > 0) ||
+					buffer.getLong(16) != encode(type.nullValue)
+				) throw new IllegalArgumentException("file does not match store type");
+			MappedStorage<V> storage = new MappedStorage<>(type, file, range);
+			if (size < 0 || storage.length(size) > length) throw new IllegalArgumentException("file truncated");
+			return storage.wrap(buffer, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static long encode(Object value) {
+		if (value == null) return 0L;
+		if (value instanceof Boolean) return ((Boolean) value) ? 1L : 0L;
+		if (value instanceof Character) return (Character) value;
+		if (value instanceof Float) return Float.floatToRawIntBits((Float) value);
+		if (value instanceof Double) return Double.doubleToRawLongBits((Double) value);
+		return ((Number) value).longValue();
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7L) & ~7L;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, long offset, long length) {
+		ByteBuffer dup = buffer.duplicate();
+		((Buffer) dup).position((int) offset);
+		((Buffer) dup).limit((int) (offset + length));
+		return dup.slice().order(ORDER);
+	}
+
+	private final StoreType<V> type;
+	private final Path file;
+	// zero if values are not packed
+	private final int range;
+	// set once the file has been mapped to a store
+	private final AtomicBoolean mapped = new AtomicBoolean();
+
+	MappedStorage(StoreType<V> type, Path file, int range) {
+		this.type = type;
+		this.file = file;
+		this.range = range;
+	}
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public Store<V> newStore(int size, V initialValue) throws IllegalArgumentException {
+		if (size < 0) throw new IllegalArgumentException("negative size");
+		if (initialValue == null && !type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+		long length = length(size);
+		if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("size too large");
+		if (!mapped.compareAndSet(false, true)) throw new IllegalStateException("storage already mapped to a store");
+		Store<V> store;
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0L, length);
+			int flags = 0;
+			if (type.nullSettable) flags |= FLAG_NULL_SETTABLE;
+			if (type.nullGettable) flags |= FLAG_NULL_GETTABLE;
+			if (range > 0) flags |= FLAG_PACKED;
+			buffer.putInt(0, MAGIC);
+			buffer.put(4, VERSION);
+			buffer.put(5, (byte) Stores.hash(type.valueType));
+			buffer.put(6, (byte) flags);
+			buffer.putInt(8, size);
+			buffer.putInt(12, range);
+			buffer.putLong(16, encode(type.nullValue));
+			store = wrap(buffer, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// a newly mapped file is zeroed, which is correct for nullable stores
+		if (initialValue == null) initialValue = type.nullValue;
+		if (initialValue != null && size > 0) store.fill(initialValue);
+		return store;
+	}
+
+	// private helper methods
+
+	private long valuesLength(int size) {
+		if (range == 0) return (long) size * BufferStore.width(type.valueType);
+		long bits = (long) size * SmallValueStore.linearBitsPerValue(range, type.nullGettable);
+		// packed values must be addressable by a single bit store
+		if (bits > Integer.MAX_VALUE) return Long.MAX_VALUE >> 1;
+		return align(bits + 7L >> 3);
+	}
+
+	private long populationLength(int size) {
+		return range == 0 && type.nullGettable ? align(size + 7L >> 3) : 0L;
+	}
+
+	private long length(int size) {
+		return HEADER_SIZE + align(valuesLength(size)) + populationLength(size);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Store<V> wrap(ByteBuffer buffer, int size) {
+		long valuesLength = valuesLength(size);
+		ByteBuffer values = slice(buffer, HEADER_SIZE, valuesLength);
+		if (range > 0) {
+			int bitsPerValue = SmallValueStore.linearBitsPerValue(range, type.nullGettable);
+			BitStore bits = new BufferBitStore(values.asLongBuffer(), size * bitsPerValue, true);
+			return (Store<V>) SmallValueStore.newLinearStore(range, (StoreType<Integer>) type, size, bits);
+		}
+		BitStore populated;
+		int count;
+		if (type.nullGettable) {
+			ByteBuffer words = slice(buffer, HEADER_SIZE + align(valuesLength), populationLength(size));
+			populated = new BufferBitStore(words.asLongBuffer(), size, true);
+			count = populated.ones().count();
+		} else {
+			populated = null;
+			count = size;
+		}
+		return BufferStore.newStore(type, values, populated, count, true);
+	}
+
+}
@@ -18,6 +18,7 @@ package com.tomgibara.storage;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Comparator;
 
 // must be null allowed
 class NullArrayStore<V> extends AbstractStore<V> {
@@ -106,6 +107,8 @@ class NullArrayStore<V> extends AbstractStore<V> {
 
 	final V[] values;
 	int count;
+	// created on demand
+	private RankIndex index = null;
 
 	@SuppressWarnings("unchecked")
 	NullArrayStore(StoreType<V> type, int size, V initialValue) {
@@ -163,6 +166,7 @@ class NullArrayStore<V> extends AbstractStore<V> {
 		values[index] = value;
 		if (old != null) count --;
 		if (value != null) count ++;
+		if (this.index != null && (old == null) != (value == null)) this.index.update(index, value != null);
 		return old;
 	}
 
@@ -170,17 +174,27 @@ class NullArrayStore<V> extends AbstractStore<V> {
 	public void clear() {
 		Arrays.fill(values, null);
 		count = 0;
+		invalidateIndex();
 	}
 
 	@Override
 	public void fill(V value) {
 		Arrays.fill(values, value);
 		count = value == null ? 0 : values.length;
+		invalidateIndex();
 	}
 
 	@Override
 	public boolean compact() {
-		return Stores.compact(values, count);
+		boolean compacted = Stores.compact(values, count);
+		if (compacted) invalidateIndex();
+		return compacted;
+	}
+
+	@Override
+	public PopulationIndex populationIndex() {
+		if (index == null) index = new RankIndex(this);
+		return index;
 	}
 
 	@Override
@@ -218,6 +232,50 @@ class NullArrayStore<V> extends AbstractStore<V> {
 				values[index + i] = w;
 			}
 		}
+		invalidateIndex();
+	}
+
+	@Override
+	public void parallelFill(V value) {
+		Stores.inParallel(0, values.length, (from, to) -> {
+			Arrays.fill(values, from, to, value);
+			return 0;
+		});
+		count = value == null ? 0 : values.length;
+		invalidateIndex();
+	}
+
+	@Override
+	public <W extends V> void parallelSetStore(int position, Store<W> store) {
+		int length = checkSetStore(position, store);
+		// partitions of a copy within the same array could overwrite their sources
+		Store<W> source = Stores.underlying(store) == this ? store.immutableCopy() : store;
+		// the count cannot be maintained concurrently, so each partition returns its change
+		count += Stores.inParallel(position, position + length, (from, to) -> {
+			int delta = -count(from, to - from);
+			for (int i = from; i < to; i++) {
+				W w = source.get(i - position);
+				values[i] = w;
+				if (w != null) delta++;
+			}
+			return delta;
+		});
+		invalidateIndex();
+	}
+
+	@Override
+	public void sort(Comparator<? super V> comparator) {
+		// nulls are moved to the end of the array
+		Stores.compact(values, count);
+		Arrays.sort(values, 0, count, comparator);
+		invalidateIndex();
+	}
+
+	@Override
+	public void parallelSort() {
+		Stores.compact(values, count);
+		Arrays.parallelSort(values, 0, count, null);
+		invalidateIndex();
 	}
 
 	// mutability
@@ -244,6 +302,7 @@ class NullArrayStore<V> extends AbstractStore<V> {
 			Arrays.fill(values, from, to, value);
 			if (value != null) count += length;
 		}
+		invalidateIndex();
 		return true;
 	}
 
@@ -255,6 +314,10 @@ class NullArrayStore<V> extends AbstractStore<V> {
 
 	// private helper methods
 
+	private void invalidateIndex() {
+		if (index != null) index.invalidate();
+	}
+
 	private int count(int index, int length) {
 		int limit = index + length;
 		int count = 0;
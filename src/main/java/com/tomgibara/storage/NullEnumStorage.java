@@ -16,6 +16,8 @@
  */
 package com.tomgibara.storage;
 
+import java.util.Comparator;
+
 import com.tomgibara.storage.SmallValueStore.SmallValueStorage;
 
 class NullEnumStorage<E extends Enum<E>> implements Storage<E> {
@@ -112,6 +114,32 @@ class NullEnumStorage<E extends Enum<E>> implements Storage<E> {
 			return new NullEnumStore(store.resizedCopy(newSize));
 		}
 
+		// enums are naturally ordered by ordinal, with nulls (recorded as zero) last
+
+		@Override
+		public void sort(Comparator<? super E> comparator) {
+			if (comparator == null) {
+				store.countingSort(true);
+			} else {
+				super.sort(comparator);
+			}
+		}
+
+		@Override
+		public void parallelSort() {
+			store.countingSort(true);
+		}
+
+		@Override
+		public Store<Integer> sortIndices(Comparator<? super E> comparator) {
+			return comparator == null ? store.countingSortIndices(true) : super.sortIndices(comparator);
+		}
+
+		@Override
+		int search(int from, int to, E key, int mode) {
+			return key == null ? super.search(from, to, key, mode) : store.searchImpl(from, to, key.ordinal(), mode, true);
+		}
+
 		// transposable methods
 
 		@Override
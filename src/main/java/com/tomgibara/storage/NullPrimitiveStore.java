@@ -19,9 +19,18 @@ package com.tomgibara.storage;
 import static com.tomgibara.storage.Stores.immutableException;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
 
 import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.BitStore.Matches;
 import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.IntDoubleConsumer;
+import com.tomgibara.storage.StoreAccessors.IntIntConsumer;
+import com.tomgibara.storage.StoreAccessors.IntLongConsumer;
+import com.tomgibara.storage.StoreAccessors.StoreDoubles;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+import com.tomgibara.storage.StoreAccessors.StoreLongs;
 
 abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 
@@ -132,6 +141,8 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 
 	int count;
 	BitStore populated;
+	// created on demand
+	private RankIndex index = null;
 
 	protected NullPrimitiveStore(BitStore populated, int count) {
 		this.populated = populated;
@@ -163,6 +174,7 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 	public void clear() {
 		populated.clear();
 		count = 0;
+		invalidateIndex();
 	}
 
 	@Override
@@ -175,6 +187,7 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			fillImpl(value);
 			populated.fill();
 			count = populated.size();
+			invalidateIndex();
 		}
 	}
 
@@ -195,6 +208,7 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			if (value == null) {
 				populated.setBit(index, false);
 				count --;
+				if (this.index != null) this.index.update(index, false);
 			} else {
 				setImpl(index, value);
 			}
@@ -203,6 +217,7 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			setImpl(index, value);
 			populated.setBit(index, true);
 			count ++;
+			if (this.index != null) this.index.update(index, true);
 		}
 		return null;
 	}
@@ -224,17 +239,144 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			to = range.to;
 		}
 		if (store.getClass() == this.getClass()) {
-			setStoreImpl(position, (NullPrimitiveStore<V>)store, from, to);
+			// population is copied wholesale, so count is adjusted by the change over the range
+			NullPrimitiveStore<V> that = (NullPrimitiveStore<V>) store;
+			count += that.populated.range(from, to).ones().count() - populated.range(position, position + to - from).ones().count();
+			setStoreImpl(position, that, from, to);
+			invalidateIndex();
 		} else {
 			setStoreImpl(position, store, from, to);
 		}
 	}
 
+	@Override
+	public void parallelFill(V value) {
+		if (!populated.isMutable()) throw immutableException();
+		// partitions are aligned so that no two share a word of the population
+		Stores.inParallel(0, size(), (from, to) -> {
+			if (value == null) {
+				populated.range(from, to).clear();
+			} else {
+				fillImpl(from, to, value);
+				populated.range(from, to).fill();
+			}
+			return 0;
+		});
+		count = value == null ? 0 : size();
+		invalidateIndex();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <W extends V> void parallelSetStore(int position, Store<W> store) {
+		if (!populated.isMutable()) throw immutableException();
+		int length = checkSetStore(position, store);
+		// partitions of a copy within the same store could overwrite their sources
+		if (sharesValues(store)) store = store.immutableCopy();
+		int offset;
+		if (store instanceof RangeStore<?>) {
+			RangeStore<W> range = (RangeStore<W>) store;
+			store = range.store;
+			offset = range.from - position;
+		} else {
+			offset = -position;
+		}
+		Store<W> source = store;
+		if (source.getClass() == this.getClass()) {
+			Stores.inParallel(position, position + length, (from, to) -> {
+				setStoreImpl(from, (NullPrimitiveStore<V>) source, from + offset, to + offset);
+				return 0;
+			});
+		} else {
+			// the count is not maintained by the partitions
+			Stores.inParallel(position, position + length, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					W w = source.get(i + offset);
+					if (w == null) {
+						populated.setBit(i, false);
+					} else {
+						setImpl(i, w);
+						populated.setBit(i, true);
+					}
+				}
+				return 0;
+			});
+		}
+		count = populated.ones().count();
+		invalidateIndex();
+	}
+
+	@Override
+	public void sort(Comparator<? super V> comparator) {
+		if (comparator == null) {
+			sortImpl(false);
+		} else {
+			super.sort(comparator);
+		}
+	}
+
+	@Override
+	public void parallelSort() {
+		sortImpl(true);
+	}
+
+	@Override
+	public Store<Integer> sortIndices(Comparator<? super V> comparator) {
+		return comparator == null ? Stores.sortIndices(values(), size(), populated) : super.sortIndices(comparator);
+	}
+
 	@Override
 	public BitStore population() {
 		return populated.immutableView();
 	}
 
+	@Override
+	public PopulationIndex populationIndex() {
+		// the population of immutable views may change without the index being informed
+		if (!populated.isMutable()) return super.populationIndex();
+		if (index == null) index = new RankIndex(this);
+		return index;
+	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return new PopulationSpliterator<>(this, populated);
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		int size = populated.size();
+		int hashCode = 1;
+		// consume the population a word at a time
+		for (int i = 0; i < size; i += 64) {
+			int length = Math.min(64, size - i);
+			long bits = populated.getBits(i, length);
+			for (int j = 0; j < length; j++) {
+				hashCode = 31 * hashCode + ((bits & (1L << j)) == 0L ? 0 : hashImpl(i + j));
+			}
+		}
+		return hashCode;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj == null || obj.getClass() != this.getClass()) return super.equals(obj);
+		NullPrimitiveStore<V> that = (NullPrimitiveStore<V>) obj;
+		int size = populated.size();
+		if (size != that.populated.size()) return false;
+		if (!this.populated.equals().store(that.populated)) return false;
+		// values at unpopulated indices are arbitrary, so only compare populated values
+		Matches ones = populated.ones();
+		for (int index = ones.next(0); index < size; index = ones.next(index + 1)) {
+			if (!equalsImpl(that, index)) return false;
+		}
+		return true;
+	}
+
 	// abstract store methods
 
 	@Override
@@ -257,13 +399,53 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			}
 			count = populated.ones().count();
 		}
+		invalidateIndex();
+		return true;
+	}
+
+	@Override
+	int search(int from, int to, V key, int mode) {
+		// in a sorted store the populated indices precede the nulls, so locate the first null
+		int lo = from;
+		int end = to;
+		while (lo < end) {
+			int mid = (lo + end) >>> 1;
+			if (populated.getBit(mid)) lo = mid + 1; else end = mid;
+		}
+		return Stores.searchArray(values(), from, end, key, mode);
+	}
+
+	@Override
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		Object values = values();
+		// an empty range establishes whether the values are numeric
+		if (!aggregator.accept(values, from, from)) return false;
+		// aggregate each run of populated values directly from the array
+		BitStore bits = populated.range(from, to);
+		Matches ones = bits.ones();
+		Matches zeros = bits.zeros();
+		int size = to - from;
+		for (int i = ones.next(0); i < size; i = ones.next(i)) {
+			int j = zeros.next(i);
+			aggregator.accept(values, from + i, from + j);
+			if (j == size) break;
+			i = j;
+		}
 		return true;
 	}
 
 	// for extension
 
+	abstract protected Object values();
+
 	abstract protected V getImpl(int index);
 
+	// consistent with the hash code of the boxed value
+	abstract protected int hashImpl(int index);
+
+	// consistent with the equality of the boxed values
+	abstract protected boolean equalsImpl(NullPrimitiveStore<V> that, int index);
+
 	abstract protected void setImpl(int index, V value);
 
 	abstract protected void fillImpl(V value);
@@ -296,6 +478,54 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 		return duplicate(populated.immutableCopy(), true);
 	}
 
+	// private helper methods
+
+	// whether the store is a view of this store, or of another sharing its array
+	private boolean sharesValues(Store<?> store) {
+		Store<?> s = Stores.underlying(store);
+		return s == this || s.getClass() == getClass() && ((NullPrimitiveStore<?>) s).values() == values();
+	}
+
+	// sorts the values in place, moving them before any nulls
+	private void sortImpl(boolean parallel) {
+		if (!populated.isMutable()) throw immutableException();
+		int size = size();
+		Object values = values();
+		// move runs of populated values to the start of the array
+		Matches ones = populated.ones();
+		Matches zeros = populated.zeros();
+		int count = 0;
+		for (int from = ones.next(0); from < size; ) {
+			int to = zeros.next(from);
+			System.arraycopy(values, from, values, count, to - from);
+			count += to - from;
+			from = to < size ? ones.next(to) : size;
+		}
+		Stores.sortArray(values, count, parallel);
+		populated.range(0, count).fill();
+		populated.range(count, size).clear();
+		invalidateIndex();
+	}
+
+	private void invalidateIndex() {
+		if (index != null) index.invalidate();
+	}
+
+	// unboxed accessor helpers
+
+	void checkMutable() {
+		if (!populated.isMutable()) throw immutableException();
+	}
+
+	// records that a value has been assigned at the index
+	void populate(int index) {
+		if (!populated.getBit(index)) {
+			populated.setBit(index, true);
+			count ++;
+			if (this.index != null) this.index.update(index, true);
+		}
+	}
+
 	// inner classes
 
 	final static class ByteStore extends NullPrimitiveStore<Byte> {
@@ -325,11 +555,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.BYTE;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Byte getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Byte.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Byte> that, int index) {
+			ByteStore other = (ByteStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Byte value) {
 			values[index] = value;
@@ -388,11 +634,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.FLOAT;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Float getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Float.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Float> that, int index) {
+			FloatStore other = (FloatStore) that;
+			return Float.floatToIntBits(values[index]) == Float.floatToIntBits(other.values[index]);
+		}
+
 		@Override
 		protected void setImpl(int index, Float value) {
 			values[index] = value;
@@ -452,11 +714,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.CHAR;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Character getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Character.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Character> that, int index) {
+			CharacterStore other = (CharacterStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Character value) {
 			values[index] = value;
@@ -516,11 +794,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.SHORT;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Short getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Short.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Short> that, int index) {
+			ShortStore other = (ShortStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Short value) {
 			values[index] = value;
@@ -553,7 +847,7 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 
 	}
 
-	final static class LongStore extends NullPrimitiveStore<Long> {
+	final static class LongStore extends NullPrimitiveStore<Long> implements StoreLongs {
 
 		private long[] values;
 
@@ -580,11 +874,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.LONG;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Long getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Long.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Long> that, int index) {
+			LongStore other = (LongStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Long value) {
 			values[index] = value;
@@ -615,9 +925,28 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			System.arraycopy(that.values, from, this.values, position, to - from);
 		}
 
+		// store longs
+
+		@Override public boolean isLong(int index) { return !isNull(index); }
+		@Override public long getLong(int index) {
+			if (isNull(index)) throw new RuntimeException("null, not a long");
+			return values[index];
+		}
+		@Override public void setLong(int index, long value) {
+			checkMutable();
+			values[index] = value;
+			populate(index);
+		}
+		@Override public void forEachLong(int from, int to, IntLongConsumer action) {
+			StoreAccessors.checkBounds(size(), from, to);
+			if (from == to) return;
+			Matches ones = populated.ones();
+			for (int i = ones.next(from); i < to; i = ones.next(i + 1)) action.accept(i, values[i]);
+		}
+
 	}
 
-	final static class IntegerStore extends NullPrimitiveStore<Integer> {
+	final static class IntegerStore extends NullPrimitiveStore<Integer> implements StoreInts {
 
 		private int[] values;
 
@@ -644,11 +973,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.INT;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Integer getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Integer.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Integer> that, int index) {
+			IntegerStore other = (IntegerStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Integer value) {
 			values[index] = value;
@@ -679,9 +1024,28 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			System.arraycopy(that.values, from, this.values, position, to - from);
 		}
 
+		// store ints
+
+		@Override public boolean isInt(int index) { return !isNull(index); }
+		@Override public int getInt(int index) {
+			if (isNull(index)) throw new RuntimeException("null, not an int");
+			return values[index];
+		}
+		@Override public void setInt(int index, int value) {
+			checkMutable();
+			values[index] = value;
+			populate(index);
+		}
+		@Override public void forEachInt(int from, int to, IntIntConsumer action) {
+			StoreAccessors.checkBounds(size(), from, to);
+			if (from == to) return;
+			Matches ones = populated.ones();
+			for (int i = ones.next(from); i < to; i = ones.next(i + 1)) action.accept(i, values[i]);
+		}
+
 	}
 
-	final static class DoubleStore extends NullPrimitiveStore<Double> {
+	final static class DoubleStore extends NullPrimitiveStore<Double> implements StoreDoubles {
 
 		private double[] values;
 
@@ -708,11 +1072,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.DOUBLE;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Double getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Double.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Double> that, int index) {
+			DoubleStore other = (DoubleStore) that;
+			return Double.doubleToLongBits(values[index]) == Double.doubleToLongBits(other.values[index]);
+		}
+
 		@Override
 		protected void setImpl(int index, Double value) {
 			values[index] = value;
@@ -743,6 +1123,25 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			System.arraycopy(that.values, from, this.values, position, to - from);
 		}
 
+		// store doubles
+
+		@Override public boolean isDouble(int index) { return !isNull(index); }
+		@Override public double getDouble(int index) {
+			if (isNull(index)) throw new RuntimeException("null, not a double");
+			return values[index];
+		}
+		@Override public void setDouble(int index, double value) {
+			checkMutable();
+			values[index] = value;
+			populate(index);
+		}
+		@Override public void forEachDouble(int from, int to, IntDoubleConsumer action) {
+			StoreAccessors.checkBounds(size(), from, to);
+			if (from == to) return;
+			Matches ones = populated.ones();
+			for (int i = ones.next(from); i < to; i = ones.next(i + 1)) action.accept(i, values[i]);
+		}
+
 	}
 
 	final static class BooleanStore extends NullPrimitiveStore<Boolean> {
@@ -772,11 +1171,27 @@ abstract class NullPrimitiveStore<V> extends AbstractStore<V> {
 			return StoreType.BOOLEAN;
 		}
 
+		@Override
+		protected Object values() {
+			return values;
+		}
+
 		@Override
 		protected Boolean getImpl(int index) {
 			return values[index];
 		}
 
+		@Override
+		protected int hashImpl(int index) {
+			return Boolean.hashCode(values[index]);
+		}
+
+		@Override
+		protected boolean equalsImpl(NullPrimitiveStore<Boolean> that, int index) {
+			BooleanStore other = (BooleanStore) that;
+			return values[index] == other.values[index];
+		}
+
 		@Override
 		protected void setImpl(int index, Boolean value) {
 			values[index] = value;
@@ -59,6 +59,21 @@ abstract class NumberAccessor<P> {
 		return fn;
 	}
 
+	void checkBulk(int from, Object array, int offset, int length) {
+		StoreAccessors.checkArray(array, offset, length);
+		StoreAccessors.checkRange(store.size(), from, length);
+	}
+
+	// null if the value is not a number
+	Number numberAt(int index) {
+		Object value = store.get(index);
+		return value instanceof Number ? (Number) value : null;
+	}
+
+	void checkBounds(int from, int to) {
+		StoreAccessors.checkBounds(store.size(), from, to);
+	}
+
 	/* Ugly, but prechecked during construction */
 	@SuppressWarnings({ "unchecked" })
 	void set(int index, P value) {
@@ -76,6 +91,14 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isByte(int index) { return isAccessible(index); }
 		@Override public byte getByte(int index) { return get(index).byteValue(); }
 		@Override public void setByte(int index, byte value) { set(index, value); }
+		@Override public void getBytes(int from, byte[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getByte(from + i);
+		}
+		@Override public void setBytes(int from, byte[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
 
 		@Override Function<Byte, Object> identity() { return b -> b; }
 
@@ -101,6 +124,14 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isShort(int index) { return isAccessible(index); }
 		@Override public short getShort(int index) { return get(index).shortValue(); }
 		@Override public void setShort(int index, short value) { set(index, value); }
+		@Override public void getShorts(int from, short[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getShort(from + i);
+		}
+		@Override public void setShorts(int from, short[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
 
 		@Override Function<Short, Object> identity() { return b -> b; }
 
@@ -126,6 +157,21 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isInt(int index) { return isAccessible(index); }
 		@Override public int getInt(int index) { return get(index).intValue(); }
 		@Override public void setInt(int index, int value) { set(index, value); }
+		@Override public void getInts(int from, int[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getInt(from + i);
+		}
+		@Override public void setInts(int from, int[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
+		@Override public void forEachInt(int from, int to, StoreAccessors.IntIntConsumer action) {
+			checkBounds(from, to);
+			for (int i = from; i < to; i++) {
+				Number value = numberAt(i);
+				if (value != null) action.accept(i, value.intValue());
+			}
+		}
 
 		@Override Function<Integer, Object> identity() { return b -> b; }
 
@@ -151,6 +197,21 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isLong(int index) { return isAccessible(index); }
 		@Override public long getLong(int index) { return get(index).longValue(); }
 		@Override public void setLong(int index, long value) { set(index, value); }
+		@Override public void getLongs(int from, long[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getLong(from + i);
+		}
+		@Override public void setLongs(int from, long[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
+		@Override public void forEachLong(int from, int to, StoreAccessors.IntLongConsumer action) {
+			checkBounds(from, to);
+			for (int i = from; i < to; i++) {
+				Number value = numberAt(i);
+				if (value != null) action.accept(i, value.longValue());
+			}
+		}
 
 		@Override Function<Long, Object> identity() { return b -> b; }
 
@@ -176,6 +237,14 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isFloat(int index) { return isAccessible(index); }
 		@Override public float getFloat(int index) { return get(index).floatValue(); }
 		@Override public void setFloat(int index, float value) { set(index, value); }
+		@Override public void getFloats(int from, float[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getFloat(from + i);
+		}
+		@Override public void setFloats(int from, float[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
 
 		@Override Function<Float, Object> identity() { return b -> b; }
 
@@ -201,6 +270,21 @@ abstract class NumberAccessor<P> {
 		@Override public boolean isDouble(int index) { return isAccessible(index); }
 		@Override public double getDouble(int index) { return get(index).doubleValue(); }
 		@Override public void setDouble(int index, double value) { set(index, value); }
+		@Override public void getDoubles(int from, double[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			for (int i = 0; i < length; i++) dest[offset + i] = getDouble(from + i);
+		}
+		@Override public void setDoubles(int from, double[] src, int offset, int length) {
+			checkBulk(from, src, offset, length);
+			for (int i = 0; i < length; i++) set(from + i, src[offset + i]);
+		}
+		@Override public void forEachDouble(int from, int to, StoreAccessors.IntDoubleConsumer action) {
+			checkBounds(from, to);
+			for (int i = from; i < to; i++) {
+				Number value = numberAt(i);
+				if (value != null) action.accept(i, value.doubleValue());
+			}
+		}
 
 		@Override Function<Double, Object> identity() { return b -> b; }
 
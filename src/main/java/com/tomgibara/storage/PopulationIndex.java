@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+/**
+ * <p>
+ * Supports efficient rank and select queries over the population of a store;
+ * that is, over the indices at which the store contains non-null values.
+ * Indexes are obtained from {@link Store#populationIndex()}.
+ *
+ * <p>
+ * Ranks and selections are inverse to each other: for every populated index
+ * <code>i</code>, <code>select(rank(i)) == i</code>. Together they allow the
+ * non-null values of a store to be addressed by their position amongst all
+ * non-null values, for example to page through them, without scanning the
+ * store.
+ *
+ * @author Tom Gibara
+ *
+ * @see Store#populationIndex()
+ * @see Store#population()
+ */
+public interface PopulationIndex {
+
+	/**
+	 * The size of the indexed store.
+	 *
+	 * @return the number of indices in the store
+	 */
+	int size();
+
+	/**
+	 * The number of non-null values in the indexed store.
+	 *
+	 * @return the number of populated indices
+	 */
+	int count();
+
+	/**
+	 * The number of non-null values that precede an index.
+	 *
+	 * @param index
+	 *            an index in the range <code>[0, size()]</code>
+	 * @return the number of populated indices less than the supplied index
+	 * @throws IllegalArgumentException
+	 *             if the index is negative or exceeds the store size
+	 */
+	int rank(int index) throws IllegalArgumentException;
+
+	/**
+	 * The index of a non-null value identified by its position amongst all
+	 * non-null values.
+	 *
+	 * @param rank
+	 *            the number of non-null values that precede the required value
+	 * @return the index of the value
+	 * @throws IllegalArgumentException
+	 *             if the rank is negative or not less than {@link #count()}
+	 */
+	int select(int rank) throws IllegalArgumentException;
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.BitStore.Matches;
+
+// visits only the populated positions of a store, splitting by the number of values present
+final class PopulationSpliterator<V> implements Spliterator<V> {
+
+	private static final int CHI = ORDERED | SIZED | SUBSIZED | NONNULL;
+
+	private final Store<V> store;
+	private final BitStore populated;
+	private final Matches ones;
+	private final int to;
+	private int from;
+	// number of populated positions in [from, to)
+	private int remaining;
+
+	// the count is taken from the population, since a store's own count may not track a shared population
+	PopulationSpliterator(Store<V> store, BitStore populated) {
+		this(store, populated, populated.ones(), 0, populated.size(), populated.ones().count());
+	}
+
+	private PopulationSpliterator(Store<V> store, BitStore populated, Matches ones, int from, int to, int remaining) {
+		this.store = store;
+		this.populated = populated;
+		this.ones = ones;
+		this.from = from;
+		this.to = to;
+		this.remaining = remaining;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super V> action) {
+		if (remaining == 0) return false;
+		int index = ones.next(from);
+		from = index + 1;
+		remaining --;
+		action.accept(store.get(index));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super V> action) {
+		for (; remaining > 0; remaining--) {
+			int index = ones.next(from);
+			from = index + 1;
+			action.accept(store.get(index));
+		}
+	}
+
+	@Override
+	public Spliterator<V> trySplit() {
+		if (remaining < 2) return null;
+		int half = remaining >> 1;
+		int mid = select(half);
+		Spliterator<V> prefix = new PopulationSpliterator<>(store, populated, ones, from, mid, half);
+		from = mid;
+		remaining -= half;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return remaining;
+	}
+
+	@Override
+	public int characteristics() {
+		return CHI;
+	}
+
+	// finds the position of the populated index with the specified rank, counting a word at a time
+	private int select(int rank) {
+		int position = from;
+		while (true) {
+			int count = Math.min(64, to - position);
+			long bits = populated.getBits(position, count);
+			int c = Long.bitCount(bits);
+			if (rank < c) {
+				for (; rank > 0; rank--) {
+					bits &= bits - 1L;
+				}
+				return position + Long.numberOfTrailingZeros(bits);
+			}
+			rank -= c;
+			position += count;
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.storage.StoreAccessors.StoreDoubles;
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+import com.tomgibara.storage.StoreAccessors.StoreLongs;
+
+// splits the index range of a store, reading unboxed values through an accessor
+abstract class PrimitiveSpliterator {
+
+	// null if every position is populated
+	final BitStore populated;
+	final int to;
+	int from;
+
+	PrimitiveSpliterator(BitStore populated, int from, int to) {
+		this.populated = populated;
+		this.from = from;
+		this.to = to;
+	}
+
+	public long estimateSize() {
+		return to - from;
+	}
+
+	public int characteristics() {
+		return populated == null ?
+				Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL :
+				Spliterator.ORDERED | Spliterator.NONNULL;
+	}
+
+	// the index of the next populated value, or -1 if there are none remaining
+	int next() {
+		if (populated == null) return from < to ? from++ : -1;
+		while (from < to) {
+			int index = from++;
+			if (populated.getBit(index)) return index;
+		}
+		return -1;
+	}
+
+	// the index at which to split, or from if the range cannot be split
+	int mid() {
+		return to - from < 2 ? from : (from + to) >>> 1;
+	}
+
+	static final class Ints extends PrimitiveSpliterator implements Spliterator.OfInt {
+
+		private final StoreInts ints;
+
+		Ints(StoreInts ints, BitStore populated, int from, int to) {
+			super(populated, from, to);
+			this.ints = ints;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			int index = next();
+			if (index < 0) return false;
+			action.accept(ints.getInt(index));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (int index = next(); index >= 0; index = next()) {
+				action.accept(ints.getInt(index));
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			int mid = mid();
+			if (mid == from) return null;
+			Spliterator.OfInt prefix = new Ints(ints, populated, from, mid);
+			from = mid;
+			return prefix;
+		}
+
+	}
+
+	static final class Longs extends PrimitiveSpliterator implements Spliterator.OfLong {
+
+		private final StoreLongs longs;
+
+		Longs(StoreLongs longs, BitStore populated, int from, int to) {
+			super(populated, from, to);
+			this.longs = longs;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			int index = next();
+			if (index < 0) return false;
+			action.accept(longs.getLong(index));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			for (int index = next(); index >= 0; index = next()) {
+				action.accept(longs.getLong(index));
+			}
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			int mid = mid();
+			if (mid == from) return null;
+			Spliterator.OfLong prefix = new Longs(longs, populated, from, mid);
+			from = mid;
+			return prefix;
+		}
+
+	}
+
+	static final class Doubles extends PrimitiveSpliterator implements Spliterator.OfDouble {
+
+		private final StoreDoubles doubles;
+
+		Doubles(StoreDoubles doubles, BitStore populated, int from, int to) {
+			super(populated, from, to);
+			this.doubles = doubles;
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			int index = next();
+			if (index < 0) return false;
+			action.accept(doubles.getDouble(index));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			for (int index = next(); index >= 0; index = next()) {
+				action.accept(doubles.getDouble(index));
+			}
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			int mid = mid();
+			if (mid == from) return null;
+			Spliterator.OfDouble prefix = new Doubles(doubles, populated, from, mid);
+			from = mid;
+			return prefix;
+		}
+
+	}
+
+}
@@ -19,9 +19,14 @@ package com.tomgibara.storage;
 import static com.tomgibara.storage.Stores.immutableException;
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
+import com.tomgibara.storage.StoreAccessors.IntDoubleConsumer;
+import com.tomgibara.storage.StoreAccessors.IntIntConsumer;
+import com.tomgibara.storage.StoreAccessors.IntLongConsumer;
+import com.tomgibara.storage.StoreAccessors.StoreBooleans;
 import com.tomgibara.storage.StoreAccessors.StoreBytes;
 import com.tomgibara.storage.StoreAccessors.StoreChars;
 import com.tomgibara.storage.StoreAccessors.StoreDoubles;
@@ -226,6 +231,82 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 		}
 	}
 
+	@Override
+	public void parallelFill(V value) {
+		checkMutable();
+		if (value == null && !nullSettable) throw new IllegalStateException("null not supported");
+		Stores.inParallel(0, size(), (from, to) -> {
+			fillImpl(from, to, value);
+			return 0;
+		});
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <W extends V> void parallelSetStore(int position, Store<W> store) {
+		checkMutable();
+		int length = checkSetStore(position, store);
+		// partitions of a copy within the same store could overwrite their sources
+		if (sharesValues(store)) store = store.immutableCopy();
+		int offset;
+		if (store instanceof RangeStore<?>) {
+			RangeStore<W> range = (RangeStore<W>) store;
+			store = range.store;
+			offset = range.from - position;
+		} else {
+			offset = -position;
+		}
+		Store<W> source = store;
+		if (source.getClass() == this.getClass()) {
+			Object values = ((PrimitiveStore<V>) source).values();
+			Stores.inParallel(position, position + length, (from, to) -> {
+				System.arraycopy(values, from + offset, values(), from, to - from);
+				return 0;
+			});
+		} else {
+			Stores.inParallel(position, position + length, (from, to) -> {
+				setStoreImpl(from, source, from + offset, to + offset);
+				return 0;
+			});
+		}
+	}
+
+	@Override
+	public void sort(Comparator<? super V> comparator) {
+		if (comparator == null) {
+			checkMutable();
+			Stores.sortArray(values(), size(), false);
+		} else {
+			super.sort(comparator);
+		}
+	}
+
+	@Override
+	public void parallelSort() {
+		checkMutable();
+		Stores.sortArray(values(), size(), true);
+	}
+
+	@Override
+	public Store<Integer> sortIndices(Comparator<? super V> comparator) {
+		return comparator == null ? Stores.sortIndices(values(), size(), null) : super.sortIndices(comparator);
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		return valuesHashCode();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj != null && obj.getClass() == this.getClass()) return valuesEqual((PrimitiveStore<V>) obj);
+		return super.equals(obj);
+	}
+
 	// abstract store methods
 
 	@Override
@@ -238,6 +319,24 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 		return true;
 	}
 
+	@Override
+	int search(int from, int to, V key, int mode) {
+		return Stores.searchArray(values(), from, to, key, mode);
+	}
+
+	@Override
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		return aggregator.accept(values(), from, to);
+	}
+
+	// private helper methods
+
+	// whether the store is a view of this store, or of another sharing its array
+	private boolean sharesValues(Store<?> store) {
+		Store<?> s = Stores.underlying(store);
+		return s == this || s.getClass() == getClass() && ((PrimitiveStore<?>) s).values() == values();
+	}
+
 	// for extension
 
 	abstract protected Class<?> primitiveType();
@@ -246,6 +345,12 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 
 	abstract protected Object values();
 
+	// consistent with equality of the boxed values, as per Arrays.equals
+	abstract protected boolean valuesEqual(PrimitiveStore<V> that);
+
+	// consistent with hashing the boxed values, as per Arrays.hashCode
+	abstract protected int valuesHashCode();
+
 	abstract protected V getImpl(int index);
 
 	abstract protected void setImpl(int index, V value);
@@ -285,6 +390,11 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 		if (!mutable) throw immutableException();
 	}
 
+	void checkBulk(int from, Object array, int offset, int length) {
+		StoreAccessors.checkArray(array, offset, length);
+		StoreAccessors.checkRange(size(), from, length);
+	}
+
 	// inner classes
 
 	final static class ByteStore extends PrimitiveStore<Byte> implements StoreBytes {
@@ -339,6 +449,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Byte> that) {
+			return Arrays.equals(values, ((ByteStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Byte getImpl(int index) {
 			return values[index];
@@ -387,6 +507,15 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getBytes(int from, byte[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setBytes(int from, byte[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
 	}
 
 	final static class FloatStore extends PrimitiveStore<Float> implements StoreFloats {
@@ -441,6 +570,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Float> that) {
+			return Arrays.equals(values, ((FloatStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Float getImpl(int index) {
 			return values[index];
@@ -489,6 +628,15 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getFloats(int from, float[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setFloats(int from, float[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
 	}
 
 	final static class CharacterStore extends PrimitiveStore<Character> implements StoreChars {
@@ -543,6 +691,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Character> that) {
+			return Arrays.equals(values, ((CharacterStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Character getImpl(int index) {
 			return values[index];
@@ -591,6 +749,15 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getChars(int from, char[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setChars(int from, char[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
 	}
 
 	final static class ShortStore extends PrimitiveStore<Short> implements StoreShorts {
@@ -645,6 +812,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Short> that) {
+			return Arrays.equals(values, ((ShortStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Short getImpl(int index) {
 			return values[index];
@@ -693,6 +870,15 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getShorts(int from, short[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setShorts(int from, short[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
 	}
 
 	final static class LongStore extends PrimitiveStore<Long> implements StoreLongs {
@@ -747,6 +933,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Long> that) {
+			return Arrays.equals(values, ((LongStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Long getImpl(int index) {
 			return values[index];
@@ -800,6 +996,19 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getLongs(int from, long[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setLongs(int from, long[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
+		@Override public void forEachLong(int from, int to, IntLongConsumer action) {
+			StoreAccessors.checkBounds(values.length, from, to);
+			for (int i = from; i < to; i++) action.accept(i, values[i]);
+		}
 	}
 
 	final static class IntegerStore extends PrimitiveStore<Integer> implements StoreInts {
@@ -854,6 +1063,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Integer> that) {
+			return Arrays.equals(values, ((IntegerStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Integer getImpl(int index) {
 			return values[index];
@@ -907,6 +1126,19 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getInts(int from, int[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setInts(int from, int[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
+		@Override public void forEachInt(int from, int to, IntIntConsumer action) {
+			StoreAccessors.checkBounds(values.length, from, to);
+			for (int i = from; i < to; i++) action.accept(i, values[i]);
+		}
 	}
 
 	final static class DoubleStore extends PrimitiveStore<Double> implements StoreDoubles {
@@ -961,6 +1193,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Double> that) {
+			return Arrays.equals(values, ((DoubleStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Double getImpl(int index) {
 			return values[index];
@@ -1014,9 +1256,22 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			checkMutable();
 			values[index] = value;
 		}
+		@Override public void getDoubles(int from, double[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setDoubles(int from, double[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
+		@Override public void forEachDouble(int from, int to, IntDoubleConsumer action) {
+			StoreAccessors.checkBounds(values.length, from, to);
+			for (int i = from; i < to; i++) action.accept(i, values[i]);
+		}
 	}
 
-	final static class BooleanStore extends PrimitiveStore<Boolean> {
+	final static class BooleanStore extends PrimitiveStore<Boolean> implements StoreBooleans {
 
 		private final boolean[] values;
 		private final boolean nullValue;
@@ -1068,6 +1323,16 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return values;
 		}
 
+		@Override
+		protected boolean valuesEqual(PrimitiveStore<Boolean> that) {
+			return Arrays.equals(values, ((BooleanStore) that).values);
+		}
+
+		@Override
+		protected int valuesHashCode() {
+			return Arrays.hashCode(values);
+		}
+
 		@Override
 		protected Boolean getImpl(int index) {
 			return values[index];
@@ -1108,6 +1373,23 @@ abstract class PrimitiveStore<V> extends AbstractStore<V> {
 			return newType(boolean.class, nullSettable, nullValue);
 		}
 
+		// store booleans
+
+		@Override public boolean isBoolean(int index) { return true; }
+		@Override public boolean getBoolean(int index) { return values[index]; }
+		@Override public void setBoolean(int index, boolean value) {
+			checkMutable();
+			values[index] = value;
+		}
+		@Override public void getBooleans(int from, boolean[] dest, int offset, int length) {
+			checkBulk(from, dest, offset, length);
+			System.arraycopy(values, from, dest, offset, length);
+		}
+		@Override public void setBooleans(int from, boolean[] src, int offset, int length) {
+			checkMutable();
+			checkBulk(from, src, offset, length);
+			System.arraycopy(src, offset, values, from, length);
+		}
 	}
 
 }
@@ -116,4 +116,18 @@ final class RangeStore<V> extends AbstractStore<V> {
 	boolean toArray(int from, int to, V[] vs) {
 		return store instanceof AbstractStore && ((AbstractStore<V>) store).toArray(this.from + from, this.from + to, vs);
 	}
+
+	@Override
+	int search(int from, int to, V key, int mode) {
+		if (!(store instanceof AbstractStore)) return Stores.NO_SEARCH;
+		int index = ((AbstractStore<V>) store).search(this.from + from, this.from + to, key, mode);
+		if (index == Stores.NO_SEARCH) return index;
+		// insertion points are encoded as negative values
+		return index < 0 ? index + this.from : index - this.from;
+	}
+
+	@Override
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		return store instanceof AbstractStore && ((AbstractStore<V>) store).aggregate(this.from + from, this.from + to, aggregator);
+	}
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.Arrays;
+
+import com.tomgibara.bits.BitStore;
+
+// indexes population bits with a Fenwick tree of counts over superblocks of words
+final class RankIndex implements PopulationIndex {
+
+	// the number of bits in each superblock
+	private static final int SUPER_BITS = 9;
+	// the number of words in each superblock
+	private static final int SUPER_WORDS = 1 << (SUPER_BITS - 6);
+
+	// an index of the current population of the store which will not be updated
+	static PopulationIndex snapshot(Store<?> store) {
+		RankIndex index = new RankIndex(store);
+		index.refresh();
+		return index;
+	}
+
+	private final Store<?> store;
+	private final int size;
+	private long[] words;
+	// one based, each entry holds the count over a power-of-two range of superblocks
+	private int[] tree;
+	private int count;
+	// true if the index must be rebuilt from the population of the store
+	private boolean stale = true;
+
+	RankIndex(Store<?> store) {
+		this.store = store;
+		size = store.size();
+	}
+
+	// population index methods
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int count() {
+		refresh();
+		return count;
+	}
+
+	@Override
+	public int rank(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index > size) throw new IllegalArgumentException("index too large");
+		refresh();
+		int superblock = index >>> SUPER_BITS;
+		int rank = 0;
+		for (int i = superblock; i > 0; i -= i & -i) {
+			rank += tree[i];
+		}
+		int w = index >>> 6;
+		for (int i = superblock * SUPER_WORDS; i < w; i++) {
+			rank += Long.bitCount(words[i]);
+		}
+		int bits = index & 63;
+		if (bits != 0) rank += Long.bitCount(words[w] & ((1L << bits) - 1L));
+		return rank;
+	}
+
+	@Override
+	public int select(int rank) {
+		if (rank < 0) throw new IllegalArgumentException("negative rank");
+		refresh();
+		if (rank >= count) throw new IllegalArgumentException("rank too large");
+		// descend the tree to locate the superblock containing the value
+		int superblock = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			int next = superblock + step;
+			if (next < tree.length && tree[next] <= rank) {
+				superblock = next;
+				rank -= tree[next];
+			}
+		}
+		// then scan its words
+		for (int w = superblock * SUPER_WORDS; ; w++) {
+			long word = words[w];
+			int c = Long.bitCount(word);
+			if (rank < c) {
+				for (; rank > 0; rank--) {
+					word &= word - 1L;
+				}
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			rank -= c;
+		}
+	}
+
+	// package scoped methods
+
+	// records a change in the population at a single index
+	void update(int index, boolean populated) {
+		if (stale) return;
+		int w = index >>> 6;
+		long bit = 1L << (index & 63);
+		if (((words[w] & bit) != 0L) == populated) return;
+		int delta;
+		if (populated) {
+			words[w] |= bit;
+			delta = 1;
+		} else {
+			words[w] &= ~bit;
+			delta = -1;
+		}
+		count += delta;
+		for (int i = (index >>> SUPER_BITS) + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	// called when the population of the store has changed wholesale
+	void invalidate() {
+		stale = true;
+	}
+
+	// private helper methods
+
+	private void refresh() {
+		if (!stale) return;
+		BitStore population = store.population();
+		int wordCount = (size + 63) >>> 6;
+		int superCount = (wordCount + SUPER_WORDS - 1) / SUPER_WORDS;
+		if (words == null) {
+			words = new long[wordCount];
+			tree = new int[superCount + 1];
+		} else {
+			Arrays.fill(tree, 0);
+		}
+		count = 0;
+		for (int w = 0; w < wordCount; w++) {
+			int position = w << 6;
+			long word = population.getBits(position, Math.min(64, size - position));
+			words[w] = word;
+			int c = Long.bitCount(word);
+			tree[w / SUPER_WORDS + 1] += c;
+			count += c;
+		}
+		// convert superblock counts into the tree in linear time
+		for (int i = 1; i <= superCount; i++) {
+			int parent = i + (i & -i);
+			if (parent <= superCount) tree[parent] += tree[i];
+		}
+		stale = false;
+	}
+
+}
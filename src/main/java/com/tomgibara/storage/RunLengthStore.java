@@ -0,0 +1,443 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// stores maximal runs of equal values, each recorded by the index at which it ends
+final class RunLengthStore<V> extends AbstractStore<V> {
+
+	static final class RunLengthStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+
+		RunLengthStorage(StoreType<V> type) {
+			this.type = type;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V value) throws IllegalArgumentException {
+			if (size < 0) throw new IllegalArgumentException("negative size");
+			if (value == null) {
+				if (!type.nullSettable && size > 0) throw new IllegalArgumentException("no null value with which to populate store");
+				value = type.nullValue;
+			} else if (!type.checkValue(value)) {
+				throw new IllegalArgumentException("invalid value");
+			}
+			return new RunLengthStore<>(type, size, value);
+		}
+
+	}
+
+	private final StoreType<V> type;
+	private final int size;
+	private final boolean mutable;
+	private int runs;
+	// the exclusive end index of each run, only the first runs are valid
+	private int[] ends;
+	private Object[] values;
+
+	private RunLengthStore(StoreType<V> type, int size, V value) {
+		this.type = type;
+		this.size = size;
+		this.mutable = true;
+		ends = new int[4];
+		values = new Object[4];
+		if (size > 0) {
+			runs = 1;
+			ends[0] = size;
+			values[0] = value;
+		}
+	}
+
+	private RunLengthStore(StoreType<V> type, int size, boolean mutable, int runs, int[] ends, Object[] values) {
+		this.type = type;
+		this.size = size;
+		this.mutable = mutable;
+		this.runs = runs;
+		this.ends = ends;
+		this.values = values;
+	}
+
+	// store methods
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int count() {
+		if (!type.nullGettable) return size;
+		int count = 0;
+		for (int r = 0; r < runs; r++) {
+			if (values[r] != null) count += ends[r] - start(r);
+		}
+		return count;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(int index) {
+		checkIndex(index);
+		return (V) values[run(index)];
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return values[run(index)] == null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V set(int index, V value) {
+		checkMutable();
+		checkIndex(index);
+		value = checkedValue(value);
+		V previous = (V) values[run(index)];
+		if (!Objects.equals(previous, value)) assign(index, index + 1, value);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		if (!type.nullSettable) throw new IllegalStateException("null not settable");
+		fillImpl(type.nullValue);
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		fillImpl(checkedValue(value));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <W extends V> void setStore(int position, Store<W> store) {
+		checkMutable();
+		int length = checkSetStore(position, store);
+		int from = 0;
+		if (store instanceof RangeStore<?>) {
+			RangeStore<W> range = (RangeStore<W>) store;
+			store = range.store;
+			from = range.from;
+		}
+		if (store instanceof RunLengthStore<?>) {
+			// copy whole runs
+			RunLengthStore<W> that = (RunLengthStore<W>) store;
+			// runs are modified during assignment
+			if (that == this) that = (RunLengthStore<W>) that.mutableCopy();
+			int to = from + length;
+			int offset = position - from;
+			for (int r = length == 0 ? 0 : that.run(from); from < to; r++) {
+				int end = Math.min(to, that.ends[r]);
+				assign(offset + from, offset + end, checkedValue((V) that.values[r]));
+				from = end;
+			}
+		} else {
+			// identify runs in the supplied store
+			for (int i = 0; i < length; ) {
+				V value = checkedValue(store.get(from + i));
+				int j = i + 1;
+				while (j < length && Objects.equals(value, store.get(from + j))) j++;
+				assign(position + i, position + j, value);
+				i = j;
+			}
+		}
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative size");
+		if (newSize <= size) {
+			int count = newSize == 0 ? 0 : run(newSize - 1) + 1;
+			int[] newEnds = Arrays.copyOf(ends, Math.max(count, 4));
+			Object[] newValues = new Object[newEnds.length];
+			System.arraycopy(values, 0, newValues, 0, count);
+			if (count > 0) newEnds[count - 1] = newSize;
+			return new RunLengthStore<>(type, newSize, true, count, newEnds, newValues);
+		}
+		if (!type.nullSettable) throw new IllegalArgumentException("cannot increase size, null not settable");
+		RunLengthStore<V> copy = new RunLengthStore<>(type, newSize, true, runs, ends.clone(), values.clone());
+		copy.append(newSize, type.nullValue);
+		return copy;
+	}
+
+	// iteration
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super V> action) {
+		for (int r = 0, start = 0; r < runs; start = ends[r++]) {
+			V value = (V) values[r];
+			if (value == null) continue;
+			for (int i = start; i < ends[r]; i++) {
+				action.accept(value);
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<Integer, ? super V> action) {
+		for (int r = 0, start = 0; r < runs; start = ends[r++]) {
+			V value = (V) values[r];
+			if (value == null) continue;
+			for (int i = start; i < ends[r]; i++) {
+				action.accept(i, value);
+			}
+		}
+	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return new RunSpliterator(0, runs);
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return new RunLengthStore<>(type, size, true, runs, ends.clone(), values.clone());
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return new RunLengthStore<>(type, size, false, runs, Arrays.copyOf(ends, runs), Arrays.copyOf(values, runs));
+	}
+
+	// abstract store methods
+
+	@Override
+	boolean fastFill(int from, int to, V value) {
+		if (from < to) assign(from, to, value == null ? type.nullValue : value);
+		return true;
+	}
+
+	// private helper methods
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	private V checkedValue(V value) {
+		if (value == null) {
+			if (!type.nullSettable) StoreType.failNull();
+			return type.nullValue;
+		}
+		if (!type.checkValue(value)) throw new IllegalArgumentException("invalid value");
+		return value;
+	}
+
+	// the run containing the index
+	private int run(int index) {
+		int r = Arrays.binarySearch(ends, 0, runs, index);
+		return r < 0 ? -1 - r : r + 1;
+	}
+
+	private int start(int run) {
+		return run == 0 ? 0 : ends[run - 1];
+	}
+
+	private void fillImpl(V value) {
+		if (size == 0) return;
+		runs = 1;
+		ends = new int[4];
+		values = new Object[4];
+		ends[0] = size;
+		values[0] = value;
+	}
+
+	private void append(int end, V value) {
+		if (runs > 0 && Objects.equals(values[runs - 1], value)) {
+			ends[runs - 1] = end;
+		} else {
+			ensureCapacity(runs + 1);
+			ends[runs] = end;
+			values[runs] = value;
+			runs++;
+		}
+	}
+
+	// assigns the value to every index in the non-empty range, splitting and merging runs as necessary
+	private void assign(int from, int to, V value) {
+		int a = run(from);
+		int b = run(to - 1);
+		int end = ends[b];
+		Object left = values[a];
+		Object right = values[b];
+		int[] newEnds = new int[3];
+		Object[] newValues = new Object[3];
+		int count = 0;
+		if (start(a) < from) {
+			// retain the start of the first run, unless it has the same value
+			if (!Objects.equals(left, value)) {
+				newEnds[count] = from;
+				newValues[count] = left;
+				count++;
+			}
+		} else if (a > 0 && Objects.equals(values[a - 1], value)) {
+			// absorb the preceding run
+			a--;
+		}
+		if (to < end) {
+			// retain the end of the last run, unless it has the same value
+			if (Objects.equals(right, value)) {
+				to = end;
+			} else {
+				newEnds[count] = to;
+				newValues[count] = value;
+				count++;
+				to = -1;
+			}
+		} else if (b + 1 < runs && Objects.equals(values[b + 1], value)) {
+			// absorb the following run
+			b++;
+			to = ends[b];
+		}
+		if (to == -1) {
+			newEnds[count] = end;
+			newValues[count] = right;
+		} else {
+			newEnds[count] = to;
+			newValues[count] = value;
+		}
+		count++;
+		replace(a, b + 1, newEnds, newValues, count);
+	}
+
+	// replaces the runs [from, to) with the supplied runs
+	private void replace(int from, int to, int[] newEnds, Object[] newValues, int count) {
+		int delta = count - (to - from);
+		if (delta > 0) ensureCapacity(runs + delta);
+		int tail = runs - to;
+		System.arraycopy(ends, to, ends, to + delta, tail);
+		System.arraycopy(values, to, values, to + delta, tail);
+		System.arraycopy(newEnds, 0, ends, from, count);
+		System.arraycopy(newValues, 0, values, from, count);
+		if (delta < 0) Arrays.fill(values, runs + delta, runs, null);
+		runs += delta;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > ends.length) {
+			int length = Math.max(capacity, ends.length * 2);
+			ends = Arrays.copyOf(ends, length);
+			values = Arrays.copyOf(values, length);
+		}
+	}
+
+	// inner classes
+
+	// emits the non-null values of whole runs, splitting between runs
+	private final class RunSpliterator implements Spliterator<V> {
+
+		private final int to;
+		private int run;
+		// the next index to report from the current run
+		private int index;
+
+		RunSpliterator(int from, int to) {
+			this.run = from;
+			this.to = to;
+			this.index = from < to ? start(from) : 0;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super V> action) {
+			for (; run < to; run++) {
+				Object value = values[run];
+				if (value != null && index < ends[run]) {
+					index++;
+					action.accept((V) value);
+					return true;
+				}
+				index = ends[run];
+			}
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(Consumer<? super V> action) {
+			for (; run < to; run++) {
+				V value = (V) values[run];
+				int end = ends[run];
+				if (value != null) {
+					for (; index < end; index++) {
+						action.accept(value);
+					}
+				}
+				index = end;
+			}
+		}
+
+		@Override
+		public Spliterator<V> trySplit() {
+			int remaining = to - run;
+			if (remaining < 2) return null;
+			int mid = run + (remaining >> 1);
+			Spliterator<V> prefix = new RunSpliterator(run, mid);
+			((RunSpliterator) prefix).index = index;
+			run = mid;
+			index = start(mid);
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return run < to ? ends[to - 1] - index : 0L;
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+			return type.nullGettable ? characteristics : characteristics | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+
+	}
+
+}
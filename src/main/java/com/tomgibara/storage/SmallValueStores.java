@@ -19,14 +19,36 @@ package com.tomgibara.storage;
 import static com.tomgibara.storage.Stores.immutableException;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.BitStore.Matches;
 import com.tomgibara.bits.BitWriter;
 import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.IntIntConsumer;
 import com.tomgibara.storage.StoreAccessors.StoreInts;
 
 abstract class SmallValueStore extends AbstractStore<Integer> implements StoreInts {
 
+	// number of values decoded at a time during iteration, a multiple of both 3 and 5
+	private static final int CHUNK_SIZE = 240;
+
+	// a decode buffer for each thread, taken while in use so that nested decoding allocates its own
+	private static final ThreadLocal<int[]> BUFFERS = ThreadLocal.withInitial(() -> new int[CHUNK_SIZE]);
+
+	private static int[] takeBuffer() {
+		int[] buffer = BUFFERS.get();
+		if (buffer == null) return new int[CHUNK_SIZE];
+		BUFFERS.set(null);
+		return buffer;
+	}
+
 	// statics - ternary packing
 
 	private static final byte[] TERNARY_PACK = new byte[1024];
@@ -121,9 +143,36 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 	static NullSmallStorage newNullStorage(int range) {
 		switch (range) {
 		case 1:  return (size, value) -> new ZeroOrNullStore(checkedSize(size), value);
-		case 2:  return (size, value) -> new NullableStore(new TernaryStore(checkedSize(size), 0, value));
-		case 4:  return (size, value) -> new NullableStore(new QuinaryStore(checkedSize(size), 0, value));
-		default: return (size, value) -> new NullableStore(new ArbitraryStore(checkedSize(size), 0, range + 1, value));
+		case 2:  return (size, value) -> newNullableStore(new TernaryStore(checkedSize(size), 0, (Integer) null), value);
+		case 4:  return (size, value) -> newNullableStore(new QuinaryStore(checkedSize(size), 0, (Integer) null), value);
+		default: return (size, value) -> newNullableStore(new ArbitraryStore(checkedSize(size), 0, range + 1, (Integer) null), value);
+		}
+	}
+
+	// initial values must be offset to accommodate null, so are assigned by the nullable store
+	private static NullableStore newNullableStore(SmallValueStore wrapped, Integer value) {
+		NullableStore store = new NullableStore(wrapped);
+		if (value != null) store.fill(value);
+		return store;
+	}
+
+	// the number of bits needed to pack each value linearly
+	static int linearBitsPerValue(int range, boolean nullGettable) {
+		if (nullGettable) range++;
+		return 32 - Integer.numberOfLeadingZeros(range - 1);
+	}
+
+	// packs values linearly into the supplied bits, which must accommodate the store size
+	static Store<Integer> newLinearStore(int range, StoreType<Integer> type, int size, BitStore bits) {
+		if (type.nullGettable) {
+			if (range == 1) return new ZeroOrNullStore(bits);
+			return new NullableStore(new ArbitraryStore(0, range + 1, bits));
+		}
+		int nullValue = type.nullSettable ? type.nullValue : -1;
+		switch (range) {
+		case 1:  return new UnaryStore(size, nullValue, true);
+		case 2:  return new BinaryStore(bits, nullValue);
+		default: return new ArbitraryStore(nullValue, range, bits);
 		}
 	}
 
@@ -132,17 +181,61 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		return size;
 	}
 
+	// extracts linearly packed values a word at a time
+	static void unpack(BitStore bits, int count, int from, int[] dest, int offset, int length) {
+		int perWord = 64 / count;
+		int mask = (1 << count) - 1;
+		int position = from * count;
+		while (length > 0) {
+			int n = Math.min(perWord, length);
+			long word = bits.getBits(position, n * count);
+			for (int i = 0; i < n; i++) {
+				dest[offset++] = (int) word & mask;
+				word >>>= count;
+			}
+			position += n * count;
+			length -= n;
+		}
+	}
+
+	// stores linearly packed values a word at a time
+	static void pack(BitStore bits, int count, int from, int[] src, int offset, int length) {
+		int perWord = 64 / count;
+		int position = from * count;
+		while (length > 0) {
+			int n = Math.min(perWord, length);
+			long word = 0L;
+			for (int i = n - 1; i >= 0; i--) {
+				word = (word << count) | src[offset + i];
+			}
+			bits.setBits(position, word, n * count);
+			offset += n;
+			position += n * count;
+			length -= n;
+		}
+	}
+
 	// fields
 
 	final int size;
 	// -1 indicates not settable
 	final int nullValue;
+	// the store that created the packed values, shared by its immutable views
+	final SmallValueStore origin;
 
 	// constructors
 
 	SmallValueStore(int size, int nullValue) {
 		this.size = size;
 		this.nullValue = nullValue;
+		origin = this;
+	}
+
+	// for views that share the packed values of another store
+	SmallValueStore(SmallValueStore that) {
+		size = that.size;
+		nullValue = that.nullValue;
+		origin = that.origin;
 	}
 
 	// methods
@@ -189,12 +282,121 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		setImpl(j, setImpl(i, getImpl(j)));
 	}
 
+	// object methods
+
+	@Override
+	public int hashCode() {
+		int hashCode = 1;
+		int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			getImpl(from, buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				hashCode = 31 * hashCode + buffer[i];
+			}
+		}
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof SmallValueStore)) return super.equals(obj);
+		SmallValueStore that = (SmallValueStore) obj;
+		if (this.size != that.size) return false;
+		BitStore bits = canonicalBits();
+		if (bits != null && that.getClass() == this.getClass() && that.range() == this.range()) {
+			return bits.equals().store(that.canonicalBits());
+		}
+		int[] these = new int[Math.min(size, CHUNK_SIZE)];
+		int[] those = new int[these.length];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			this.getImpl(from, these, 0, length);
+			that.getImpl(from, those, 0, length);
+			for (int i = 0; i < length; i++) {
+				if (these[i] != those[i]) return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void parallelFill(Integer value) {
+		if (!isMutable()) throw immutableException();
+		int v;
+		if (value == null) {
+			if (nullValue < 0) StoreType.failNull();
+			v = nullValue;
+		} else {
+			checkImpl(value);
+			v = value;
+		}
+		// partitions are aligned so that no two share a word of packed values
+		Stores.inParallel(0, size, (from, to) -> {
+			fillImpl(from, to, v);
+			return 0;
+		});
+	}
+
+	@Override
+	public <W extends Integer> void parallelSetStore(int position, Store<W> store) {
+		if (!isMutable()) throw immutableException();
+		int length = checkSetStore(position, store);
+		// partitions of a copy within the same values could overwrite their sources
+		Store<?> underlying = Stores.underlying(store);
+		boolean aliased = underlying instanceof SmallValueStore && ((SmallValueStore) underlying).origin == origin;
+		Store<W> source = aliased ? store.immutableCopy() : store;
+		// partitions are aligned as per parallelFill, so each writes its own words
+		Stores.inParallel(position, position + length, (from, to) -> {
+			setStore(from, source.range(from - position, to - position));
+			return 0;
+		});
+	}
+
+	@Override
+	public void sort(Comparator<? super Integer> comparator) {
+		if (comparator == null) {
+			countingSort(false);
+		} else {
+			super.sort(comparator);
+		}
+	}
+
+	@Override
+	public void parallelSort() {
+		countingSort(false);
+	}
+
+	@Override
+	public Store<Integer> sortIndices(Comparator<? super Integer> comparator) {
+		return comparator == null ? countingSortIndices(false) : super.sortIndices(comparator);
+	}
+
+	@Override
+	int search(int from, int to, Integer key, int mode) {
+		return searchImpl(from, to, key, mode, false);
+	}
+
+	@Override
+	boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+		aggregateImpl(from, to, aggregator, false);
+		return true;
+	}
+
 	@Override
 	boolean fastFill(int from, int to, Integer value) {
+		int v;
+		if (value == null) {
+			if (nullValue < 0) return false;
+			v = nullValue;
+		} else {
+			v = value;
+		}
 		if (from == 0 && to == size) {
-			fillImpl(value);
+			fillImpl(v);
 		} else {
-			fillImpl(from, to, value);
+			fillImpl(from, to, v);
 		}
 		return true;
 	}
@@ -220,10 +422,187 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		setImpl(index, value);
 	}
 
+	@Override
+	public void getInts(int from, int[] dest, int offset, int length) {
+		StoreAccessors.checkArray(dest, offset, length);
+		StoreAccessors.checkRange(size, from, length);
+		getImpl(from, dest, offset, length);
+	}
+
+	@Override
+	public void forEachInt(int from, int to, IntIntConsumer action) {
+		StoreAccessors.checkBounds(size, from, to);
+		forEachImpl(from, to, action, false);
+	}
+
+	@Override
+	public void setInts(int from, int[] src, int offset, int length) {
+		StoreAccessors.checkArray(src, offset, length);
+		StoreAccessors.checkRange(size, from, length);
+		if (!isMutable()) throw new IllegalStateException("immutable");
+		for (int i = 0; i < length; i++) {
+			checkImpl(src[offset + i]);
+		}
+		setImpl(from, src, offset, length);
+	}
+
+	// iteration methods
+
+	@Override
+	public void forEach(Consumer<? super Integer> action) {
+		IntConsumer consumer = action instanceof IntConsumer ? (IntConsumer) action : action::accept;
+		int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			getImpl(from, buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				consumer.accept(buffer[i]);
+			}
+		}
+	}
+
+	@Override
+	public void forEach(BiConsumer<Integer, ? super Integer> action) {
+		int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			getImpl(from, buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				action.accept(from + i, buffer[i]);
+			}
+		}
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new ChunkIterator();
+	}
+
+	@Override
+	public Spliterator.OfInt spliterator() {
+		return new ChunkSpliterator(0, size);
+	}
+
 	// for extension
 
 	abstract int range();
 
+	// sorts values in linear time, optionally ordering zero after every other value
+	void countingSort(boolean zeroLast) {
+		if (!isMutable()) throw immutableException();
+		int[] counts = counts();
+		int from = 0;
+		for (int i = 0; i < counts.length; i++) {
+			int value = zeroLast ? (i + 1) % counts.length : i;
+			int to = from + counts[value];
+			if (to > from) fillImpl(from, to, value);
+			from = to;
+		}
+	}
+
+	// a stable ordering of indices by value, as per countingSort
+	Store<Integer> countingSortIndices(boolean zeroLast) {
+		int[] counts = counts();
+		// the position at which the next index of each value is recorded
+		int[] offsets = new int[counts.length];
+		int offset = 0;
+		for (int i = 0; i < counts.length; i++) {
+			int value = zeroLast ? (i + 1) % counts.length : i;
+			offsets[value] = offset;
+			offset += counts[value];
+		}
+		int[] indices = new int[size];
+		int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			getImpl(from, buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				indices[offsets[buffer[i]]++] = from + i;
+			}
+		}
+		return Stores.ints(indices);
+	}
+
+	// searches values sorted as per countingSort, the key need not be in range
+	int searchImpl(int from, int to, int key, int mode, boolean zeroLast) {
+		boolean upper = mode == Stores.SEARCH_UPPER;
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compareImpl(getImpl(mid), key, zeroLast);
+			if (cmp < 0 || upper && cmp == 0) lo = mid + 1; else hi = mid;
+		}
+		if (mode != Stores.SEARCH_MATCH) return lo;
+		return lo < to && compareImpl(getImpl(lo), key, zeroLast) == 0 ? lo : -1 - lo;
+	}
+
+	// decodes values in chunks, optionally skipping zeros and reporting other values less one
+	void forEachImpl(int from, int to, IntIntConsumer action, boolean zeroNull) {
+		if (from == to) return;
+		int[] buffer = takeBuffer();
+		try {
+			for (int base = from; base < to; base += CHUNK_SIZE) {
+				int length = Math.min(to - base, CHUNK_SIZE);
+				getImpl(base, buffer, 0, length);
+				for (int i = 0; i < length; i++) {
+					int value = buffer[i];
+					if (!zeroNull) {
+						action.accept(base + i, value);
+					} else if (value != 0) {
+						action.accept(base + i, value - 1);
+					}
+				}
+			}
+		} finally {
+			BUFFERS.set(buffer);
+		}
+	}
+
+	// decodes values in chunks, optionally skipping zeros and reporting other values less one
+	void aggregateImpl(int from, int to, StoreAggregates.Aggregator aggregator, boolean zeroNull) {
+		if (from == to) return;
+		int[] buffer = takeBuffer();
+		try {
+			for (int base = from; base < to; base += CHUNK_SIZE) {
+				int length = Math.min(to - base, CHUNK_SIZE);
+				getImpl(base, buffer, 0, length);
+				if (zeroNull) {
+					// shift the non-null values to the start of the buffer
+					int count = 0;
+					for (int i = 0; i < length; i++) {
+						int value = buffer[i];
+						if (value != 0) buffer[count++] = value - 1;
+					}
+					length = count;
+				}
+				aggregator.accept(buffer, 0, length);
+			}
+		} finally {
+			BUFFERS.set(buffer);
+		}
+	}
+
+	// the number of occurrences of each value in the store
+	private int[] counts() {
+		int[] counts = new int[range()];
+		int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		for (int from = 0; from < size; from += CHUNK_SIZE) {
+			int length = Math.min(size - from, CHUNK_SIZE);
+			getImpl(from, buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				counts[buffer[i]]++;
+			}
+		}
+		return counts;
+	}
+
+	// zero is unwrapped to null when ordered last, and nulls follow every key
+	private static int compareImpl(int value, int key, boolean zeroLast) {
+		if (!zeroLast) return Integer.compare(value, key);
+		return value == 0 ? 1 : Integer.compare(value - 1, key);
+	}
+
 	// note: caller responsible for checking value is valid
 	abstract int setImpl(int index, int value);
 
@@ -238,6 +617,121 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 
 	abstract void checkImpl(int value);
 
+	// bits that encode each sequence of values uniquely for a given class and range, or null
+	BitStore canonicalBits() {
+		return null;
+	}
+
+	// note: caller responsible for checking range
+	void getImpl(int from, int[] dest, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[offset + i] = getImpl(from + i);
+		}
+	}
+
+	// note: caller responsible for checking range and values are valid
+	void setImpl(int from, int[] src, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			setImpl(from + i, src[offset + i]);
+		}
+	}
+
+	// inner classes
+
+	// decodes values in chunks to amortize the cost of unpacking
+	private final class ChunkIterator implements PrimitiveIterator.OfInt {
+
+		private final int[] buffer = new int[Math.min(size, CHUNK_SIZE)];
+		// index of the first value in the buffer
+		private int base = 0;
+		// number of values held in the buffer
+		private int limit = 0;
+		// index of the next value in the buffer
+		private int next = 0;
+		// position of the previously returned value
+		private int previous = -1;
+
+		@Override
+		public boolean hasNext() {
+			return base + next < size;
+		}
+
+		@Override
+		public int nextInt() {
+			if (next == limit) {
+				if (base + limit == size) throw new NoSuchElementException();
+				base += limit;
+				limit = Math.min(size - base, CHUNK_SIZE);
+				next = 0;
+				getImpl(base, buffer, 0, limit);
+			}
+			previous = base + next;
+			return buffer[next++];
+		}
+
+		@Override
+		public void remove() {
+			if (previous == -1) throw new NoSuchElementException();
+			set(previous, null);
+			// keep buffer consistent with the store
+			buffer[previous - base] = getImpl(previous);
+			previous = -1;
+		}
+
+	}
+
+	// splits by halving the index range, decoding chunks when traversing
+	private final class ChunkSpliterator implements Spliterator.OfInt {
+
+		private int from;
+		private final int to;
+
+		ChunkSpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from == to) return false;
+			action.accept(getImpl(from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			int[] buffer = new int[Math.min(to - from, CHUNK_SIZE)];
+			while (from < to) {
+				int length = Math.min(to - from, CHUNK_SIZE);
+				getImpl(from, buffer, 0, length);
+				from += length;
+				for (int i = 0; i < length; i++) {
+					action.accept(buffer[i]);
+				}
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			if (from >= to - 1) return null;
+			int mid = (from + to) >>> 1;
+			ChunkSpliterator split = new ChunkSpliterator(from, mid);
+			from = mid;
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+
+	}
+
 	// helper methods
 
 	void checkIndex(int index) {
@@ -410,6 +904,20 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			if (value != 0) throw new IllegalArgumentException("non-zero value");
 		}
 
+		@Override
+		void getImpl(int from, int[] dest, int offset, int length) {
+			Arrays.fill(dest, offset, offset + length, 0);
+		}
+
+		@Override
+		void setImpl(int from, int[] src, int offset, int length) { }
+
+		@Override
+		boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+			aggregator.accept(0, to - from);
+			return true;
+		}
+
 	}
 
 	private final static class BinaryStore extends SmallValueStore {
@@ -428,6 +936,11 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			this.bits = bits;
 		}
 
+		private BinaryStore(BinaryStore that) {
+			super(that);
+			bits = that.bits.immutable();
+		}
+
 		@Override
 		public Integer get(int index) {
 			checkIndex(index);
@@ -462,7 +975,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		public BinaryStore immutableCopy() { return new BinaryStore(bits.immutableCopy(), nullValue); }
 
 		@Override
-		public BinaryStore immutableView() { return new BinaryStore(bits.immutable(), nullValue); }
+		public BinaryStore immutableView() { return new BinaryStore(this); }
 
 		@Override
 		public BinaryStore resizedCopy(int newSize) {
@@ -497,6 +1010,9 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		@Override
 		int range() { return 2; }
 
+		@Override
+		BitStore canonicalBits() { return bits; }
+
 		@Override
 		int getImpl(int index) {
 			return valueOf( bits.getBit(index) );
@@ -522,6 +1038,25 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			if (value != 0 && value != 1) throw new IllegalArgumentException("value not 0 or 1");
 		}
 
+		@Override
+		void getImpl(int from, int[] dest, int offset, int length) {
+			unpack(bits, 1, from, dest, offset, length);
+		}
+
+		@Override
+		void setImpl(int from, int[] src, int offset, int length) {
+			pack(bits, 1, from, src, offset, length);
+		}
+
+		@Override
+		boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+			// the values are counted without being decoded
+			int ones = bits.range(from, to).ones().count();
+			aggregator.accept(0, to - from - ones);
+			aggregator.accept(1, ones);
+			return true;
+		}
+
 		private boolean checkedValue(Integer value) {
 			if (value == null) {
 				if (nullValue < 0) StoreType.failNull();
@@ -560,6 +1095,12 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			this.mutable = mutable;
 		}
 
+		private TernaryStore(TernaryStore that) {
+			super(that);
+			data = that.data;
+			mutable = false;
+		}
+
 		@Override
 		public Integer get(int index) {
 			checkIndex(index);
@@ -569,6 +1110,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		@Override
 		public Integer set(int index, Integer value) {
 			checkIndex(index);
+			if (!mutable) throw immutableException();
 			return setImpl(index, checkedValue(value));
 		}
 
@@ -580,6 +1122,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 
 		@Override
 		public void fill(Integer value) {
+			if (!mutable) throw immutableException();
 			fillImpl(checkedValue(value));
 		}
 
@@ -600,7 +1143,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 
 		@Override
 		public TernaryStore immutableView() {
-			return new TernaryStore(size, nullValue, data, false);
+			return new TernaryStore(this);
 		}
 
 		@Override
@@ -626,8 +1169,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		int getImpl(int index) {
 			int i = index / 5;
 			int j = index % 5;
-			byte p = data[i];
-			int u = tUnpack(p);
+			int u = TERNARY_UNPACK[data[i] & 0xff];
 			int d = (4-j) << 1;
 			return (u >> d) & 3;
 		}
@@ -636,16 +1178,58 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		int setImpl(int index, int value) {
 			int i = index / 5;
 			int j = index % 5;
-			byte p = data[i];
-			int u = tUnpack(p);
+			int u = TERNARY_UNPACK[data[i] & 0xff];
 			int d = (4-j) << 1;
 			int v = (u >> d) & 3;
 			u &= ~(3 << d);
 			u |= value << d;
-			data[i] = tPack(u);
+			data[i] = TERNARY_PACK[u];
 			return v;
 		}
 
+		@Override
+		void getImpl(int from, int[] dest, int offset, int length) {
+			int index = from;
+			int to = from + length;
+			// decode up to a byte boundary
+			for (; index < to && index % 5 != 0; index++) {
+				dest[offset++] = getImpl(index);
+			}
+			// decode whole bytes
+			for (int i = index / 5; to - index >= 5; i++, index += 5) {
+				int u = TERNARY_UNPACK[data[i] & 0xff];
+				dest[offset++] = (u >> 8) & 3;
+				dest[offset++] = (u >> 6) & 3;
+				dest[offset++] = (u >> 4) & 3;
+				dest[offset++] = (u >> 2) & 3;
+				dest[offset++] =  u       & 3;
+			}
+			// decode any remainder
+			for (; index < to; index++) {
+				dest[offset++] = getImpl(index);
+			}
+		}
+
+		@Override
+		void setImpl(int from, int[] src, int offset, int length) {
+			int index = from;
+			int to = from + length;
+			for (; index < to && index % 5 != 0; index++) {
+				setImpl(index, src[offset++]);
+			}
+			for (int i = index / 5; to - index >= 5; i++, index += 5) {
+				int u = src[offset++];
+				u = (u << 2) | src[offset++];
+				u = (u << 2) | src[offset++];
+				u = (u << 2) | src[offset++];
+				u = (u << 2) | src[offset++];
+				data[i] = TERNARY_PACK[u];
+			}
+			for (; index < to; index++) {
+				setImpl(index, src[offset++]);
+			}
+		}
+
 		@Override
 		void fillImpl(int value) {
 			Arrays.fill(data, fiveCopies(value));
@@ -699,6 +1283,11 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			this.bits = bits;
 		}
 
+		private QuinaryStore(QuinaryStore that) {
+			super(that);
+			bits = that.bits.immutable();
+		}
+
 		@Override
 		public Integer get(int index) {
 			checkIndex(index);
@@ -739,7 +1328,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 
 		@Override
 		public QuinaryStore immutableView() {
-			return new QuinaryStore(size, nullValue, bits.immutable());
+			return new QuinaryStore(this);
 		}
 
 		@Override
@@ -771,8 +1360,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		int getImpl(int index) {
 			int i = index / 3;
 			int j = index % 3;
-			int p = getBits(i);
-			int u = qUnpack(p);
+			int u = QUINARY_UNPACK[getBits(i)];
 			int d = (2-j) * 3;
 			return (u >> d) & 7;
 		}
@@ -781,16 +1369,66 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		int setImpl(int index, int value) {
 			int i = index / 3;
 			int j = index % 3;
-			int p = getBits(i);
-			int u = qUnpack(p);
+			int u = QUINARY_UNPACK[getBits(i)];
 			int d = (2-j) * 3;
 			int v = (u >> d) & 7;
 			u &= ~(7 << d);
 			u |= value << d;
-			setBits(i, qPack(u));
+			setBits(i, QUINARY_PACK[u]);
 			return v;
 		}
 
+		@Override
+		void getImpl(int from, int[] dest, int offset, int length) {
+			int index = from;
+			int to = from + length;
+			// decode up to a group boundary
+			for (; index < to && index % 3 != 0; index++) {
+				dest[offset++] = getImpl(index);
+			}
+			int group = index / 3;
+			// decode nine groups from each word
+			for (; to - index >= 27; group += 9) {
+				long word = bits.getBits(group * 7, 63);
+				for (int k = 0; k < 9; k++, index += 3) {
+					int u = QUINARY_UNPACK[(int) word & 0x7f];
+					dest[offset++] = (u >> 6) & 7;
+					dest[offset++] = (u >> 3) & 7;
+					dest[offset++] =  u       & 7;
+					word >>>= 7;
+				}
+			}
+			// decode remaining whole groups
+			for (; to - index >= 3; group++, index += 3) {
+				int u = QUINARY_UNPACK[getBits(group)];
+				dest[offset++] = (u >> 6) & 7;
+				dest[offset++] = (u >> 3) & 7;
+				dest[offset++] =  u       & 7;
+			}
+			// decode any remainder
+			for (; index < to; index++) {
+				dest[offset++] = getImpl(index);
+			}
+		}
+
+		@Override
+		void setImpl(int from, int[] src, int offset, int length) {
+			int index = from;
+			int to = from + length;
+			for (; index < to && index % 3 != 0; index++) {
+				setImpl(index, src[offset++]);
+			}
+			for (int group = index / 3; to - index >= 3; group++, index += 3) {
+				int u = src[offset++];
+				u = (u << 3) | src[offset++];
+				u = (u << 3) | src[offset++];
+				setBits(group, QUINARY_PACK[u]);
+			}
+			for (; index < to; index++) {
+				setImpl(index, src[offset++]);
+			}
+		}
+
 		@Override
 		void fillImpl(int value) {
 			if (value == 0) {
@@ -861,6 +1499,17 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			initFill(initialValue);
 		}
 
+		ArbitraryStore(int nullValue, int range, BitStore bits) {
+			this(nullValue, range, 32 - Integer.numberOfLeadingZeros(range - 1), bits);
+		}
+
+		private ArbitraryStore(int nullValue, int range, int count, BitStore bits) {
+			super(bits.size() / count, nullValue);
+			this.range = range;
+			this.count = count;
+			this.bits = bits;
+		}
+
 		ArbitraryStore(ArbitraryStore that, BitStore bits) {
 			super(bits.size() / that.count, that.nullValue);
 			this.range = that.range;
@@ -868,6 +1517,13 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			this.bits = bits;
 		}
 
+		private ArbitraryStore(ArbitraryStore that) {
+			super(that);
+			range = that.range;
+			count = that.count;
+			bits = that.bits.immutable();
+		}
+
 		@Override
 		public Integer get(int index) {
 			checkIndex(index);
@@ -901,7 +1557,7 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 		public ArbitraryStore immutableCopy() { return new ArbitraryStore(this, bits.immutableCopy()); }
 
 		@Override
-		public ArbitraryStore immutableView() { return new ArbitraryStore(this, bits.immutable()); }
+		public ArbitraryStore immutableView() { return new ArbitraryStore(this); }
 
 		@Override
 		public ArbitraryStore resizedCopy(int newSize) {
@@ -928,7 +1584,8 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 				from = range.from;
 				to = range.to;
 			}
-			if (store instanceof ArbitraryStore) {
+			// bits can only be copied directly if they encode values identically
+			if (store instanceof ArbitraryStore && ((ArbitraryStore) store).count == count && ((ArbitraryStore) store).range <= range) {
 				bits.setStore(position * count, ((ArbitraryStore) store).bits.range(from * count, to * count));
 			} else {
 				setStoreImpl(position, store, from, to);
@@ -940,6 +1597,11 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			return range;
 		}
 
+		@Override
+		BitStore canonicalBits() {
+			return bits;
+		}
+
 		@Override
 		int setImpl(int index, int value) {
 			int position = index * count;
@@ -969,6 +1631,16 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			if (value >= range) throw new IllegalArgumentException("value too large");
 		}
 
+		@Override
+		void getImpl(int from, int[] dest, int offset, int length) {
+			unpack(bits, count, from, dest, offset, length);
+		}
+
+		@Override
+		void setImpl(int from, int[] src, int offset, int length) {
+			pack(bits, count, from, src, offset, length);
+		}
+
 		private int checkedValue(Integer value) {
 			if (value == null) {
 				if (nullValue < 0) StoreType.failNull();
@@ -1110,6 +1782,12 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			bits.permute().transpose(i, j);
 		}
 
+		@Override
+		boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+			aggregator.accept(0, bits.range(from, to).ones().count());
+			return true;
+		}
+
 		// store ints
 
 		@Override
@@ -1131,6 +1809,14 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			bits.setBit(index, true);
 		}
 
+		@Override
+		public void forEachInt(int from, int to, IntIntConsumer action) {
+			StoreAccessors.checkBounds(size, from, to);
+			if (from == to) return;
+			Matches ones = bits.ones();
+			for (int i = ones.next(from); i < to; i = ones.next(i + 1)) action.accept(i, 0);
+		}
+
 		// private helper methods
 
 		private void checkIndex(int index) {
@@ -1199,6 +1885,37 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			wrapped.fillImpl(wrap(value));
 		}
 
+		@Override
+		public void sort(Comparator<? super Integer> comparator) {
+			// nulls are wrapped as zero, and must be ordered last
+			if (comparator == null) {
+				wrapped.countingSort(true);
+			} else {
+				super.sort(comparator);
+			}
+		}
+
+		@Override
+		public void parallelSort() {
+			wrapped.countingSort(true);
+		}
+
+		@Override
+		public Store<Integer> sortIndices(Comparator<? super Integer> comparator) {
+			return comparator == null ? wrapped.countingSortIndices(true) : super.sortIndices(comparator);
+		}
+
+		@Override
+		int search(int from, int to, Integer key, int mode) {
+			return wrapped.searchImpl(from, to, key, mode, true);
+		}
+
+		@Override
+		boolean aggregate(int from, int to, StoreAggregates.Aggregator aggregator) {
+			wrapped.aggregateImpl(from, to, aggregator, true);
+			return true;
+		}
+
 		@Override
 		public Store<Integer> resizedCopy(int newSize) {
 			return new NullableStore(wrapped.resizedCopy(newSize));
@@ -1213,6 +1930,15 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			}
 		}
 
+		@Override
+		public <W extends Integer> void parallelSetStore(int position, Store<W> store) {
+			if (store instanceof NullableStore) {
+				wrapped.parallelSetStore(position, ((NullableStore) store).wrapped);
+			} else {
+				super.parallelSetStore(position, store);
+			}
+		}
+
 		@Override
 		public boolean isMutable() {
 			return wrapped.isMutable();
@@ -1260,6 +1986,12 @@ abstract class SmallValueStore extends AbstractStore<Integer> implements StoreIn
 			wrapped.setImpl(index, wrapImpl(value));
 		}
 
+		@Override
+		public void forEachInt(int from, int to, IntIntConsumer action) {
+			StoreAccessors.checkBounds(wrapped.size, from, to);
+			wrapped.forEachImpl(from, to, action, true);
+		}
+
 		// private helper methods
 
 		private Integer unwrap(int value) {
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static com.tomgibara.storage.Stores.immutableException;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.tomgibara.bits.AbstractBitStore;
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.Bits;
+
+// stores only the values that differ from the null value, switching to a dense store when populous
+final class SparseStore<V> extends AbstractStore<V> {
+
+	static final double DEFAULT_DENSITY = 1.0 / 16.0;
+
+	private static final int[] NO_INDICES = {};
+	private static final Object[] NO_VALUES = {};
+
+	static final class SparseStorage<V> implements Storage<V> {
+
+		private final StoreType<V> type;
+		private final double density;
+
+		SparseStorage(StoreType<V> type, double density) {
+			if (!type.nullSettable) throw new IllegalStateException("null not settable");
+			if (!(density > 0.0 && density <= 1.0)) throw new IllegalArgumentException("invalid density");
+			this.type = type;
+			this.density = density;
+		}
+
+		@Override
+		public StoreType<V> type() {
+			return type;
+		}
+
+		@Override
+		public Store<V> newStore(int size, V value) throws IllegalArgumentException {
+			if (size < 0) throw new IllegalArgumentException("negative size");
+			SparseStore<V> store = new SparseStore<>(type, density, size, true);
+			if (value != null) store.fill(value);
+			return store;
+		}
+
+	}
+
+	private final StoreType<V> type;
+	private final double density;
+	private final int size;
+	private final boolean mutable;
+	// sparse and dense stores switch at different numbers of values to avoid thrashing
+	private final int sparseLimit;
+	private final int denseLimit;
+	// the number of values which are not the null value
+	private int entries;
+	// sorted indices of values, only the first entries are valid
+	private int[] indices;
+	private Object[] values;
+	// non-null if the store is dense
+	private Store<V> dense;
+
+	private SparseStore(StoreType<V> type, double density, int size, boolean mutable) {
+		this.type = type;
+		this.density = density;
+		this.size = size;
+		this.mutable = mutable;
+		sparseLimit = (int) (size * density * 0.5);
+		denseLimit = (int) (size * density);
+		entries = 0;
+		indices = NO_INDICES;
+		values = NO_VALUES;
+		dense = null;
+	}
+
+	private SparseStore(SparseStore<V> that, int size, boolean mutable) {
+		this(that.type, that.density, size, mutable);
+		if (that.dense == null) {
+			int count = that.entries;
+			if (size < that.size) {
+				// only retain values at indices less than the new size
+				int i = Arrays.binarySearch(that.indices, 0, count, size);
+				count = i < 0 ? -1 - i : i;
+			}
+			entries = count;
+			indices = Arrays.copyOf(that.indices, count);
+			values = Arrays.copyOf(that.values, count);
+			if (entries > denseLimit) toDense();
+		} else {
+			dense = that.dense.resizedCopy(size);
+			if (size == that.size) {
+				entries = that.entries;
+			} else {
+				for (int i = 0; i < size; i++) {
+					if (!isNullValue(dense.get(i))) entries++;
+				}
+				if (entries < sparseLimit) toSparse();
+			}
+		}
+	}
+
+	// store methods
+
+	@Override
+	public StoreType<V> type() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int count() {
+		return type.nullGettable ? entries : size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(int index) {
+		checkIndex(index);
+		if (dense != null) return dense.get(index);
+		int i = Arrays.binarySearch(indices, 0, entries, index);
+		return i < 0 ? type.nullValue : (V) values[i];
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		checkIndex(index);
+		if (!type.nullGettable) return false;
+		if (dense != null) return dense.isNull(index);
+		return Arrays.binarySearch(indices, 0, entries, index) < 0;
+	}
+
+	@Override
+	public BitStore population() {
+		return type.nullGettable ? new Population() : Bits.oneBits(size);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V set(int index, V value) {
+		checkMutable();
+		checkIndex(index);
+		if (!type.checkValue(value)) throw new IllegalArgumentException("invalid value");
+		if (value == null) value = type.nullValue;
+		boolean remove = isNullValue(value);
+		if (dense != null) {
+			V previous = dense.set(index, value);
+			boolean present = !isNullValue(previous);
+			if (present && remove) {
+				if (--entries < sparseLimit) toSparse();
+			} else if (!present && !remove) {
+				entries++;
+			}
+			return previous;
+		}
+		int i = Arrays.binarySearch(indices, 0, entries, index);
+		if (i >= 0) {
+			V previous = (V) values[i];
+			if (remove) {
+				int length = entries - i - 1;
+				System.arraycopy(indices, i + 1, indices, i, length);
+				System.arraycopy(values, i + 1, values, i, length);
+				values[--entries] = null;
+			} else {
+				values[i] = value;
+			}
+			return previous;
+		}
+		if (!remove) {
+			i = -1 - i;
+			if (entries == indices.length) {
+				int capacity = Math.max(8, Math.min(size, entries * 2));
+				indices = Arrays.copyOf(indices, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			int length = entries - i;
+			System.arraycopy(indices, i, indices, i + 1, length);
+			System.arraycopy(values, i, values, i + 1, length);
+			indices[i] = index;
+			values[i] = value;
+			if (++entries > denseLimit) toDense();
+		}
+		return type.nullValue;
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		entries = 0;
+		indices = NO_INDICES;
+		values = NO_VALUES;
+		dense = null;
+	}
+
+	@Override
+	public void fill(V value) {
+		checkMutable();
+		if (value == null || isNullValue(value)) {
+			clear();
+		} else {
+			if (!type.checkValue(value)) throw new IllegalArgumentException("invalid value");
+			dense = type.storage().newStore(size, value);
+			entries = size;
+			indices = NO_INDICES;
+			values = NO_VALUES;
+		}
+	}
+
+	@Override
+	public boolean compact() {
+		checkMutable();
+		if (!type.nullGettable) return false;
+		if (dense != null) return dense.compact();
+		if (entries == 0 || indices[entries - 1] == entries - 1) return false;
+		for (int i = 0; i < entries; i++) {
+			indices[i] = i;
+		}
+		return true;
+	}
+
+	@Override
+	public Store<V> resizedCopy(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("negative size");
+		return new SparseStore<>(this, newSize, true);
+	}
+
+	// iteration
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super V> action) {
+		if (dense != null) {
+			dense.forEach(action);
+		} else if (type.nullGettable) {
+			for (int i = 0; i < entries; i++) {
+				action.accept((V) values[i]);
+			}
+		} else {
+			super.forEach(action);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<Integer, ? super V> action) {
+		if (dense != null) {
+			dense.forEach(action);
+		} else if (type.nullGettable) {
+			for (int i = 0; i < entries; i++) {
+				action.accept(indices[i], (V) values[i]);
+			}
+		} else {
+			super.forEach(action);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Spliterator<V> spliterator() {
+		if (dense != null) return dense.spliterator();
+		if (!type.nullGettable) return super.spliterator();
+		return (Spliterator<V>) Spliterators.spliterator(values, 0, entries, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	// mutability
+
+	@Override
+	public boolean isMutable() {
+		return mutable;
+	}
+
+	@Override
+	public Store<V> mutableCopy() {
+		return new SparseStore<>(this, size, true);
+	}
+
+	@Override
+	public Store<V> immutableCopy() {
+		return new SparseStore<>(this, size, false);
+	}
+
+	// private helper methods
+
+	private void checkIndex(int index) {
+		if (index < 0) throw new IllegalArgumentException("negative index");
+		if (index >= size) throw new IllegalArgumentException("index too large");
+	}
+
+	private void checkMutable() {
+		if (!mutable) throw immutableException();
+	}
+
+	private boolean isNullValue(V value) {
+		return value == null || !type.nullGettable && value.equals(type.nullValue);
+	}
+
+	private void toDense() {
+		Store<V> store = type.storage().newStore(size);
+		for (int i = 0; i < entries; i++) {
+			@SuppressWarnings("unchecked")
+			V value = (V) values[i];
+			store.set(indices[i], value);
+		}
+		dense = store;
+		indices = NO_INDICES;
+		values = NO_VALUES;
+	}
+
+	private void toSparse() {
+		int[] indices = new int[Math.max(8, entries)];
+		Object[] values = new Object[indices.length];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			V value = dense.get(i);
+			if (!isNullValue(value)) {
+				indices[count] = i;
+				values[count] = value;
+				count++;
+			}
+		}
+		this.indices = indices;
+		this.values = values;
+		dense = null;
+	}
+
+	// the bits of the sparse values, built from their indices rather than by searching for each bit
+	private BitStore sparseBits() {
+		BitStore bits = Bits.store(size);
+		for (int i = 0; i < entries; i++) {
+			bits.setBit(indices[i], true);
+		}
+		return bits.immutableView();
+	}
+
+	// inner classes
+
+	// a live view of the population, bulk operations read the current sparse indices or dense store
+	private final class Population extends AbstractBitStore {
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean getBit(int index) {
+			return !isNull(index);
+		}
+
+		@Override
+		public long getBits(int position, int count) {
+			if (position < 0) throw new IllegalArgumentException("negative position");
+			if (count < 0) throw new IllegalArgumentException("negative count");
+			if (count > 64) throw new IllegalArgumentException("count too great");
+			if (position + count > size) throw new IllegalArgumentException("position too large");
+			if (dense != null) return dense.population().getBits(position, count);
+			int i = Arrays.binarySearch(indices, 0, entries, position);
+			if (i < 0) i = -1 - i;
+			long bits = 0L;
+			for (int limit = position + count; i < entries && indices[i] < limit; i++) {
+				bits |= 1L << (indices[i] - position);
+			}
+			return bits;
+		}
+
+		@Override
+		public BitMatches ones() {
+			return current().ones();
+		}
+
+		@Override
+		public BitMatches zeros() {
+			return current().zeros();
+		}
+
+		@Override
+		public BitMatches match(boolean bit) {
+			return current().match(bit);
+		}
+
+		@Override
+		public BitStore mutableCopy() {
+			return current().mutableCopy();
+		}
+
+		@Override
+		public BitStore immutableCopy() {
+			return current().immutableCopy();
+		}
+
+		private BitStore current() {
+			return dense == null ? sparseBits() : dense.population();
+		}
+	}
+
+}
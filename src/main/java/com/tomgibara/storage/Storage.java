@@ -16,6 +16,9 @@
  */
 package com.tomgibara.storage;
 
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
 import com.tomgibara.storage.RefStore.RefStorage;
 
 /**
@@ -25,9 +28,10 @@ import com.tomgibara.storage.RefStore.RefStorage;
  *
  * <p>
  * Static methods are provided for creating common and useful types of storage.
- * None of the stores originating from these methods are suitable for use by
- * multiple concurrent threads. Access in those circumstances must be externally
- * synchronized.
+ * With the exception of the stores created by {@link #concurrentWeak()} and
+ * {@link #concurrentSoft()}, none of the stores originating from these methods
+ * are suitable for use by multiple concurrent threads. Access in those
+ * circumstances must be externally synchronized.
  *
  * @author Tom Gibara
  *
@@ -70,6 +74,118 @@ public interface Storage<V> {
 		return (RefStorage<V>) (size, value) -> new SoftRefStore<>(size, value);
 	}
 
+	/**
+	 * <p>
+	 * Genericized storage using weak references that may be safely accessed
+	 * by multiple concurrent threads. The storage returned by this method
+	 * <em>will</em> allow null values.
+	 *
+	 * <p>
+	 * Unlike the stores created by {@link #weak()}, accessing these stores
+	 * does not process cleared references; instead, the references are
+	 * reclaimed in the background by a single daemon thread that is shared by
+	 * all such stores. As a consequence, sizes reported by the stores may
+	 * overestimate the number of values stored.
+	 *
+	 * @param <V>
+	 *            the type of values to be stored
+	 * @return concurrent weak storage
+	 */
+	static <V> Storage<V> concurrentWeak() {
+		return ConcurrentRefStore.newStorage(false);
+	}
+
+	/**
+	 * <p>
+	 * Genericized storage using soft references that may be safely accessed
+	 * by multiple concurrent threads. The storage returned by this method
+	 * <em>will</em> allow null values.
+	 *
+	 * <p>
+	 * Cleared references are reclaimed in the background, as per
+	 * {@link #concurrentWeak()}, so sizes reported by the stores may
+	 * overestimate the number of values stored.
+	 *
+	 * @param <V>
+	 *            the type of values to be stored
+	 * @return concurrent soft storage
+	 */
+	static <V> Storage<V> concurrentSoft() {
+		return ConcurrentRefStore.newStorage(true);
+	}
+
+	/**
+	 * Genericized storage for caches that retain at most the specified number
+	 * of non-null values. Equivalent to calling {@link #cache(int, IntFunction)}
+	 * with a null loader.
+	 *
+	 * @param <V>
+	 *            the type of values to be stored
+	 * @param capacity
+	 *            the maximum number of values retained by each store
+	 * @return cache storage
+	 * @throws IllegalArgumentException
+	 *             if the capacity is not positive
+	 * @see CacheStore
+	 */
+	static <V> Storage<V> cache(int capacity) throws IllegalArgumentException {
+		return cache(capacity, null);
+	}
+
+	/**
+	 * <p>
+	 * Genericized storage for caches that retain at most the specified number
+	 * of non-null values, evicting values as necessary when new values are
+	 * stored. The stores created by this storage implement {@link CacheStore}
+	 * and <em>will</em> allow null values.
+	 *
+	 * <p>
+	 * If a loader is supplied, it is called with the index of any call to
+	 * {@link Store#get(int)} that finds no value; a non-null value returned by
+	 * the loader is stored in the cache before being returned.
+	 *
+	 * @param <V>
+	 *            the type of values to be stored
+	 * @param capacity
+	 *            the maximum number of values retained by each store
+	 * @param loader
+	 *            supplies values for indices that are missing from the cache,
+	 *            or null
+	 * @return cache storage
+	 * @throws IllegalArgumentException
+	 *             if the capacity is not positive
+	 * @see CacheStore
+	 */
+	static <V> Storage<V> cache(int capacity, IntFunction<? extends V> loader) throws IllegalArgumentException {
+		return new ClockStore.ClockStorage<>(capacity, null, loader);
+	}
+
+	/**
+	 * Genericized storage for caches that limit the total weight of the values
+	 * they retain, as per {@link #cache(int, IntFunction)}. The weigher is
+	 * typically an estimate of the number of bytes occupied by a value and
+	 * must return the same non-negative weight each time a value is weighed.
+	 * A single value that exceeds the capacity is retained on its own.
+	 *
+	 * @param <V>
+	 *            the type of values to be stored
+	 * @param capacity
+	 *            the maximum total weight of the values retained by each store
+	 * @param weigher
+	 *            the weight of each value
+	 * @param loader
+	 *            supplies values for indices that are missing from the cache,
+	 *            or null
+	 * @return cache storage
+	 * @throws IllegalArgumentException
+	 *             if the capacity is not positive or the weigher is null
+	 * @see CacheStore
+	 */
+	static <V> Storage<V> weighedCache(long capacity, ToLongFunction<? super V> weigher, IntFunction<? extends V> loader) throws IllegalArgumentException {
+		if (weigher == null) throw new IllegalArgumentException("null weigher");
+		return new ClockStore.ClockStorage<>(capacity, weigher, loader);
+	}
+
 	/**
 	 * Whether the new stores created with this storage are mutable
 	 *
@@ -99,6 +215,99 @@ public interface Storage<V> {
 		return isStorageMutable() ? new MutableStorage<>(this) : this;
 	}
 
+	/**
+	 * Big storage that creates {@link BigStore} instances from chunks of
+	 * {@link BigStorage#DEFAULT_CHUNK_SIZE} values, each of which is created
+	 * by this storage.
+	 *
+	 * @return big storage backed by this storage
+	 * @see #bigStorage(int)
+	 */
+	default BigStorage<V> bigStorage() {
+		return bigStorage(BigStorage.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Big storage that creates {@link BigStore} instances from chunks of the
+	 * specified size, each of which is created by this storage. Smaller chunks
+	 * reduce the cost of allocating stores, larger chunks reduce the cost of
+	 * locating values.
+	 *
+	 * @param chunkSize
+	 *            the number of values in each chunk, a power of two
+	 * @return big storage backed by this storage
+	 * @throws IllegalArgumentException
+	 *             if the chunk size is not a positive power of two
+	 */
+	default BigStorage<V> bigStorage(int chunkSize) throws IllegalArgumentException {
+		return new ChunkedBigStore.ChunkedStorage<>(this, chunkSize);
+	}
+
+	/**
+	 * Storage that creates copy-on-write stores from pages of
+	 * {@link #copyOnWrite(int) a default size}, each of which is created by
+	 * this storage.
+	 *
+	 * @return copy-on-write storage backed by this storage
+	 * @see #copyOnWrite(int)
+	 */
+	default Storage<V> copyOnWrite() {
+		return copyOnWrite(CopyOnWriteStore.DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * <p>
+	 * Storage that creates copy-on-write stores from pages of the specified
+	 * size, each of which is created by this storage. Copies of these stores,
+	 * including those made by {@link Store#mutableCopy()},
+	 * {@link Store#immutableCopy()} and {@link Store#resizedCopy(int)}, share
+	 * pages with the original store. A page is only copied when it is first
+	 * modified through a store that shares it.
+	 *
+	 * <p>
+	 * This makes copies of large stores inexpensive, so that consistent
+	 * snapshots may be taken frequently, at the cost of an additional
+	 * indirection for every access. Smaller pages reduce the cost of
+	 * modifications after copying, larger pages reduce the cost of copying.
+	 *
+	 * @param pageSize
+	 *            the number of values in each page, a power of two
+	 * @return copy-on-write storage backed by this storage
+	 * @throws IllegalArgumentException
+	 *             if the page size is not a positive power of two
+	 */
+	default Storage<V> copyOnWrite(int pageSize) throws IllegalArgumentException {
+		return new CopyOnWriteStore.CopyOnWriteStorage<>(this, pageSize);
+	}
+
+	/**
+	 * A builder that accumulates values into chunks created by this storage
+	 * before producing a store of the values. Equivalent to calling
+	 * {@link #newBuilder(int)} with a small default capacity.
+	 *
+	 * @return a new store builder
+	 */
+	default StoreBuilder<V> newBuilder() {
+		return newBuilder(ChunkedStoreBuilder.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * A builder that accumulates values into chunks created by this storage
+	 * before producing a store of the values. The first chunk has the
+	 * specified capacity; if exactly that many values are appended, the store
+	 * produced by {@link StoreBuilder#seal()} is that chunk and no values are
+	 * copied.
+	 *
+	 * @param initialCapacity
+	 *            the number of values the builder can hold before it grows
+	 * @return a new store builder
+	 * @throws IllegalArgumentException
+	 *             if the initial capacity is not positive
+	 */
+	default StoreBuilder<V> newBuilder(int initialCapacity) throws IllegalArgumentException {
+		return new ChunkedStoreBuilder<>(this, initialCapacity);
+	}
+
 	/**
 	 * The type of stores created with this storage.
 	 *
@@ -19,6 +19,7 @@ package com.tomgibara.storage;
 import static com.tomgibara.storage.Stores.immutableException;
 
 import java.util.AbstractList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterator;
@@ -317,6 +318,29 @@ public interface Store<V> extends Iterable<V>, Mutability<Store<V>>, Transposabl
 		};
 	}
 
+	/**
+	 * <p>
+	 * An index over the {@link #population()} of this store that answers rank
+	 * and select queries without scanning the store. This makes it possible to
+	 * locate the n-th non-null value, or to count the non-null values that
+	 * precede an index, in time that is at worst logarithmic in the size of the
+	 * store.
+	 *
+	 * <p>
+	 * Stores may maintain the index as values are set, in which case the
+	 * returned index is a live view of the population and repeated calls are
+	 * cheap; mutable nullable stores created by {@link StoreType#storage()}
+	 * do this. Operations that modify many values at once, such as filling the
+	 * store, cause a maintained index to be rebuilt when it is next queried.
+	 * The default implementation builds an index from the current population
+	 * of the store that does not reflect subsequent changes.
+	 *
+	 * @return an index over the population of the store
+	 */
+	default PopulationIndex populationIndex() {
+		return RankIndex.snapshot(this);
+	}
+
 	/**
 	 * <p>
 	 * A store consisting of the indexed values in the specified range. The
@@ -503,17 +527,289 @@ public interface Store<V> extends Iterable<V>, Mutability<Store<V>>, Transposabl
 		int size = store.size();
 		if (!type().nullSettable && store.count() < store.size()) throw new IllegalAccessError("null not settable");
 		if (position + size > size()) throw new IllegalArgumentException("position too large");
-		if (position == 0) {
-			for (int i = 0; i < size; i++) {
-				set(i, store.get(i));
-			}
-		} else {
-			for (int i = 0; i < size; i++) {
-				set(i, store.get(position + i));
-			}
+		for (int i = 0; i < size; i++) {
+			set(position + i, store.get(i));
 		}
 	}
 
+	/**
+	 * <p>
+	 * Assigns every index the same value, possibly using multiple threads. The
+	 * effect is the same as calling {@link #fill(Object)}.
+	 *
+	 * <p>
+	 * Stores that are backed by arrays or by packed bits divide very large
+	 * stores into partitions that do not share any words of memory and fill
+	 * them concurrently. The partitions are processed by the fork-join pool in
+	 * which this method is invoked, or the common pool if it is not invoked
+	 * from within a pool. The store should not be accessed by other threads
+	 * during the operation. The default implementation simply calls
+	 * {@link #fill(Object)}.
+	 *
+	 * @param value
+	 *            the value to be assigned to every index
+	 * @see #fill(Object)
+	 */
+	default void parallelFill(V value) {
+		fill(value);
+	}
+
+	/**
+	 * Writes the values from another store into this store at a specified
+	 * position, possibly using multiple threads. The effect is the same as
+	 * calling {@link #setStore(int, Store)}, and the store is partitioned as
+	 * per {@link #parallelFill(Object)}. The supplied store is read
+	 * concurrently, and so must support concurrent reads. The supplied store
+	 * may be a range of this store, even one that overlaps the range being
+	 * written. The default implementation calls {@link #setStore(int, Store)},
+	 * first taking an immutable copy of the supplied store if it is backed by
+	 * this store.
+	 *
+	 * @param position
+	 *            the position at which the first store values should be set
+	 * @param store
+	 *            the store that provides the values to set.
+	 * @see #setStore(int, Store)
+	 */
+	default <W extends V> void parallelSetStore(int position, Store<W> store) {
+		setStore(position, store != null && Stores.underlying(store) == this ? store.immutableCopy() : store);
+	}
+
+	/**
+	 * Sorts the values of the store into their natural order. Equivalent to
+	 * calling {@link #sort(Comparator)} with a null comparator.
+	 *
+	 * @throws ClassCastException
+	 *             if the values of the store are not mutually comparable
+	 */
+	default void sort() {
+		sort(null);
+	}
+
+	/**
+	 * <p>
+	 * Sorts the values of the store into the order induced by the supplied
+	 * comparator. Null values are never supplied to the comparator; instead
+	 * all null values are moved to the end of the store, after every non-null
+	 * value. The sort is stable.
+	 *
+	 * <p>
+	 * Stores created by {@link StoreType#storage()} sort their backing arrays
+	 * directly, and small value stores and enum stores sort their values with
+	 * a counting sort, but only when sorting into natural order. The default
+	 * implementation copies the non-null values out of the store, sorts them,
+	 * and sets them back into the store.
+	 *
+	 * @param comparator
+	 *            the comparator used to order non-null values, or null to
+	 *            sort values into their natural order
+	 * @throws ClassCastException
+	 *             if no comparator is supplied and the values of the store are
+	 *             not mutually comparable
+	 */
+	default void sort(Comparator<? super V> comparator) {
+		Stores.sortStore(this, comparator, false);
+	}
+
+	/**
+	 * Sorts the values of the store into their natural order, possibly using
+	 * multiple threads. The effect is the same as calling {@link #sort()}.
+	 * Sorting is performed as per <code>Arrays.parallelSort</code>, which uses
+	 * the common fork-join pool.
+	 *
+	 * @throws ClassCastException
+	 *             if the values of the store are not mutually comparable
+	 */
+	default void parallelSort() {
+		Stores.sortStore(this, null, true);
+	}
+
+	/**
+	 * The indices of the store in the order that sorts its values into their
+	 * natural order. Equivalent to calling {@link #sortIndices(Comparator)}
+	 * with a null comparator.
+	 *
+	 * @return a store of indices
+	 * @throws ClassCastException
+	 *             if the values of the store are not mutually comparable
+	 */
+	default Store<Integer> sortIndices() {
+		return sortIndices(null);
+	}
+
+	/**
+	 * <p>
+	 * The indices of the store in the order that sorts its values, leaving
+	 * the store unmodified. The values are ordered as per
+	 * {@link #sort(Comparator)}, with nulls last and equal values remaining in
+	 * index order, so that for every index <code>i</code> the value
+	 * <code>get(indices.get(i))</code> equals the value that would be at index
+	 * <code>i</code> after sorting. The returned store is a mutable int store
+	 * which does not allow nulls.
+	 *
+	 * <p>
+	 * When ordering by natural order, primitive stores sort their values
+	 * without boxing them, and small value stores and enum stores derive the
+	 * indices from a counting sort. Otherwise, the default implementation
+	 * sorts boxed indices by comparing the values of the store.
+	 *
+	 * @param comparator
+	 *            the comparator used to order non-null values, or null to
+	 *            order values by their natural order
+	 * @return a permutation of the store indices
+	 * @throws ClassCastException
+	 *             if no comparator is supplied and the values of the store are
+	 *             not mutually comparable
+	 */
+	default Store<Integer> sortIndices(Comparator<? super V> comparator) {
+		return Stores.sortIndices(this, comparator);
+	}
+
+	/**
+	 * Searches a store that has been sorted into the natural order of its
+	 * values. Equivalent to calling {@link #binarySearch(Object, Comparator)}
+	 * with a null comparator.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @return the index of the key, or <code>(-(insertion point) - 1)</code>
+	 * @throws ClassCastException
+	 *             if the key is not comparable with the values of the store
+	 */
+	default int binarySearch(V key) {
+		return binarySearch(key, null);
+	}
+
+	/**
+	 * <p>
+	 * Searches a store that has been sorted as per {@link #sort(Comparator)}
+	 * for the supplied key. Null values are treated as being greater than
+	 * every non-null value. If the store is not sorted, the result is
+	 * undefined.
+	 *
+	 * <p>
+	 * Unlike <code>Arrays.binarySearch</code>, the index returned for a key
+	 * that occurs more than once is always the lowest index at which it
+	 * occurs. If the key does not occur, the value returned is
+	 * <code>(-(insertion point) - 1)</code> where the insertion point is
+	 * given by {@link #lowerBound(Object, Comparator)}.
+	 *
+	 * <p>
+	 * Stores created by {@link StoreType#storage()} search their backing
+	 * arrays directly, and small value stores and enum stores search their
+	 * packed values, but only when searching by natural order; values are not
+	 * boxed. These optimizations are also available to ranges of such stores.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @param comparator
+	 *            the comparator by which the store is ordered, or null if the
+	 *            store is in the natural order of its values
+	 * @return the index of the key, or <code>(-(insertion point) - 1)</code>
+	 * @throws IllegalArgumentException
+	 *             if the key is null
+	 * @throws ClassCastException
+	 *             if no comparator is supplied and the key is not comparable
+	 *             with the values of the store
+	 */
+	default int binarySearch(V key, Comparator<? super V> comparator) {
+		return Stores.search(this, key, comparator, Stores.SEARCH_MATCH);
+	}
+
+	/**
+	 * The lowest index in a store sorted by natural order at which a value is
+	 * not less than the key. Equivalent to calling
+	 * {@link #lowerBound(Object, Comparator)} with a null comparator.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @return an index between zero and the size of the store inclusive
+	 * @throws ClassCastException
+	 *             if the key is not comparable with the values of the store
+	 */
+	default int lowerBound(V key) {
+		return lowerBound(key, null);
+	}
+
+	/**
+	 * The lowest index in a sorted store at which the value is not less than
+	 * the key, or the size of the store if there is no such index. The store
+	 * is searched as per {@link #binarySearch(Object, Comparator)}.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @param comparator
+	 *            the comparator by which the store is ordered, or null if the
+	 *            store is in the natural order of its values
+	 * @return an index between zero and the size of the store inclusive
+	 * @throws IllegalArgumentException
+	 *             if the key is null
+	 * @throws ClassCastException
+	 *             if no comparator is supplied and the key is not comparable
+	 *             with the values of the store
+	 */
+	default int lowerBound(V key, Comparator<? super V> comparator) {
+		return Stores.search(this, key, comparator, Stores.SEARCH_LOWER);
+	}
+
+	/**
+	 * The lowest index in a store sorted by natural order at which a value is
+	 * greater than the key. Equivalent to calling
+	 * {@link #upperBound(Object, Comparator)} with a null comparator.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @return an index between zero and the size of the store inclusive
+	 * @throws ClassCastException
+	 *             if the key is not comparable with the values of the store
+	 */
+	default int upperBound(V key) {
+		return upperBound(key, null);
+	}
+
+	/**
+	 * The lowest index in a sorted store at which the value is greater than
+	 * the key, or the size of the store if there is no such index. Null values
+	 * are greater than every key. The store is searched as per
+	 * {@link #binarySearch(Object, Comparator)}.
+	 *
+	 * @param key
+	 *            the non-null value to search for
+	 * @param comparator
+	 *            the comparator by which the store is ordered, or null if the
+	 *            store is in the natural order of its values
+	 * @return an index between zero and the size of the store inclusive
+	 * @throws IllegalArgumentException
+	 *             if the key is null
+	 * @throws ClassCastException
+	 *             if no comparator is supplied and the key is not comparable
+	 *             with the values of the store
+	 */
+	default int upperBound(V key, Comparator<? super V> comparator) {
+		return Stores.search(this, key, comparator, Stores.SEARCH_UPPER);
+	}
+
+	/**
+	 * The number of values in a store sorted by natural order that are not
+	 * less than <code>from</code> and are less than <code>to</code>. This is
+	 * computed from the lower bounds of the two keys, and is zero if
+	 * <code>to</code> is not greater than <code>from</code>.
+	 *
+	 * @param from
+	 *            the inclusive lower limit of the values counted
+	 * @param to
+	 *            the exclusive upper limit of the values counted
+	 * @return the number of values within the range
+	 * @throws IllegalArgumentException
+	 *             if either key is null
+	 * @throws ClassCastException
+	 *             if a key is not comparable with the values of the store
+	 * @see #lowerBound(Object)
+	 */
+	default int countInRange(V from, V to) {
+		return Math.max(0, lowerBound(to) - lowerBound(from));
+	}
+
 	// iterable methods
 
 	/**
@@ -567,6 +863,24 @@ public interface Store<V> extends Iterable<V>, Mutability<Store<V>>, Transposabl
 		}
 	}
 
+	/**
+	 * Performs the given action over all non-null position values in the
+	 * store without boxing the positions. To also avoid boxing primitive
+	 * values, use the <code>forEach</code> methods of the unboxed accessors
+	 * such as {@link StoreAccessors.StoreInts#forEachInt(int, int, StoreAccessors.IntIntConsumer)}.
+	 *
+	 * @param action
+	 *            the action to be performed for each non-null value
+	 * @see StoreAccessors
+	 */
+	public default void forEachIndexed(StoreAccessors.IntObjConsumer<? super V> action) {
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			V v = get(i);
+			if (v != null) action.accept(i, v);
+		}
+	}
+
 	@Override
 	public default Spliterator<V> spliterator() {
 		return new StoreSpliterator<>(this);
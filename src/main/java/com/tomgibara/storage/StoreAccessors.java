@@ -16,6 +16,17 @@
  */
 package com.tomgibara.storage;
 
+import java.lang.reflect.Array;
+import java.util.Spliterator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import com.tomgibara.bits.BitStore;
+
 public final class StoreAccessors {
 
 	public static StoreBytes bytesFor(Store<?> store) {
@@ -70,48 +81,268 @@ public final class StoreAccessors {
 		boolean isByte(int index);
 		byte getByte(int index);
 		void setByte(int index, byte value);
+
+		default void getBytes(int from, byte[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getByte(from + i);
+			}
+		}
+
+		default void setBytes(int from, byte[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setByte(from + i, src[offset + i]);
+			}
+		}
 	}
 
 	public interface StoreShorts {
 		boolean isShort(int index);
 		short getShort(int index);
 		void setShort(int index, short value);
+
+		default void getShorts(int from, short[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getShort(from + i);
+			}
+		}
+
+		default void setShorts(int from, short[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setShort(from + i, src[offset + i]);
+			}
+		}
 	}
 
 	public interface StoreInts {
 		boolean isInt(int index);
 		int getInt(int index);
 		void setInt(int index, int value);
+
+		default void getInts(int from, int[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getInt(from + i);
+			}
+		}
+
+		default void setInts(int from, int[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setInt(from + i, src[offset + i]);
+			}
+		}
+
+		// indices at which there is no int value, such as nulls, are skipped
+		default void forEachInt(int from, int to, IntIntConsumer action) {
+			for (int i = from; i < to; i++) {
+				if (isInt(i)) action.accept(i, getInt(i));
+			}
+		}
 	}
 
 	public interface StoreLongs {
 		boolean isLong(int index);
 		long getLong(int index);
 		void setLong(int index, long value);
+
+		default void getLongs(int from, long[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getLong(from + i);
+			}
+		}
+
+		default void setLongs(int from, long[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setLong(from + i, src[offset + i]);
+			}
+		}
+
+		// indices at which there is no long value, such as nulls, are skipped
+		default void forEachLong(int from, int to, IntLongConsumer action) {
+			for (int i = from; i < to; i++) {
+				if (isLong(i)) action.accept(i, getLong(i));
+			}
+		}
+	}
+
+	// consumers of indexed values which avoid boxing
+
+	public interface IntIntConsumer {
+		void accept(int index, int value);
+	}
+
+	public interface IntLongConsumer {
+		void accept(int index, long value);
+	}
+
+	public interface IntDoubleConsumer {
+		void accept(int index, double value);
+	}
+
+	public interface IntObjConsumer<V> {
+		void accept(int index, V value);
+	}
+
+	// streams of unboxed values, these skip null values
+
+	public static IntStream intStream(Store<?> store) {
+		if (store == null) throw new IllegalArgumentException("null store");
+		Spliterator<?> s = store.spliterator();
+		if (s instanceof Spliterator.OfInt) return StreamSupport.intStream((Spliterator.OfInt) s, false);
+		return StreamSupport.intStream(new PrimitiveSpliterator.Ints(intsFor(store), populationOf(store), 0, store.size()), false);
+	}
+
+	public static LongStream longStream(Store<?> store) {
+		if (store == null) throw new IllegalArgumentException("null store");
+		Spliterator<?> s = store.spliterator();
+		if (s instanceof Spliterator.OfLong) return StreamSupport.longStream((Spliterator.OfLong) s, false);
+		return StreamSupport.longStream(new PrimitiveSpliterator.Longs(longsFor(store), populationOf(store), 0, store.size()), false);
+	}
+
+	public static DoubleStream doubleStream(Store<?> store) {
+		if (store == null) throw new IllegalArgumentException("null store");
+		Spliterator<?> s = store.spliterator();
+		if (s instanceof Spliterator.OfDouble) return StreamSupport.doubleStream((Spliterator.OfDouble) s, false);
+		return StreamSupport.doubleStream(new PrimitiveSpliterator.Doubles(doublesFor(store), populationOf(store), 0, store.size()), false);
+	}
+
+	public interface AtomicStoreInts extends StoreInts {
+		void lazySetInt(int index, int value);
+		int getAndSetInt(int index, int value);
+		boolean compareAndSetInt(int index, int expect, int update);
+		int getAndAddInt(int index, int delta);
+		int addAndGetInt(int index, int delta);
+		int getAndUpdateInt(int index, IntUnaryOperator update);
+		int updateAndGetInt(int index, IntUnaryOperator update);
+	}
+
+	public interface AtomicStoreLongs extends StoreLongs {
+		void lazySetLong(int index, long value);
+		long getAndSetLong(int index, long value);
+		boolean compareAndSetLong(int index, long expect, long update);
+		long getAndAddLong(int index, long delta);
+		long addAndGetLong(int index, long delta);
+		long getAndUpdateLong(int index, LongUnaryOperator update);
+		long updateAndGetLong(int index, LongUnaryOperator update);
 	}
 
 	public interface StoreBooleans {
 		boolean isBoolean(int index);
 		boolean getBoolean(int index);
 		void setBoolean(int index, boolean value);
+
+		default void getBooleans(int from, boolean[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getBoolean(from + i);
+			}
+		}
+
+		default void setBooleans(int from, boolean[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setBoolean(from + i, src[offset + i]);
+			}
+		}
 	}
 
 	public interface StoreChars {
 		boolean isChar(int index);
 		char getChar(int index);
 		void setChar(int index, char value);
+
+		default void getChars(int from, char[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getChar(from + i);
+			}
+		}
+
+		default void setChars(int from, char[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setChar(from + i, src[offset + i]);
+			}
+		}
 	}
 
 	public interface StoreFloats {
 		boolean isFloat(int index);
 		float getFloat(int index);
 		void setFloat(int index, float value);
+
+		default void getFloats(int from, float[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getFloat(from + i);
+			}
+		}
+
+		default void setFloats(int from, float[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setFloat(from + i, src[offset + i]);
+			}
+		}
 	}
 
 	public interface StoreDoubles {
 		boolean isDouble(int index);
 		double getDouble(int index);
 		void setDouble(int index, double value);
+
+		default void getDoubles(int from, double[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getDouble(from + i);
+			}
+		}
+
+		default void setDoubles(int from, double[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			for (int i = 0; i < length; i++) {
+				setDouble(from + i, src[offset + i]);
+			}
+		}
+
+		// indices at which there is no double value, such as nulls, are skipped
+		default void forEachDouble(int from, int to, IntDoubleConsumer action) {
+			for (int i = from; i < to; i++) {
+				if (isDouble(i)) action.accept(i, getDouble(i));
+			}
+		}
+	}
+
+	// checks the array portion of a bulk transfer, stores are responsible for checking their own range
+	static void checkArray(Object array, int offset, int length) {
+		if (array == null) throw new IllegalArgumentException("null array");
+		if (offset < 0) throw new IllegalArgumentException("negative offset");
+		if (length < 0) throw new IllegalArgumentException("negative length");
+		if (length > Array.getLength(array) - offset) throw new IllegalArgumentException("array too short");
+	}
+
+	// checks the store portion of a bulk transfer
+	static void checkRange(int size, int from, int length) {
+		if (from < 0) throw new IllegalArgumentException("negative from");
+		if (length > size - from) throw new IllegalArgumentException("length too great");
+	}
+
+	// checks the range of an iteration
+	static void checkBounds(int size, int from, int to) {
+		if (from < 0) throw new IllegalArgumentException("negative from");
+		if (to < from) throw new IllegalArgumentException("to less than from");
+		if (to > size) throw new IllegalArgumentException("to too large");
+	}
+
+	// null if the store cannot contain nulls
+	private static BitStore populationOf(Store<?> store) {
+		return store.type().nullGettable ? store.population() : null;
 	}
 
 	private StoreAccessors() {}
@@ -145,6 +376,24 @@ public final class StoreAccessors {
 			((Store<Object>)store).set(index, value);
 		}
 
+		@Override
+		public void getBooleans(int from, boolean[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			checkRange(store.size(), from, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getBoolean(from + i);
+			}
+		}
+
+		@Override
+		public void setBooleans(int from, boolean[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			checkRange(store.size(), from, length);
+			for (int i = 0; i < length; i++) {
+				setBoolean(from + i, src[offset + i]);
+			}
+		}
+
 	}
 
 	private static final class CharAccessor implements StoreChars {
@@ -176,5 +425,23 @@ public final class StoreAccessors {
 			((Store<Object>)store).set(index, value);
 		}
 
+		@Override
+		public void getChars(int from, char[] dest, int offset, int length) {
+			checkArray(dest, offset, length);
+			checkRange(store.size(), from, length);
+			for (int i = 0; i < length; i++) {
+				dest[offset + i] = getChar(from + i);
+			}
+		}
+
+		@Override
+		public void setChars(int from, char[] src, int offset, int length) {
+			checkArray(src, offset, length);
+			checkRange(store.size(), from, length);
+			for (int i = 0; i < length; i++) {
+				setChar(from + i, src[offset + i]);
+			}
+		}
+
 	}
 }
@@ -0,0 +1,764 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Static methods for aggregating the numeric values of a store. Null values
+ * are ignored by every aggregation.
+ *
+ * <p>
+ * Stores created by this package supply their values to aggregations without
+ * boxing them: primitive stores are aggregated directly from their arrays,
+ * stores that permit nulls are aggregated over runs of populated values, and
+ * small value stores are decoded in chunks, with binary stores counted from
+ * their bits. Other stores are aggregated by retrieving each value.
+ *
+ * <p>
+ * The parallel methods split large stores into ranges which are aggregated
+ * concurrently in the common fork-join pool. Stores that cannot be safely read
+ * by multiple threads are aggregated sequentially. In every case, the store
+ * must not be modified while it is being aggregated.
+ *
+ * @author Tom Gibara
+ *
+ */
+public final class StoreAggregates {
+
+	// stores smaller than this are not split for parallel aggregation
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	// the number of leaf tasks per worker; each leaf creates its own aggregator
+	private static final int TASKS_PER_WORKER = 4;
+
+	/**
+	 * Summary statistics for values aggregated as longs.
+	 */
+	public static final class LongSummary {
+
+		private final long count;
+		private final long sum;
+		private final long min;
+		private final long max;
+
+		LongSummary(long count, long sum, long min, long max) {
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+		/**
+		 * The number of non-null values aggregated.
+		 *
+		 * @return the count of values
+		 */
+		public long count() {
+			return count;
+		}
+
+		/**
+		 * The sum of the values. The sum is not checked for overflow.
+		 *
+		 * @return the sum of the values, or zero if there were no values
+		 */
+		public long sum() {
+			return sum;
+		}
+
+		/**
+		 * The least value.
+		 *
+		 * @return the minimum value, or {@code Long.MAX_VALUE} if there were no
+		 *         values
+		 */
+		public long min() {
+			return min;
+		}
+
+		/**
+		 * The greatest value.
+		 *
+		 * @return the maximum value, or {@code Long.MIN_VALUE} if there were no
+		 *         values
+		 */
+		public long max() {
+			return max;
+		}
+
+		/**
+		 * The arithmetic mean of the values.
+		 *
+		 * @return the mean value, or zero if there were no values
+		 */
+		public double mean() {
+			return count == 0L ? 0.0 : (double) sum / count;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(count) + 31 * (Long.hashCode(sum) + 31 * (Long.hashCode(min) + 31 * Long.hashCode(max)));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof LongSummary)) return false;
+			LongSummary that = (LongSummary) obj;
+			return this.count == that.count && this.sum == that.sum && this.min == that.min && this.max == that.max;
+		}
+
+		@Override
+		public String toString() {
+			return "count: " + count + ", sum: " + sum + ", min: " + min + ", max: " + max;
+		}
+
+	}
+
+	/**
+	 * Summary statistics for values aggregated as doubles.
+	 */
+	public static final class DoubleSummary {
+
+		private final long count;
+		private final double sum;
+		private final double min;
+		private final double max;
+
+		DoubleSummary(long count, double sum, double min, double max) {
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+		/**
+		 * The number of non-null values aggregated.
+		 *
+		 * @return the count of values
+		 */
+		public long count() {
+			return count;
+		}
+
+		/**
+		 * The sum of the values. Values may be summed in any order, so sums
+		 * computed in parallel may differ by rounding errors.
+		 *
+		 * @return the sum of the values, or zero if there were no values
+		 */
+		public double sum() {
+			return sum;
+		}
+
+		/**
+		 * The least value.
+		 *
+		 * @return the minimum value, or {@code Double.POSITIVE_INFINITY} if
+		 *         there were no values
+		 */
+		public double min() {
+			return min;
+		}
+
+		/**
+		 * The greatest value.
+		 *
+		 * @return the maximum value, or {@code Double.NEGATIVE_INFINITY} if
+		 *         there were no values
+		 */
+		public double max() {
+			return max;
+		}
+
+		/**
+		 * The arithmetic mean of the values.
+		 *
+		 * @return the mean value, or zero if there were no values
+		 */
+		public double mean() {
+			return count == 0L ? 0.0 : sum / count;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(count) + 31 * (Double.hashCode(sum) + 31 * (Double.hashCode(min) + 31 * Double.hashCode(max)));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof DoubleSummary)) return false;
+			DoubleSummary that = (DoubleSummary) obj;
+			return this.count == that.count
+					&& Double.compare(this.sum, that.sum) == 0
+					&& Double.compare(this.min, that.min) == 0
+					&& Double.compare(this.max, that.max) == 0;
+		}
+
+		@Override
+		public String toString() {
+			return "count: " + count + ", sum: " + sum + ", min: " + min + ", max: " + max;
+		}
+
+	}
+
+	/**
+	 * The sum of the non-null values in a store, each converted with
+	 * {@link Number#longValue()}.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @return the sum of the values
+	 */
+	public static long sum(Store<? extends Number> store) {
+		return summary(store).sum();
+	}
+
+	/**
+	 * Summarizes the non-null values in a store, each converted with
+	 * {@link Number#longValue()}. The summary provides the count, sum, minimum
+	 * and maximum of the values.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @return a summary of the values
+	 */
+	public static LongSummary summary(Store<? extends Number> store) {
+		return aggregate(store, new LongAggregator(), false).summary();
+	}
+
+	/**
+	 * Summarizes the non-null values in a store, each converted with
+	 * {@link Number#doubleValue()}.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @return a summary of the values
+	 */
+	public static DoubleSummary doubleSummary(Store<? extends Number> store) {
+		return aggregate(store, new DoubleAggregator(), false).summary();
+	}
+
+	/**
+	 * Counts the occurrences of each value in a store. Each non-null value is
+	 * converted with {@link Number#longValue()} and must lie in the range
+	 * {@code [0, range)}.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @param range
+	 *            the exclusive upper bound on the values
+	 * @return an array of length {@code range} containing the number of
+	 *         occurrences of each value
+	 * @throws IllegalArgumentException
+	 *             if the range is negative or a value lies outside the range
+	 */
+	public static long[] histogram(Store<? extends Number> store, int range) throws IllegalArgumentException {
+		return aggregate(store, new HistogramAggregator(checkedRange(range)), false).counts;
+	}
+
+	/**
+	 * Equivalent to {@link #summary(Store)} but aggregates large stores in
+	 * parallel.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @return a summary of the values
+	 */
+	public static LongSummary parallelSummary(Store<? extends Number> store) {
+		return aggregate(store, new LongAggregator(), true).summary();
+	}
+
+	/**
+	 * Equivalent to {@link #doubleSummary(Store)} but aggregates large stores
+	 * in parallel.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @return a summary of the values
+	 */
+	public static DoubleSummary parallelDoubleSummary(Store<? extends Number> store) {
+		return aggregate(store, new DoubleAggregator(), true).summary();
+	}
+
+	/**
+	 * Equivalent to {@link #histogram(Store, int)} but aggregates large stores
+	 * in parallel.
+	 *
+	 * @param store
+	 *            a store of numbers
+	 * @param range
+	 *            the exclusive upper bound on the values
+	 * @return an array of length {@code range} containing the number of
+	 *         occurrences of each value
+	 * @throws IllegalArgumentException
+	 *             if the range is negative or a value lies outside the range
+	 */
+	public static long[] parallelHistogram(Store<? extends Number> store, int range) throws IllegalArgumentException {
+		return aggregate(store, new HistogramAggregator(checkedRange(range)), true).counts;
+	}
+
+	// private helper methods
+
+	private static int checkedRange(int range) {
+		if (range < 0) throw new IllegalArgumentException("negative range");
+		return range;
+	}
+
+	private static <A extends Aggregator> A aggregate(Store<? extends Number> store, A aggregator, boolean parallel) {
+		if (store == null) throw new IllegalArgumentException("null store");
+		int size = store.size();
+		if (store instanceof AbstractStore) {
+			AbstractStore<?> s = (AbstractStore<?>) store;
+			// an empty range probes whether the store supports aggregation
+			if (parallel && size > PARALLEL_THRESHOLD && s.aggregate(0, 0, aggregator)) {
+				// bounding the number of leaves bounds the number of aggregators (eg. histogram arrays) created
+				int leaves = ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_WORKER;
+				int threshold = Math.max(PARALLEL_THRESHOLD, (size - 1) / leaves + 1);
+				ForkJoinPool.commonPool().invoke(new AggregateTask(s, 0, size, threshold, aggregator));
+				return aggregator;
+			}
+			if (s.aggregate(0, size, aggregator)) return aggregator;
+		}
+		for (int i = 0; i < size; i++) {
+			Number value = store.get(i);
+			if (value != null) aggregator.accept(value);
+		}
+		return aggregator;
+	}
+
+	private StoreAggregates() {}
+
+	// inner classes
+
+	// receives the non-null values of a store, stores supply values via AbstractStore.aggregate
+	static abstract class Aggregator {
+
+		// returns false if the array is not of a numeric type
+		final boolean accept(Object array, int from, int to) {
+			if (array instanceof int[]   ) { accept((int[]   ) array, from, to); return true; }
+			if (array instanceof long[]  ) { accept((long[]  ) array, from, to); return true; }
+			if (array instanceof double[]) { accept((double[]) array, from, to); return true; }
+			if (array instanceof byte[]  ) { accept((byte[]  ) array, from, to); return true; }
+			if (array instanceof short[] ) { accept((short[] ) array, from, to); return true; }
+			if (array instanceof float[] ) { accept((float[] ) array, from, to); return true; }
+			return false;
+		}
+
+		abstract void accept(byte[] values, int from, int to);
+
+		abstract void accept(short[] values, int from, int to);
+
+		abstract void accept(int[] values, int from, int to);
+
+		abstract void accept(long[] values, int from, int to);
+
+		abstract void accept(float[] values, int from, int to);
+
+		abstract void accept(double[] values, int from, int to);
+
+		// a number of occurrences of the same value
+		abstract void accept(int value, int count);
+
+		abstract void accept(Number value);
+
+		// an empty aggregator of the same kind
+		abstract Aggregator create();
+
+		// the aggregator was created by this aggregator
+		abstract void combine(Aggregator that);
+
+	}
+
+	private static final class LongAggregator extends Aggregator {
+
+		private long count = 0L;
+		private long sum = 0L;
+		private long min = Long.MAX_VALUE;
+		private long max = Long.MIN_VALUE;
+
+		@Override
+		void accept(byte[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(short[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(int[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(long[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(float[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = (long) values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(double[] values, int from, int to) {
+			long sum = this.sum;
+			long min = this.min;
+			long max = this.max;
+			for (int i = from; i < to; i++) {
+				long v = (long) values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(int value, int count) {
+			if (count == 0) return;
+			record(count, sum + (long) value * count, Math.min(min, value), Math.max(max, value));
+		}
+
+		@Override
+		void accept(Number value) {
+			long v = value.longValue();
+			record(1, sum + v, Math.min(min, v), Math.max(max, v));
+		}
+
+		@Override
+		LongAggregator create() {
+			return new LongAggregator();
+		}
+
+		@Override
+		void combine(Aggregator aggregator) {
+			LongAggregator that = (LongAggregator) aggregator;
+			count += that.count;
+			record(0, sum + that.sum, Math.min(min, that.min), Math.max(max, that.max));
+		}
+
+		LongSummary summary() {
+			return new LongSummary(count, sum, min, max);
+		}
+
+		private void record(int count, long sum, long min, long max) {
+			this.count += count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+	}
+
+	private static final class DoubleAggregator extends Aggregator {
+
+		private long count = 0L;
+		private double sum = 0.0;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+
+		@Override
+		void accept(byte[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(short[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(int[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(long[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(float[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(double[] values, int from, int to) {
+			double sum = this.sum;
+			double min = this.min;
+			double max = this.max;
+			for (int i = from; i < to; i++) {
+				double v = values[i];
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			record(to - from, sum, min, max);
+		}
+
+		@Override
+		void accept(int value, int count) {
+			if (count == 0) return;
+			record(count, sum + (double) value * count, Math.min(min, value), Math.max(max, value));
+		}
+
+		@Override
+		void accept(Number value) {
+			double v = value.doubleValue();
+			record(1, sum + v, Math.min(min, v), Math.max(max, v));
+		}
+
+		@Override
+		DoubleAggregator create() {
+			return new DoubleAggregator();
+		}
+
+		@Override
+		void combine(Aggregator aggregator) {
+			DoubleAggregator that = (DoubleAggregator) aggregator;
+			count += that.count;
+			record(0, sum + that.sum, Math.min(min, that.min), Math.max(max, that.max));
+		}
+
+		DoubleSummary summary() {
+			return new DoubleSummary(count, sum, min, max);
+		}
+
+		private void record(int count, double sum, double min, double max) {
+			this.count += count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+	}
+
+	private static final class HistogramAggregator extends Aggregator {
+
+		final long[] counts;
+
+		HistogramAggregator(int range) {
+			counts = new long[range];
+		}
+
+		@Override
+		void accept(byte[] values, int from, int to) {
+			for (int i = from; i < to; i++) {
+				count(values[i]);
+			}
+		}
+
+		@Override
+		void accept(short[] values, int from, int to) {
+			for (int i = from; i < to; i++) {
+				count(values[i]);
+			}
+		}
+
+		@Override
+		void accept(int[] values, int from, int to) {
+			long[] counts = this.counts;
+			for (int i = from; i < to; i++) {
+				int v = values[i];
+				if (v < 0 || v >= counts.length) throw new IllegalArgumentException("value out of range");
+				counts[v]++;
+			}
+		}
+
+		@Override
+		void accept(long[] values, int from, int to) {
+			for (int i = from; i < to; i++) {
+				count(values[i]);
+			}
+		}
+
+		@Override
+		void accept(float[] values, int from, int to) {
+			for (int i = from; i < to; i++) {
+				count((long) values[i]);
+			}
+		}
+
+		@Override
+		void accept(double[] values, int from, int to) {
+			for (int i = from; i < to; i++) {
+				count((long) values[i]);
+			}
+		}
+
+		@Override
+		void accept(int value, int count) {
+			if (count == 0) return;
+			if (value < 0 || value >= counts.length) throw new IllegalArgumentException("value out of range");
+			counts[value] += count;
+		}
+
+		@Override
+		void accept(Number value) {
+			count(value.longValue());
+		}
+
+		@Override
+		HistogramAggregator create() {
+			return new HistogramAggregator(counts.length);
+		}
+
+		@Override
+		void combine(Aggregator aggregator) {
+			long[] others = ((HistogramAggregator) aggregator).counts;
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += others[i];
+			}
+		}
+
+		private void count(long value) {
+			if (value < 0L || value >= counts.length) throw new IllegalArgumentException("value out of range");
+			counts[(int) value]++;
+		}
+
+	}
+
+	// splits ranges in half until they are no larger than the threshold, then aggregates them directly
+	private static final class AggregateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AbstractStore<?> store;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final Aggregator aggregator;
+
+		AggregateTask(AbstractStore<?> store, int from, int to, int threshold, Aggregator aggregator) {
+			this.store = store;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.aggregator = aggregator;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				store.aggregate(from, to, aggregator);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			Aggregator other = aggregator.create();
+			invokeAll(new AggregateTask(store, from, mid, threshold, aggregator), new AggregateTask(store, mid, to, threshold, other));
+			aggregator.combine(other);
+		}
+
+	}
+
+}
@@ -18,6 +18,8 @@ package com.tomgibara.storage;
 
 import java.util.Arrays;
 
+import com.tomgibara.storage.StoreAccessors.StoreInts;
+
 final class StoreArrays {
 
  	// package statics
@@ -162,6 +164,19 @@ final class StoreArrays {
 		@Override void fill(int[] a, Integer n) { int b = n; if (b != 0) Arrays.fill(a, b); }
 		@Override void fill(int[] a, int from, int to, Integer n) { int b = n; if (b != 0) Arrays.fill(a, from, to, b); }
 		@Override void set(int[] a, int i, Integer v) { a[i] = v; }
+
+		@Override
+		void copyIntoArray(Store<Integer> store, int[] array, Integer nullValue) {
+			// bulk transfer is only possible where no nulls need substituting
+			if (!(store instanceof StoreInts) || store.type().nullGettable) {
+				super.copyIntoArray(store, array, nullValue);
+				return;
+			}
+			int length = array.length;
+			int limit = Math.min(store.size(), length);
+			((StoreInts) store).getInts(0, array, 0, limit);
+			if (limit < length) fill(array, limit, length, nullValue);
+		}
 	}
 
 	final static class LongStoreArray extends StoreArray<long[], Long> {
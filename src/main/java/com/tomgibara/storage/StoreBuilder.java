@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+/**
+ * <p>
+ * Accumulates values of an unknown number into a store. Builders are obtained
+ * from {@link Storage#newBuilder()} or {@link Storage#newBuilder(int)} and
+ * hold appended values in chunks created by that storage. Each new chunk is as
+ * large as all of the preceding chunks combined, so capacity grows
+ * geometrically without previously appended values being copied.
+ *
+ * <p>
+ * Once all values have been appended, a fixed size store is obtained by
+ * calling {@link #seal()}. Where the values occupy a single chunk exactly, that
+ * chunk is returned without copying; this is always the case when the number
+ * of values appended equals the initial capacity of the builder.
+ *
+ * @author Tom Gibara
+ *
+ * @param <V>
+ *            the type of values to be stored
+ * @see Storage#newBuilder(int)
+ */
+public interface StoreBuilder<V> {
+
+	/**
+	 * The type of the store produced by the builder.
+	 *
+	 * @return the store type
+	 */
+	StoreType<V> type();
+
+	/**
+	 * The number of values appended to the builder.
+	 *
+	 * @return the number of values appended
+	 */
+	int size();
+
+	/**
+	 * Appends a value to the builder. Null values are handled as per
+	 * {@link #type()}.
+	 *
+	 * @param value
+	 *            the value to append, possibly null
+	 * @return the builder
+	 * @throws IllegalArgumentException
+	 *             if the value is null and the store type does not permit null
+	 *             values
+	 * @throws IllegalStateException
+	 *             if the builder has been sealed or is full
+	 */
+	StoreBuilder<V> append(V value) throws IllegalArgumentException, IllegalStateException;
+
+	/**
+	 * Appends an int value to the builder. For storage of primitive ints the
+	 * value is not boxed.
+	 *
+	 * @param value
+	 *            the value to append
+	 * @return the builder
+	 * @throws IllegalStateException
+	 *             if the builder has been sealed or is full
+	 * @see StoreAccessors#intsFor(Store)
+	 */
+	StoreBuilder<V> appendInt(int value) throws IllegalStateException;
+
+	/**
+	 * Appends a long value to the builder. For storage of primitive longs the
+	 * value is not boxed.
+	 *
+	 * @param value
+	 *            the value to append
+	 * @return the builder
+	 * @throws IllegalStateException
+	 *             if the builder has been sealed or is full
+	 * @see StoreAccessors#longsFor(Store)
+	 */
+	StoreBuilder<V> appendLong(long value) throws IllegalStateException;
+
+	/**
+	 * Appends a double value to the builder. For storage of primitive doubles
+	 * the value is not boxed.
+	 *
+	 * @param value
+	 *            the value to append
+	 * @return the builder
+	 * @throws IllegalStateException
+	 *             if the builder has been sealed or is full
+	 * @see StoreAccessors#doublesFor(Store)
+	 */
+	StoreBuilder<V> appendDouble(double value) throws IllegalStateException;
+
+	/**
+	 * Produces a store containing the appended values, in the order in which
+	 * they were appended. The store is created by the storage from which the
+	 * builder was obtained and has a size equal to {@link #size()}. No values
+	 * may be appended once the builder has been sealed.
+	 *
+	 * @return a store of the appended values
+	 * @throws IllegalStateException
+	 *             if the builder has already been sealed
+	 */
+	Store<V> seal() throws IllegalStateException;
+
+}
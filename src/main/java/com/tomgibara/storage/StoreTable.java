@@ -0,0 +1,539 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tomgibara.bits.BitStore;
+import com.tomgibara.bits.BitStore.Matches;
+import com.tomgibara.bits.Bits;
+
+/**
+ * <p>
+ * A table of rows stored by column, with one {@link Store} per column. All
+ * columns of a table have the same size, which is the number of rows in the
+ * table, and operations on rows, such as {@link #transpose(int, int)},
+ * {@link #compact()} and {@link #resizedCopy(int)}, are applied to every
+ * column together so that the columns remain aligned.
+ *
+ * <p>
+ * The columns of a table are specified by a {@link Schema}, which names each
+ * column and supplies the {@link Storage} from which its store is created.
+ * Columns declared with a {@link StoreType} use the storage returned by
+ * {@link StoreType#storage()}, so that primitive values are stored in
+ * primitive arrays and booleans and enums are stored compactly. Since the
+ * values of a column are obtained directly from its store, scanning a column
+ * creates no per-row objects and may use the unboxed accessors provided by
+ * {@link StoreAccessors}.
+ *
+ * <p>
+ * A table also maintains a population that records which of its rows are in
+ * use. Every row of a newly created table is populated; rows are
+ * unpopulated by {@link #clearRow(int)}, or by modifying the bits returned by
+ * {@link #population()} directly. Compacting a table moves the populated rows
+ * to the start of the table.
+ *
+ * <p>
+ * A projection of a table shares a subset of its columns, together with its
+ * population. Since a projection cannot move the values of the columns it
+ * omits, operations that move or clear rows are not supported on
+ * projections.
+ *
+ * <p>
+ * Like the stores from which they are composed, tables are not safe for use
+ * by multiple concurrent threads without external synchronization.
+ *
+ * @author Tom Gibara
+ *
+ * @see Schema#newTable(int)
+ */
+public final class StoreTable {
+
+	/**
+	 * A named column of a table, with values of a specific type.
+	 *
+	 * @param <V>
+	 *            the type of values in the column
+	 */
+	public static final class Column<V> {
+
+		/**
+		 * A column that is stored using the storage of the supplied type. The
+		 * type must permit nulls to be set, since nulls are assigned to rows
+		 * that are added or cleared. A primitive type such as
+		 * {@code StoreType.of(int.class).settingNullToDefault()} stores its
+		 * values in a primitive array without recording nulls.
+		 *
+		 * @param <V>
+		 *            the type of values in the column
+		 * @param name
+		 *            the name of the column
+		 * @param type
+		 *            the type of values in the column
+		 * @return a column
+		 * @throws IllegalArgumentException
+		 *             if the name or type is null, or if the type does not
+		 *             permit nulls to be set
+		 */
+		public static <V> Column<V> of(String name, StoreType<V> type) throws IllegalArgumentException {
+			if (type == null) throw new IllegalArgumentException("null type");
+			return of(name, type.storage());
+		}
+
+		/**
+		 * A column that is stored using the supplied storage. This allows
+		 * columns to use specialized storage, such as
+		 * {@link StoreType#smallValueStorage(int)} or
+		 * {@link StoreType#dictionaryStorage()}.
+		 *
+		 * @param <V>
+		 *            the type of values in the column
+		 * @param name
+		 *            the name of the column
+		 * @param storage
+		 *            the storage used to create the column store
+		 * @return a column
+		 * @throws IllegalArgumentException
+		 *             if the name or storage is null, or if the storage type
+		 *             does not permit nulls to be set
+		 */
+		public static <V> Column<V> of(String name, Storage<V> storage) throws IllegalArgumentException {
+			if (name == null) throw new IllegalArgumentException("null name");
+			if (storage == null) throw new IllegalArgumentException("null storage");
+			// tables may grow and rows may be cleared, both of which require nulls
+			if (!storage.type().nullSettable) throw new IllegalArgumentException("null not settable");
+			return new Column<>(name, storage);
+		}
+
+		private final String name;
+		private final Storage<V> storage;
+
+		private Column(String name, Storage<V> storage) {
+			this.name = name;
+			this.storage = storage;
+		}
+
+		/**
+		 * The name of the column, which is unique within a schema.
+		 *
+		 * @return the column name
+		 */
+		public String name() {
+			return name;
+		}
+
+		/**
+		 * The type of values in the column.
+		 *
+		 * @return the column type
+		 */
+		public StoreType<V> type() {
+			return storage.type();
+		}
+
+		/**
+		 * The storage from which column stores are created.
+		 *
+		 * @return the column storage
+		 */
+		public Storage<V> storage() {
+			return storage;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + storage.type();
+		}
+
+	}
+
+	/**
+	 * An ordered list of uniquely named columns from which tables may be
+	 * created.
+	 */
+	public static final class Schema {
+
+		/**
+		 * A schema consisting of the supplied columns, in order.
+		 *
+		 * @param columns
+		 *            the columns of the schema
+		 * @return a schema
+		 * @throws IllegalArgumentException
+		 *             if any column is null or if two columns share a name
+		 */
+		public static Schema of(Column<?>... columns) throws IllegalArgumentException {
+			if (columns == null) throw new IllegalArgumentException("null columns");
+			return new Schema(columns.clone());
+		}
+
+		private final Column<?>[] columns;
+		private final Map<String, Integer> indices;
+
+		private Schema(Column<?>[] columns) {
+			Map<String, Integer> indices = new HashMap<>();
+			for (int i = 0; i < columns.length; i++) {
+				Column<?> column = columns[i];
+				if (column == null) throw new IllegalArgumentException("null column");
+				if (indices.put(column.name, i) != null) throw new IllegalArgumentException("duplicate column name: " + column.name);
+			}
+			this.columns = columns;
+			this.indices = indices;
+		}
+
+		/**
+		 * The columns of the schema.
+		 *
+		 * @return an unmodifiable list of columns
+		 */
+		public List<Column<?>> columns() {
+			return Collections.unmodifiableList(Arrays.asList(columns));
+		}
+
+		/**
+		 * The position of a named column in the schema.
+		 *
+		 * @param name
+		 *            a column name
+		 * @return the index of the column, or -1 if there is no column with
+		 *         the name
+		 */
+		public int indexOf(String name) {
+			Integer index = indices.get(name);
+			return index == null ? -1 : index;
+		}
+
+		/**
+		 * A new schema containing only the named columns, in the order
+		 * supplied.
+		 *
+		 * @param names
+		 *            the names of the columns to retain
+		 * @return a schema containing a subset of the columns
+		 * @throws IllegalArgumentException
+		 *             if a name does not identify a column or is repeated
+		 */
+		public Schema project(String... names) throws IllegalArgumentException {
+			return new Schema(columnsOf(names));
+		}
+
+		/**
+		 * Creates a new table in which every row is populated. The values of
+		 * each column are initially null, as per
+		 * {@link Storage#newStore(int)}.
+		 *
+		 * @param rows
+		 *            the number of rows in the table
+		 * @return a new table
+		 * @throws IllegalArgumentException
+		 *             if the number of rows is negative
+		 */
+		public StoreTable newTable(int rows) throws IllegalArgumentException {
+			if (rows < 0) throw new IllegalArgumentException("negative rows");
+			Store<?>[] stores = new Store<?>[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				stores[i] = columns[i].storage.newStore(rows);
+			}
+			BitStore population = Bits.store(rows);
+			population.fill();
+			return new StoreTable(this, stores, population, false);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(columns);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof Schema)) return false;
+			Schema that = (Schema) obj;
+			return Arrays.equals(this.columns, that.columns);
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(columns);
+		}
+
+		private Column<?>[] columnsOf(String... names) {
+			if (names == null) throw new IllegalArgumentException("null names");
+			Column<?>[] cs = new Column<?>[names.length];
+			for (int i = 0; i < names.length; i++) {
+				int index = indexOf(names[i]);
+				if (index < 0) throw new IllegalArgumentException("unknown column: " + names[i]);
+				cs[i] = columns[index];
+			}
+			return cs;
+		}
+
+	}
+
+	private final Schema schema;
+	private final Store<?>[] stores;
+	// shared with projections of this table
+	private final BitStore population;
+	// true if other columns share the population, so rows cannot be moved
+	private final boolean projection;
+
+	private StoreTable(Schema schema, Store<?>[] stores, BitStore population, boolean projection) {
+		this.schema = schema;
+		this.stores = stores;
+		this.population = population;
+		this.projection = projection;
+	}
+
+	/**
+	 * The schema from which the table was created.
+	 *
+	 * @return the table schema
+	 */
+	public Schema schema() {
+		return schema;
+	}
+
+	/**
+	 * The number of rows in the table, which is the size of every column store.
+	 *
+	 * @return the number of rows
+	 */
+	public int rows() {
+		return population.size();
+	}
+
+	/**
+	 * The store that holds the values of a column. Rows are not resized or
+	 * reordered through the returned store; doing so will misalign the
+	 * columns of the table.
+	 *
+	 * @param <V>
+	 *            the type of values in the column
+	 * @param column
+	 *            a column of the table schema
+	 * @return the store for the column
+	 * @throws IllegalArgumentException
+	 *             if the column is not part of the table schema
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> Store<V> column(Column<V> column) throws IllegalArgumentException {
+		if (column == null) throw new IllegalArgumentException("null column");
+		int index = schema.indexOf(column.name);
+		if (index < 0 || schema.columns[index] != column) throw new IllegalArgumentException("column not in schema");
+		return (Store<V>) stores[index];
+	}
+
+	/**
+	 * The store that holds the values of a named column.
+	 *
+	 * @param name
+	 *            the name of a column
+	 * @return the store for the column
+	 * @throws IllegalArgumentException
+	 *             if the table has no column with the supplied name
+	 */
+	public Store<?> column(String name) throws IllegalArgumentException {
+		int index = schema.indexOf(name);
+		if (index < 0) throw new IllegalArgumentException("unknown column: " + name);
+		return stores[index];
+	}
+
+	/**
+	 * <p>
+	 * Bits indicating which rows of the table are populated. The returned bits
+	 * are a live view of the population, which may be modified directly to
+	 * mark rows as populated or unpopulated.
+	 *
+	 * <p>
+	 * The population is independent of the values in the columns; a row may
+	 * be populated and hold null values, and an unpopulated row may retain
+	 * values until it is cleared.
+	 *
+	 * @return the row population
+	 */
+	public BitStore population() {
+		return population;
+	}
+
+	/**
+	 * The number of populated rows.
+	 *
+	 * @return the number of rows in use
+	 */
+	public int count() {
+		return population.ones().count();
+	}
+
+	/**
+	 * Sets the value of every column in a row to null and marks the row as
+	 * unpopulated.
+	 *
+	 * @param row
+	 *            the index of the row
+	 * @throws IllegalArgumentException
+	 *             if the row index is invalid
+	 * @throws IllegalStateException
+	 *             if the table is a projection
+	 */
+	public void clearRow(int row) throws IllegalArgumentException, IllegalStateException {
+		checkNotProjection();
+		checkRow(row);
+		for (Store<?> store : stores) {
+			store.set(row, null);
+		}
+		population.setBit(row, false);
+	}
+
+	/**
+	 * Swaps two rows of the table, including their population.
+	 *
+	 * @param i
+	 *            the index of a row
+	 * @param j
+	 *            the index of a row
+	 * @throws IllegalArgumentException
+	 *             if either row index is invalid
+	 * @throws IllegalStateException
+	 *             if the table is a projection
+	 */
+	public void transpose(int i, int j) throws IllegalArgumentException, IllegalStateException {
+		checkNotProjection();
+		checkRow(i);
+		checkRow(j);
+		if (i == j) return;
+		for (Store<?> store : stores) {
+			store.transpose(i, j);
+		}
+		boolean bit = population.getBit(i);
+		population.setBit(i, population.getBit(j));
+		population.setBit(j, bit);
+	}
+
+	/**
+	 * Moves every populated row to the least available row, retaining the
+	 * order of the rows. Rows that are vacated are cleared. Values are moved
+	 * in runs of populated rows, one column at a time.
+	 *
+	 * @return whether any rows were moved as a consequence of calling this
+	 *         method
+	 * @throws IllegalStateException
+	 *             if the table is a projection, or if any column is immutable
+	 */
+	public boolean compact() throws IllegalStateException {
+		checkNotProjection();
+		// check every column before any is modified
+		for (Store<?> store : stores) {
+			if (!store.isMutable()) throw Stores.immutableException();
+		}
+		int rows = rows();
+		Matches ones = population.ones();
+		Matches zeros = population.zeros();
+		int count = ones.count();
+		// no populated row follows an unpopulated row
+		if (count == rows || ones.next(zeros.next(0)) == rows) return false;
+		for (Store<?> store : stores) {
+			compact(store, ones, zeros, rows, count);
+		}
+		population.range(0, count).fill();
+		population.range(count, rows).clear();
+		return true;
+	}
+
+	/**
+	 * A table that shares the named columns and the population of this table.
+	 * Changes to the values or population of either table are visible in the
+	 * other. Rows of the projection cannot be moved or cleared, since this
+	 * would misalign the columns that it omits; its resized copies are not
+	 * projections and have no such restriction.
+	 *
+	 * @param names
+	 *            the names of the columns to retain
+	 * @return a table composed of a subset of the columns
+	 * @throws IllegalArgumentException
+	 *             if a name does not identify a column or is repeated
+	 */
+	public StoreTable project(String... names) throws IllegalArgumentException {
+		Schema projected = schema.project(names);
+		Store<?>[] ss = new Store<?>[names.length];
+		for (int i = 0; i < names.length; i++) {
+			ss[i] = stores[schema.indexOf(names[i])];
+		}
+		return new StoreTable(projected, ss, population, true);
+	}
+
+	/**
+	 * A copy of the table with the specified number of rows. Rows added to
+	 * the table are populated and hold null values.
+	 *
+	 * @param newRows
+	 *            the number of rows in the copy
+	 * @return a resized copy of the table
+	 * @throws IllegalArgumentException
+	 *             if the number of rows is negative
+	 */
+	public StoreTable resizedCopy(int newRows) throws IllegalArgumentException {
+		if (newRows < 0) throw new IllegalArgumentException("negative rows");
+		Store<?>[] ss = new Store<?>[stores.length];
+		for (int i = 0; i < stores.length; i++) {
+			ss[i] = stores[i].resizedCopy(newRows);
+		}
+		BitStore bits = Bits.store(newRows);
+		int limit = Math.min(newRows, rows());
+		bits.setStore(0, population.range(0, limit));
+		bits.range(limit, newRows).fill();
+		return new StoreTable(schema, ss, bits, false);
+	}
+
+	@Override
+	public String toString() {
+		List<String> names = new ArrayList<>(stores.length);
+		for (Column<?> column : schema.columns) {
+			names.add(column.name);
+		}
+		return names + " x " + rows();
+	}
+
+	// private helper methods
+
+	private void checkNotProjection() {
+		if (projection) throw new IllegalStateException("projected table");
+	}
+
+	private void checkRow(int row) {
+		if (row < 0) throw new IllegalArgumentException("negative row");
+		if (row >= rows()) throw new IllegalArgumentException("row too large");
+	}
+
+	// copies runs of populated values down the store, each run moves to a lower position so copying forwards is safe
+	private static <V> void compact(Store<V> store, Matches ones, Matches zeros, int rows, int count) {
+		int position = 0;
+		for (int from = ones.next(0); from < rows; from = ones.next(from)) {
+			int to = zeros.next(from);
+			if (position != from) store.setStore(position, store.range(from, to));
+			position += to - from;
+			from = to;
+			if (from == rows) break;
+		}
+		if (count < rows) store.range(count, rows).clear();
+	}
+
+}
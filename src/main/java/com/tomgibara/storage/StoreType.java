@@ -18,6 +18,7 @@ package com.tomgibara.storage;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -454,6 +455,313 @@ public final class StoreType<V> {
 		return (Storage<V>) SmallValueStore.newStorage(range, (StoreType<Integer>) this);
 	}
 
+	/**
+	 * <p>
+	 * Storage backed by direct byte buffers that are allocated outside of the
+	 * Java heap. Such storage may be useful when a very large number of
+	 * primitive values need to be stored without adding to the work performed
+	 * by the garbage collector. Values are stored in the native byte order of
+	 * the platform.
+	 *
+	 * <p>
+	 * Stores created by this storage observe the null handling of this type in
+	 * the same way as stores created via {@link #storage()}. Where nulls are
+	 * gettable, an additional bit per value is allocated off-heap to record
+	 * which values are present. The stores also implement the accessor
+	 * interface in {@link StoreAccessors} that matches the value type.
+	 *
+	 * <p>
+	 * The memory of a store is released only after the store has been garbage
+	 * collected. Note that the maximum size of a store is constrained by the
+	 * number of bytes that can be addressed by a single buffer.
+	 *
+	 * <p>
+	 * This method may only be called on a type for which the
+	 * {@link #valueType()} is primitive. In all other cases an exception will
+	 * be thrown.
+	 *
+	 * @return off-heap storage
+	 * @throws IllegalStateException
+	 *             if the value type of this type is not primitive
+	 */
+	public Storage<V> offHeapStorage() throws IllegalStateException {
+		if (!valueType.isPrimitive()) throw new IllegalStateException("requires primitive typed store");
+		return BufferStore.newStorage(this);
+	}
+
+	/**
+	 * Storage that packs integral values relative to a base value. Equivalent
+	 * to calling {@link #frameOfReferenceStorage(boolean)} without delta
+	 * encoding.
+	 *
+	 * @return frame-of-reference storage
+	 * @throws IllegalStateException
+	 *             if the type is not an int or long type, or if
+	 *             {@link #nullGettable()} is true
+	 */
+	public Storage<V> frameOfReferenceStorage() throws IllegalStateException {
+		return frameOfReferenceStorage(false);
+	}
+
+	/**
+	 * <p>
+	 * Storage that packs integral values into blocks, each of which records
+	 * its values relative to a base value using the least number of bits
+	 * necessary. Such storage may be useful where large values lie in a narrow
+	 * band, as is common for identifiers and timestamps.
+	 *
+	 * <p>
+	 * With delta encoding, each value is instead recorded as its difference
+	 * from the preceding value in its block; this may pack sequences of values
+	 * with small differences, such as ordered timestamps, into far fewer bits.
+	 * The cost is that accessing an individual value requires the preceding
+	 * values of its block to be decoded. Iterating over the store and the bulk
+	 * methods of its accessor decode whole blocks and do not incur this cost.
+	 *
+	 * <p>
+	 * When a value is set that cannot be represented in its block, the block
+	 * is repacked. Blocks are repacked using the least number of bits needed
+	 * for their current values, and may shrink when they are filled or their
+	 * values are copied from another store. The stores implement the
+	 * {@link StoreAccessors.StoreInts} or {@link StoreAccessors.StoreLongs}
+	 * interface that matches the value type.
+	 *
+	 * <p>
+	 * This method may only be called on a type for which the
+	 * {@link #valueType()} is <code>int.class</code> or
+	 * <code>long.class</code> and which does not permit nulls to be returned
+	 * from stores. In all other cases an exception will be thrown.
+	 *
+	 * @param deltaEncoded
+	 *            whether values are encoded as differences between successive
+	 *            values
+	 * @return frame-of-reference storage
+	 * @throws IllegalStateException
+	 *             if the type is not an int or long type, or if
+	 *             {@link #nullGettable()} is true
+	 */
+	public Storage<V> frameOfReferenceStorage(boolean deltaEncoded) throws IllegalStateException {
+		if (valueType != int.class && valueType != long.class) throw new IllegalStateException("requires int or long typed store");
+		if (nullGettable) throw new IllegalStateException("null gettable");
+		return FrameOfReferenceStore.newStorage(this, deltaEncoded);
+	}
+
+	/**
+	 * <p>
+	 * Storage that records each distinct value once in a dictionary. Such
+	 * storage may be useful where a large number of values are drawn from a
+	 * small set, since each value is represented by a bit-packed code instead
+	 * of a reference. The stores created by this storage implement
+	 * {@link DictionaryStore} which exposes the codes directly.
+	 *
+	 * <p>
+	 * Codes are packed as per {@link #smallValueStorage(int)} in as few bits
+	 * as the current dictionary size permits. When a value is stored that
+	 * would exceed the capacity of the current packing, the codes are repacked
+	 * using more bits; this occurs only as the dictionary doubles in size.
+	 * Values are interned by their {@link Object#equals(Object)} and
+	 * {@link Object#hashCode()} methods and are never removed from the
+	 * dictionary.
+	 *
+	 * @return dictionary encoded storage
+	 */
+	public Storage<V> dictionaryStorage() {
+		return new CodedStore.CodedStorage<>(this);
+	}
+
+	/**
+	 * <p>
+	 * Storage that records each maximal run of equal values only once. Such
+	 * storage may be useful where values are highly repetitive, for example
+	 * where sorted or slowly changing data is stored. Memory consumption, and
+	 * the time taken by bulk operations such as filling, copying and
+	 * iteration, is proportional to the number of runs and not to the size of
+	 * the store.
+	 *
+	 * <p>
+	 * Accessing a value takes time logarithmic in the number of runs. Setting
+	 * a value may split a run or merge adjacent runs, and takes time linear in
+	 * the number of runs in the worst case. Values are compared for equality
+	 * using {@link Object#equals(Object)}.
+	 *
+	 * @return run-length encoded storage
+	 */
+	public Storage<V> runLengthStorage() {
+		return new RunLengthStore.RunLengthStorage<>(this);
+	}
+
+	/**
+	 * Storage for stores in which few values are present. Equivalent to
+	 * calling {@link #sparseStorage(double)} with a density of one in sixteen.
+	 *
+	 * @return sparse storage
+	 * @throws IllegalStateException
+	 *             if this type does not permit null values to be set
+	 */
+	public Storage<V> sparseStorage() throws IllegalStateException {
+		return sparseStorage(SparseStore.DEFAULT_DENSITY);
+	}
+
+	/**
+	 * <p>
+	 * Storage for stores in which few values are present. A value is present
+	 * if it is not null, or, for types that substitute a value for null, if it
+	 * does not equal {@link #nullValue()}. While sparse, a store only records
+	 * the present values together with a sorted array of their indices, so
+	 * that memory is proportional to the number of values and not the size of
+	 * the store. Accessing a value in a sparse store takes time logarithmic in
+	 * the number of values present.
+	 *
+	 * <p>
+	 * Once the fraction of values present in a store exceeds the supplied
+	 * density, the store switches to a dense representation created with
+	 * {@link #storage()}. It reverts to the sparse representation if the
+	 * fraction subsequently falls below half of the density.
+	 *
+	 * @param density
+	 *            the fraction of present values above which stores become
+	 *            dense
+	 * @return sparse storage
+	 * @throws IllegalArgumentException
+	 *             if the density does not lie in the range (0,1]
+	 * @throws IllegalStateException
+	 *             if this type does not permit null values to be set
+	 */
+	public Storage<V> sparseStorage(double density) throws IllegalArgumentException, IllegalStateException {
+		return new SparseStore.SparseStorage<>(this, density);
+	}
+
+	/**
+	 * <p>
+	 * Storage backed by atomic arrays. Individual values of the stores created
+	 * by this storage may be safely read and written by multiple threads
+	 * without external synchronization. Values are read and written with
+	 * volatile semantics.
+	 *
+	 * <p>
+	 * The stores implement {@link StoreAccessors.AtomicStoreInts} or
+	 * {@link StoreAccessors.AtomicStoreLongs} which provide compare-and-set,
+	 * atomic addition and atomic update of values, together with lazy writes
+	 * that may be used where immediate visibility is not required. Operations
+	 * over multiple values, such as filling or copying a store, are not
+	 * atomic.
+	 *
+	 * <p>
+	 * This method may only be called on a type for which the
+	 * {@link #valueType()} is <code>int.class</code> or
+	 * <code>long.class</code> and which does not permit nulls to be returned
+	 * from stores. In all other cases an exception will be thrown.
+	 *
+	 * @return storage for atomically updated values
+	 * @throws IllegalStateException
+	 *             if the type is not an int or long type, or if
+	 *             {@link #nullGettable()} is true
+	 */
+	public Storage<V> atomicStorage() throws IllegalStateException {
+		if (valueType != int.class && valueType != long.class) throw new IllegalStateException("requires int or long typed store");
+		if (nullGettable) throw new IllegalStateException("null gettable");
+		return AtomicStore.newStorage(this);
+	}
+
+	/**
+	 * <p>
+	 * Storage backed by a memory mapped file. Each store created by the
+	 * returned storage replaces the contents of the file with a small header
+	 * that records this type and the size of the store, followed by the
+	 * stored values. Values are always written in little-endian byte order so
+	 * that files may be shared between platforms. Changes to the store are
+	 * written through to the file by the operating system.
+	 *
+	 * <p>
+	 * A store that was previously created in this way may be reopened, without
+	 * reading its values, via {@link #openMappedStore(Path)}.
+	 *
+	 * <p>
+	 * Obtaining the storage does not access the file. Creating a store
+	 * creates or truncates the file, so any store previously mapped from the
+	 * file must no longer be used. The returned storage creates a single
+	 * store; a second attempt to create a store from it, via any of the
+	 * <code>newStore</code> methods, throws an
+	 * <code>IllegalStateException</code>. For this reason the storage cannot
+	 * back builders, big stores or copy-on-write stores, all of which create
+	 * multiple stores. Stores remain mapped until they are garbage collected.
+	 * Failures to create or map the file are reported with an
+	 * <code>UncheckedIOException</code>.
+	 *
+	 * <p>
+	 * This method may only be called on a type for which the
+	 * {@link #valueType()} is primitive. In all other cases an exception will
+	 * be thrown.
+	 *
+	 * @param file
+	 *            the file in which store values are to be persisted
+	 * @return storage mapped to the supplied file
+	 * @throws IllegalStateException
+	 *             if the value type of this type is not primitive
+	 * @see #openMappedStore(Path)
+	 */
+	public Storage<V> mappedStorage(Path file) throws IllegalStateException {
+		if (file == null) throw new IllegalArgumentException("null file");
+		if (!valueType.isPrimitive()) throw new IllegalStateException("requires primitive typed store");
+		return new MappedStorage<>(this, file, 0);
+	}
+
+	/**
+	 * <p>
+	 * Storage that packs bounded non-negative integer values into a memory
+	 * mapped file. The storage operates as per {@link #mappedStorage(Path)}
+	 * but values are packed as per {@link #smallValueStorage(int)}, with the
+	 * exception that values are always packed linearly, using the least number
+	 * of bits needed to represent each value individually.
+	 *
+	 * <p>
+	 * This method may only be called on a type for which the
+	 * {@link #valueType()} is <code>int.class</code>. In all other cases an
+	 * exception will be thrown.
+	 *
+	 * @param range
+	 *            defines the range <code>[0..range)</code> that small values
+	 *            may take in this store
+	 * @param file
+	 *            the file in which store values are to be persisted
+	 * @return small value storage mapped to the supplied file
+	 * @throws IllegalStateException
+	 *             if the value type of this type is not <code>int.class</code>
+	 * @see #openMappedStore(Path)
+	 */
+	public Storage<V> mappedSmallValueStorage(int range, Path file) throws IllegalStateException {
+		if (range <= 0) throw new IllegalArgumentException("non positive range");
+		if (range == Integer.MAX_VALUE) throw new IllegalArgumentException("range too large");
+		if (file == null) throw new IllegalArgumentException("null file");
+		if (valueType != int.class) throw new IllegalStateException("requires int typed store");
+		if (nullSettable && !nullGettable) {
+			int nv = (Integer) nullValue;
+			if (nv < 0) throw new IllegalArgumentException("negative nullValue");
+			if (nv >= range) throw new IllegalArgumentException("nullValue meets or exceeds range");
+		}
+		return new MappedStorage<>(this, file, range);
+	}
+
+	/**
+	 * Reopens a store that was previously created from storage obtained via
+	 * {@link #mappedStorage(Path)} or {@link #mappedSmallValueStorage(int, Path)}.
+	 * The file is mapped directly, so the time taken to reopen the store does
+	 * not depend on its size. The store type recorded in the file must equal
+	 * this type. The returned store is mutable and changes to it are written
+	 * through to the file.
+	 *
+	 * @param file
+	 *            a file containing a store
+	 * @return the store persisted in the file
+	 * @throws IllegalArgumentException
+	 *             if the file does not contain a store of this type
+	 */
+	public Store<V> openMappedStore(Path file) throws IllegalArgumentException {
+		if (file == null) throw new IllegalArgumentException("null file");
+		if (!valueType.isPrimitive()) throw new IllegalStateException("requires primitive typed store");
+		return MappedStorage.open(this, file);
+	}
+
 	// stores
 
 	/**
@@ -18,6 +18,10 @@ package com.tomgibara.storage;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 import com.tomgibara.bits.BitStore;
 import com.tomgibara.storage.StoreArrays.StoreArray;
@@ -36,8 +40,28 @@ public final class Stores {
 
 	// private statics
 
+	// ranges smaller than this are not worth processing in parallel
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	// partitions are a multiple of this size, which is divisible by 64, 3 and 5 so that
+	// partition boundaries fall on word boundaries for every packing of values into bits
+	private static final int PARALLEL_ALIGNMENT = 960;
+
 	// package statics
 
+	// operates on a range of indices, returning a value to be summed over all partitions
+	interface Partition {
+		int apply(int from, int to);
+	}
+
+	// modes of searching a sorted store
+	static final int SEARCH_LOWER = 0;
+	static final int SEARCH_UPPER = 1;
+	static final int SEARCH_MATCH = 2;
+
+	// indicates that a store cannot search itself
+	static final int NO_SEARCH = Integer.MIN_VALUE;
+
 	static final int BYTE    =  1;
 	static final int FLOAT   =  2;
 	static final int CHAR    =  3;
@@ -419,6 +443,19 @@ public final class Stores {
 		return new IllegalStateException("immutable");
 	}
 
+	// the store beneath any range and immutable views, used to detect a store being copied onto itself
+	static Store<?> underlying(Store<?> store) {
+		while (true) {
+			if (store instanceof RangeStore<?>) {
+				store = ((RangeStore<?>) store).store;
+			} else if (store instanceof ImmutableStore<?>) {
+				store = ((ImmutableStore<?>) store).store;
+			} else {
+				return store;
+			}
+		}
+	}
+
 	static <V> V[] typedArrayCopy(Class<V> type, V[] vs) {
 		// fast path
 		if (vs.getClass().getComponentType() == type) return vs.clone();
@@ -488,6 +525,299 @@ public final class Stores {
 		return true;
 	}
 
+	// sorts the non-null values of the store, placing nulls last
+	static <V> void sortStore(Store<V> store, Comparator<? super V> comparator, boolean parallel) {
+		if (!store.isMutable()) throw immutableException();
+		int size = store.size();
+		@SuppressWarnings("unchecked")
+		V[] values = (V[]) new Object[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			V value = store.get(i);
+			if (value != null) values[count++] = value;
+		}
+		if (parallel) {
+			Arrays.parallelSort(values, 0, count, comparator);
+		} else {
+			Arrays.sort(values, 0, count, comparator);
+		}
+		for (int i = 0; i < count; i++) {
+			store.set(i, values[i]);
+		}
+		for (int i = count; i < size; i++) {
+			store.set(i, null);
+		}
+	}
+
+	// sorts the first length values of a primitive array into their natural order
+	static void sortArray(Object array, int length, boolean parallel) {
+		switch (hash(array.getClass().getComponentType())) {
+		case BYTE:   if (parallel) Arrays.parallelSort((byte  []) array, 0, length); else Arrays.sort((byte  []) array, 0, length); break;
+		case FLOAT:  if (parallel) Arrays.parallelSort((float []) array, 0, length); else Arrays.sort((float []) array, 0, length); break;
+		case CHAR:   if (parallel) Arrays.parallelSort((char  []) array, 0, length); else Arrays.sort((char  []) array, 0, length); break;
+		case SHORT:  if (parallel) Arrays.parallelSort((short []) array, 0, length); else Arrays.sort((short []) array, 0, length); break;
+		case LONG:   if (parallel) Arrays.parallelSort((long  []) array, 0, length); else Arrays.sort((long  []) array, 0, length); break;
+		case INT:    if (parallel) Arrays.parallelSort((int   []) array, 0, length); else Arrays.sort((int   []) array, 0, length); break;
+		case DOUBLE: if (parallel) Arrays.parallelSort((double[]) array, 0, length); else Arrays.sort((double[]) array, 0, length); break;
+		case BOOLEAN:
+			// false precedes true
+			boolean[] bs = (boolean[]) array;
+			int falses = 0;
+			for (int i = 0; i < length; i++) {
+				if (!bs[i]) falses++;
+			}
+			Arrays.fill(bs, 0, falses, false);
+			Arrays.fill(bs, falses, length, true);
+			break;
+		default: throw new IllegalArgumentException(array.getClass().getName());
+		}
+	}
+
+	// a stable ordering of the store indices by value, placing nulls last
+	@SuppressWarnings("unchecked")
+	static <V> Store<Integer> sortIndices(Store<V> store, Comparator<? super V> comparator) {
+		int size = store.size();
+		Integer[] indices = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			indices[i] = i;
+		}
+		Comparator<? super V> c = comparator == null ? (Comparator<? super V>) Comparator.naturalOrder() : comparator;
+		Arrays.sort(indices, Comparator.comparing(store::get, Comparator.nullsLast(c)));
+		int[] array = new int[size];
+		for (int i = 0; i < size; i++) {
+			array[i] = indices[i];
+		}
+		return ints(array);
+	}
+
+	// as per sortIndices with natural ordering, but over the first size values of a primitive array, without boxing
+	// values are populated where the bit store is set, or everywhere if it is null
+	static Store<Integer> sortIndices(Object array, int size, BitStore populated) {
+		int count = populated == null ? size : populated.ones().count();
+		int[] indices = new int[size];
+		if (populated == null) {
+			for (int i = 0; i < size; i++) {
+				indices[i] = i;
+			}
+		} else {
+			// populated indices precede the nulls, each in index order
+			BitStore.Positions ones = populated.ones().positions();
+			for (int i = 0; i < count; i++) {
+				indices[i] = ones.nextPosition();
+			}
+			BitStore.Positions zeros = populated.zeros().positions();
+			for (int i = count; i < size; i++) {
+				indices[i] = zeros.nextPosition();
+			}
+		}
+		switch (hash(array.getClass().getComponentType())) {
+		case LONG: {
+			long[] values = (long[]) array;
+			long[] keys = new long[size];
+			for (int i = 0; i < count; i++) {
+				keys[indices[i]] = values[indices[i]];
+			}
+			mergeSortIndices(indices, count, keys);
+			break;
+		}
+		case DOUBLE: {
+			double[] values = (double[]) array;
+			long[] keys = new long[size];
+			for (int i = 0; i < count; i++) {
+				long bits = Double.doubleToLongBits(values[indices[i]]);
+				// orders keys as per Double.compare
+				keys[indices[i]] = bits ^ (bits >> 63 & Long.MAX_VALUE);
+			}
+			mergeSortIndices(indices, count, keys);
+			break;
+		}
+		default:
+			// keys fit in an int, so each is paired with its index in a long that sorts stably
+			long[] pairs = new long[count];
+			for (int i = 0; i < count; i++) {
+				int index = indices[i];
+				pairs[i] = (long) intKey(array, index) << 32 | index;
+			}
+			Arrays.sort(pairs);
+			for (int i = 0; i < count; i++) {
+				indices[i] = (int) pairs[i];
+			}
+		}
+		return ints(indices);
+	}
+
+	// a key for a primitive array value that orders keys as values are ordered by their wrapper's compareTo
+	private static int intKey(Object array, int index) {
+		switch (hash(array.getClass().getComponentType())) {
+		case BYTE:    return ((byte   []) array)[index];
+		case CHAR:    return ((char   []) array)[index];
+		case SHORT:   return ((short  []) array)[index];
+		case INT:     return ((int    []) array)[index];
+		case BOOLEAN: return ((boolean[]) array)[index] ? 1 : 0;
+		case FLOAT:
+			int bits = Float.floatToIntBits(((float[]) array)[index]);
+			// orders keys as per Float.compare
+			return bits ^ (bits >> 31 & Integer.MAX_VALUE);
+		default: throw new IllegalArgumentException(array.getClass().getName());
+		}
+	}
+
+	// a stable bottom-up merge sort of the first count indices by their keys
+	private static void mergeSortIndices(int[] indices, int count, long[] keys) {
+		int[] src = indices;
+		int[] dst = new int[count];
+		for (int width = 1; width < count; width <<= 1) {
+			for (int lo = 0; lo < count; lo += width << 1) {
+				int mid = Math.min(lo + width, count);
+				int hi = Math.min(mid + width, count);
+				int i = lo;
+				int j = mid;
+				for (int k = lo; k < hi; k++) {
+					// taking from the left on equal keys keeps the sort stable
+					dst[k] = j == hi || i < mid && keys[src[i]] <= keys[src[j]] ? src[i++] : src[j++];
+				}
+			}
+			int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if (src != indices) System.arraycopy(src, 0, indices, 0, count);
+	}
+
+	// searches a store sorted as per sortStore
+	@SuppressWarnings("unchecked")
+	static <V> int search(Store<V> store, V key, Comparator<? super V> comparator, int mode) {
+		if (key == null) throw new IllegalArgumentException("null key");
+		int size = store.size();
+		if (comparator == null && store instanceof AbstractStore<?>) {
+			int index = ((AbstractStore<V>) store).search(0, size, key, mode);
+			if (index != NO_SEARCH) return index;
+		}
+		Comparator<? super V> c = comparator == null ? (Comparator<? super V>) Comparator.naturalOrder() : comparator;
+		boolean upper = mode == SEARCH_UPPER;
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			V value = store.get(mid);
+			// nulls are ordered last
+			int cmp = value == null ? 1 : c.compare(value, key);
+			if (cmp < 0 || upper && cmp == 0) lo = mid + 1; else hi = mid;
+		}
+		if (mode != SEARCH_MATCH) return lo;
+		V value = lo < size ? store.get(lo) : null;
+		return value != null && c.compare(value, key) == 0 ? lo : -1 - lo;
+	}
+
+	// searches a range of a primitive array sorted into natural order without boxing
+	static int searchArray(Object array, int from, int to, Object key, int mode) {
+		boolean upper = mode == SEARCH_UPPER;
+		int lo = from;
+		int hi = to;
+		boolean found;
+		switch (hash(array.getClass().getComponentType())) {
+		case BYTE: {
+			byte[] a = (byte[]) array;
+			byte k = (Byte) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		case FLOAT: {
+			float[] a = (float[]) array;
+			float k = (Float) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (Float.compare(a[mid], k) < 0 || upper && Float.compare(a[mid], k) == 0) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && Float.compare(a[lo], k) == 0;
+			break;
+		}
+		case CHAR: {
+			char[] a = (char[]) array;
+			char k = (Character) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		case SHORT: {
+			short[] a = (short[]) array;
+			short k = (Short) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		case LONG: {
+			long[] a = (long[]) array;
+			long k = (Long) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		case INT: {
+			int[] a = (int[]) array;
+			int k = (Integer) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		case DOUBLE: {
+			double[] a = (double[]) array;
+			double k = (Double) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (Double.compare(a[mid], k) < 0 || upper && Double.compare(a[mid], k) == 0) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && Double.compare(a[lo], k) == 0;
+			break;
+		}
+		case BOOLEAN: {
+			boolean[] a = (boolean[]) array;
+			boolean k = (Boolean) key;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (!a[mid] && k || upper && a[mid] == k) lo = mid + 1; else hi = mid;
+			}
+			found = lo < to && a[lo] == k;
+			break;
+		}
+		default: throw new IllegalArgumentException(array.getClass().getName());
+		}
+		if (mode != SEARCH_MATCH) return lo;
+		return found ? lo : -1 - lo;
+	}
+
+	// applies the operation to aligned partitions of the range using the current fork-join pool
+	static int inParallel(int from, int to, Partition partition) {
+		int length = to - from;
+		if (length < PARALLEL_THRESHOLD) return partition.apply(from, to);
+		int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+		// split into more partitions than workers so that the load is balanced
+		long size = Math.max(PARALLEL_THRESHOLD / 4, (long) length / (parallelism * 4L) + 1L);
+		long chunk = (size + PARALLEL_ALIGNMENT - 1) / PARALLEL_ALIGNMENT * PARALLEL_ALIGNMENT;
+		// partitions are aligned with absolute indices, not with the start of the range
+		int first = (int) (from / chunk);
+		int last = (int) ((to - 1) / chunk);
+		return IntStream.rangeClosed(first, last).parallel().map(i ->
+			partition.apply((int) Math.max(from, i * chunk), (int) Math.min(to, (i + 1) * chunk))
+		).sum();
+	}
+
 	@SuppressWarnings("unchecked")
 	static <V> Class<V> componentType(V[] vs) {
 		return (Class<V>) vs.getClass().getComponentType();
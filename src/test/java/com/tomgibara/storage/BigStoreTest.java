@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+public class BigStoreTest {
+
+	@Test
+	public void testBasicOperations() {
+		BigStorage<Integer> storage = StoreType.of(int.class).settingNullToValue(0).smallValueStorage(3).bigStorage(64);
+		assertEquals(64, storage.chunkSize());
+		BigStore<Integer> store = storage.newStore(1000L);
+		assertEquals(1000L, store.size());
+		assertEquals(1000L, store.count());
+		assertEquals(16, store.chunks().size());
+		assertEquals(40, store.chunks().get(15).size());
+		store.set(999L, 2);
+		store.set(64L, 1);
+		assertEquals(2, store.get(999L).intValue());
+		assertEquals(1, store.get(64L).intValue());
+		assertEquals(0, store.get(63L).intValue());
+
+		BigStore<Integer> range = store.range(60L, 70L);
+		assertEquals(10L, range.size());
+		assertEquals(1, range.get(4L).intValue());
+		assertEquals(2, range.chunks().size());
+		range.fill(2);
+		assertEquals(2, store.get(60L).intValue());
+		assertEquals(0, store.get(70L).intValue());
+
+		// ranges within a chunk are regular chunk ranges
+		Store<Integer> s = store.asStore(64L, 70L);
+		assertEquals(6, s.size());
+		assertEquals(2, s.get(0).intValue());
+		Store<Integer> t = store.asStore(60L, 70L);
+		assertEquals(10, t.size());
+		t.set(0, 1);
+		assertEquals(1, store.get(60L).intValue());
+		assertEquals(t, range.asStore(0L, 10L));
+
+		BigStore<Integer> copy = store.mutableCopy();
+		assertEquals(store, copy);
+		assertEquals(store.hashCode(), copy.hashCode());
+		copy.set(0L, 1);
+		assertFalse(store.equals(copy));
+		BigStore<Integer> view = store.immutableView();
+		assertFalse(view.isMutable());
+		try {
+			view.set(0L, 1);
+			fail();
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		assertFalse(store.immutableCopy().isMutable());
+		assertEquals(store, store.immutableCopy());
+
+		try {
+			store.get(1000L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			StoreType.of(int.class).storage().bigStorage(100);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testNulls() {
+		BigStore<Integer> store = StoreType.of(int.class).storage().bigStorage(16).newStore(100L);
+		assertEquals(0L, store.count());
+		assertNull(store.get(50L));
+		assertTrue(store.isNull(50L));
+		store.set(50L, 5);
+		store.set(10L, 1);
+		assertEquals(2L, store.count());
+		assertEquals(1L, store.range(0L, 20L).count());
+		List<Integer> values = new ArrayList<>();
+		store.forEach(values::add);
+		assertEquals(2, values.size());
+		store.clear();
+		assertEquals(0L, store.count());
+	}
+
+	@Test
+	public void testSpliterator() {
+		Random r = new Random(0L);
+		BigStore<Integer> store = StoreType.of(int.class).settingNullToValue(0).storage().bigStorage(32).newStore(1000L);
+		List<Integer> expected = new ArrayList<>();
+		for (long i = 0L; i < store.size(); i++) {
+			int v = r.nextInt(100);
+			store.set(i, v);
+			expected.add(v);
+		}
+		assertEquals(expected, StreamSupport.stream(store.spliterator(), true).collect(Collectors.toList()));
+		List<Integer> iterated = new ArrayList<>();
+		store.iterator().forEachRemaining(iterated::add);
+		assertEquals(expected, iterated);
+
+		Spliterator<Integer> s = store.spliterator();
+		assertEquals(1000L, s.getExactSizeIfKnown());
+		Spliterator<Integer> prefix = s.trySplit();
+		// splits occur on chunk boundaries
+		assertEquals(0L, prefix.getExactSizeIfKnown() % 32L);
+		assertEquals(1000L, prefix.getExactSizeIfKnown() + s.getExactSizeIfKnown());
+
+		BigStore<Integer> range = store.range(17L, 500L);
+		assertEquals(expected.subList(17, 500), StreamSupport.stream(range.spliterator(), true).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testLargeStore() {
+		// more values than can be indexed by an int
+		long size = Integer.MAX_VALUE + 100L;
+		BigStore<Integer> store = StoreType.of(int.class).settingNullToValue(0).smallValueStorage(1).bigStorage().newStore(size);
+		assertEquals(size, store.size());
+		assertEquals(0, store.get(size - 1L).intValue());
+		assertEquals(100, store.asStore(Integer.MAX_VALUE, size).size());
+	}
+
+}
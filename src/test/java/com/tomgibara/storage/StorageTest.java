@@ -20,14 +20,30 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.tomgibara.bits.BitStore;
+
 public class StorageTest {
 
 	@Test
@@ -268,6 +284,618 @@ public class StorageTest {
 		}
 	}
 
+	@Test
+	public void testOffHeapStorage() {
+		StoreType<Integer> type = StoreType.of(int.class);
+		{
+			Storage<Integer> t = type.offHeapStorage();
+			Store<Integer> s = t.newStore(10);
+			assertEquals(10, s.size());
+			assertEquals(0, s.count());
+			s.set(3, 7);
+			assertEquals(7, s.get(3).intValue());
+			assertNull(s.get(4));
+			assertEquals(1, s.count());
+			assertEquals("0000001000", s.population().toString());
+			StoreAccessors.intsFor(s).setInt(5, -1);
+			assertEquals(-1, s.get(5).intValue());
+			assertEquals(2, s.count());
+			Store<Integer> c = s.resizedCopy(12);
+			assertEquals(2, c.count());
+			assertNull(c.get(11));
+			assertEquals(s, c.range(0, 10));
+			s.set(3, null);
+			assertEquals(1, s.count());
+			assertEquals(7, c.get(3).intValue());
+			// nulls are not reported as primitive values, as per heap stores
+			StoreAccessors.StoreInts ints = StoreAccessors.intsFor(s);
+			try {
+				ints.getInt(4);
+				fail("expected RE");
+			} catch (RuntimeException e) {
+				/* expected */
+			}
+			try {
+				ints.getInts(4, new int[2], 0, 2);
+				fail("expected RE");
+			} catch (RuntimeException e) {
+				/* expected */
+			}
+			// bulk operations maintain the count
+			ints.setInts(4, new int[] {1, 2, 3}, 0, 3);
+			assertEquals(3, s.count());
+			s.range(0, 5).fill(null);
+			assertEquals(2, s.count());
+			s.range(0, 2).fill(9);
+			assertEquals(4, s.count());
+			s.setStore(6, c.range(0, 4));
+			assertEquals(4, s.count());
+			assertEquals(s.population().ones().count(), s.count());
+		}
+		{
+			Storage<Integer> t = type.settingNullToValue(4).offHeapStorage();
+			Store<Integer> s = t.newStore(5);
+			assertEquals(5, s.count());
+			assertEquals(4, s.get(0).intValue());
+			s.set(0, 1);
+			s.set(0, null);
+			assertEquals(4, s.get(0).intValue());
+			assertEquals(4, s.resizedCopy(6).get(5).intValue());
+			assertFalse(s.immutableCopy().isMutable());
+		}
+		{
+			Storage<Integer> t = type.settingNullDisallowed().offHeapStorage();
+			checkIAE(() -> t.newStore(5));
+			checkIAE(() -> t.newStore(5, 1).set(0, null));
+			checkIAE(() -> t.newStore(5, 1).resizedCopy(6));
+		}
+		StorageTestUtil.forAllTypes(t -> {
+			if (!t.valueType().isPrimitive()) return;
+			assertEquals(t, t.offHeapStorage().newStore(0).type());
+		});
+		try {
+			StoreType.of(String.class).offHeapStorage();
+			fail("expected ISE");
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testAtomicStorage() throws InterruptedException {
+		StoreType<Integer> type = StoreType.of(int.class).settingNullToValue(0);
+		{
+			Store<Integer> s = type.atomicStorage().newStore(10);
+			assertEquals(10, s.count());
+			assertEquals(0, s.get(3).intValue());
+			StoreAccessors.AtomicStoreInts ints = (StoreAccessors.AtomicStoreInts) s;
+			assertEquals(0, ints.getAndAddInt(3, 5));
+			assertEquals(7, ints.addAndGetInt(3, 2));
+			assertFalse(ints.compareAndSetInt(3, 5, 1));
+			assertTrue(ints.compareAndSetInt(3, 7, 1));
+			assertEquals(1, ints.getAndUpdateInt(3, i -> i * 10));
+			assertEquals(10, s.get(3).intValue());
+			assertEquals(10, s.set(3, null).intValue());
+			assertEquals(0, s.get(3).intValue());
+			assertEquals(0, s.resizedCopy(12).get(11).intValue());
+			Store<Integer> c = s.immutableCopy();
+			assertFalse(c.isMutable());
+			checkISE(() -> ((StoreAccessors.AtomicStoreInts) c).getAndAddInt(0, 1));
+		}
+		{
+			Store<Long> s = StoreType.of(long.class).settingNullToValue(0L).atomicStorage().newStore(4);
+			StoreAccessors.AtomicStoreLongs longs = (StoreAccessors.AtomicStoreLongs) s;
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				threads[t] = new Thread(() -> {
+					for (int i = 0; i < 10000; i++) {
+						longs.getAndAddLong(i & 3, 1L);
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(Collections.nCopies(4, 10000L), s.asList());
+		}
+		StorageTestUtil.forAllTypes(t -> {
+			if (t.valueType() != int.class && t.valueType() != long.class || t.nullGettable()) return;
+			assertEquals(t, t.atomicStorage().newStore(0).type());
+		});
+		checkISE(() -> StoreType.of(int.class).atomicStorage());
+		checkISE(() -> StoreType.of(double.class).settingNullToValue(0.0).atomicStorage());
+	}
+
+	@Test
+	public void testConcurrentRefStorage() throws InterruptedException {
+		{
+			// values are held strongly so that none are reclaimed
+			String[] values = new String[1000];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = "value" + i;
+			}
+			Store<String> s = Storage.<String>concurrentSoft().newStore(values.length);
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				int offset = t;
+				threads[t] = new Thread(() -> {
+					for (int i = offset; i < values.length; i += threads.length) {
+						s.set(i, values[i]);
+						// every thread also churns a shared index
+						s.set(0, values[i]);
+						s.set(0, null);
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertNull(s.get(0));
+			assertEquals(values.length - 1, s.count());
+			assertEquals(Arrays.asList(values).subList(1, values.length), s.asList().subList(1, values.length));
+			assertEquals(s, s.immutableCopy());
+			assertEquals(s, s.resizedCopy(1200).range(0, 1000));
+			s.clear();
+			assertEquals(0, s.count());
+		}
+		{
+			Object value = new Object();
+			ConcurrentRefStore<Object> s = (ConcurrentRefStore<Object>) Storage.concurrentWeak().newStore(100, value);
+			assertEquals(100, s.count());
+			// references are cleared and enqueued as if by the collector, and are then reclaimed in the background
+			for (int i = 0; i < 100; i += 2) {
+				Reference<Object> ref = s.reference(i);
+				ref.clear();
+				ref.enqueue();
+			}
+			assertTrue(s.isNull(50));
+			assertSame(value, s.get(51));
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (s.count() > 50 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(1L);
+			}
+			assertEquals(50, s.count());
+			assertNull(s.reference(50));
+		}
+	}
+
+	@Test
+	public void testCacheStorage() {
+		{
+			CacheStore<String> s = (CacheStore<String>) Storage.<String>cache(3).newStore(10);
+			for (int i = 0; i < 3; i++) {
+				s.set(i, "value" + i);
+			}
+			assertEquals(3, s.count());
+			assertEquals(0L, s.evictionCount());
+			// index 1 is accessed, so survives the next eviction
+			assertEquals("value1", s.get(1));
+			s.set(3, "value3");
+			s.set(4, "value4");
+			assertEquals(3, s.count());
+			assertEquals(2L, s.evictionCount());
+			assertEquals("value1", s.get(1));
+			assertNull(s.get(5));
+			assertEquals(2L, s.hitCount());
+			assertEquals(1L, s.missCount());
+			assertEquals(s.count(), s.population().ones().count());
+			Store<String> copy = s.resizedCopy(4);
+			assertTrue(copy instanceof CacheStore);
+			assertEquals(s.range(0, 4), copy);
+			s.clear();
+			assertEquals(0, s.count());
+			assertEquals(0L, s.weight());
+		}
+		{
+			CacheStore<Integer> s = (CacheStore<Integer>) Storage.<Integer>cache(5, i -> i * i).newStore(100);
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i * i, s.get(i).intValue());
+			}
+			assertEquals(5, s.count());
+			assertEquals(100L, s.missCount());
+			assertEquals(95L, s.evictionCount());
+			assertEquals(99 * 99, s.get(99).intValue());
+			assertEquals(1L, s.hitCount());
+		}
+		{
+			// reading the resident values is not an access
+			CacheStore<Integer> s = (CacheStore<Integer>) Storage.<Integer>cache(3, i -> i).newStore(10);
+			s.get(0);
+			s.get(1);
+			s.get(2);
+			s.get(1);
+			String str = s.toString();
+			int hash = s.hashCode();
+			s.forEach(v -> {});
+			s.iterator().forEachRemaining(v -> {});
+			StreamSupport.stream(s.spliterator(), false).count();
+			assertFalse(s.asList().contains(5));
+			assertEquals(s, s.immutableCopy());
+			assertEquals(3, s.count());
+			assertEquals(1L, s.hitCount());
+			assertEquals(3L, s.missCount());
+			assertEquals(0L, s.evictionCount());
+			assertEquals("[0, 1, 2, null, null, null, null, null, null, null]", str);
+			assertEquals(hash, s.hashCode());
+			// the list view modifies the cache
+			Iterator<Integer> it = s.iterator();
+			it.next();
+			it.remove();
+			assertEquals(2, s.count());
+			s.asList().set(0, 7);
+			assertEquals(3, s.count());
+		}
+		{
+			CacheStore<String> s = (CacheStore<String>) Storage.<String>weighedCache(10L, String::length, null).newStore(10);
+			s.set(0, "aaaa");
+			s.set(1, "bbbb");
+			assertEquals(8L, s.weight());
+			s.set(2, "cccc");
+			assertEquals(2, s.count());
+			assertTrue(s.weight() <= 10L);
+			assertEquals("cccc", s.get(2));
+			// an overweight value is retained alone
+			s.set(3, "dddddddddddd");
+			assertEquals(1, s.count());
+			assertEquals(12L, s.weight());
+		}
+		checkIAE(() -> Storage.cache(0));
+		checkIAE(() -> Storage.weighedCache(10L, null, null));
+	}
+
+	@Test
+	public void testMappedStorage() throws IOException {
+		Path file = Files.createTempFile("storage", ".store");
+		try {
+			{
+				StoreType<Long> type = StoreType.of(long.class);
+				Storage<Long> storage = type.mappedStorage(file);
+				Store<Long> s = storage.newStore(20);
+				// a second store would truncate the file beneath the first
+				checkISE(() -> storage.newStore(20));
+				assertEquals(0, s.count());
+				s.set(2, 5L);
+				s.set(19, -1L);
+				Store<Long> t = type.openMappedStore(file);
+				assertEquals(s, t);
+				assertEquals(2, t.count());
+				t.set(3, 7L);
+				assertEquals(7L, s.get(3).longValue());
+				checkIAE(() -> type.settingNullDisallowed().openMappedStore(file));
+				checkIAE(() -> StoreType.of(int.class).openMappedStore(file));
+			}
+			{
+				StoreType<Double> type = StoreType.of(double.class).settingNullToValue(1.5);
+				Store<Double> s = type.mappedStorage(file).newStore(10);
+				assertEquals(Collections.nCopies(10, 1.5), s.asList());
+				s.set(0, 2.0);
+				assertEquals(s, type.openMappedStore(file));
+				checkIAE(() -> StoreType.of(double.class).settingNullToValue(1.0).openMappedStore(file));
+			}
+			for (int range = 1; range < 10; range++) {
+				for (StoreType<Integer> type : Arrays.asList(StoreType.of(int.class), StoreType.of(int.class).settingNullToValue(0))) {
+					Store<Integer> s = type.mappedSmallValueStorage(range, file).newStore(37);
+					for (int i = 0; i < s.size(); i++) {
+						if (i % 3 != 0) s.set(i, i % range);
+					}
+					Store<Integer> expected = type.smallValueStorage(range).newCopyOf(s);
+					assertEquals(expected, s);
+					assertEquals(expected, type.openMappedStore(file));
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testForeignByteOrder() {
+		// mapped stores are little endian, so on some platforms their byte order differs from that of their copies
+		ByteOrder foreign = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+		StoreType<Long> longs = StoreType.of(long.class).settingNullToDefault();
+		Store<Long> s = BufferStore.newStore(longs, ByteBuffer.allocateDirect(80).order(foreign), null, 10, true);
+		for (int i = 0; i < s.size(); i++) {
+			s.set(i, i * 0x0102030405L);
+		}
+		Store<Long> expected = longs.storage().newCopyOf(s);
+		assertEquals(expected, s.mutableCopy());
+		assertEquals(expected, s.immutableCopy());
+		assertEquals(expected.resizedCopy(5), s.resizedCopy(5));
+		assertEquals(expected.resizedCopy(15), s.resizedCopy(15));
+		Store<Long> offHeap = longs.offHeapStorage().newStore(10);
+		offHeap.setStore(0, s);
+		assertEquals(expected, offHeap);
+		s.fill(0L);
+		s.setStore(0, offHeap);
+		assertEquals(expected, s);
+	}
+
+	@Test
+	public void testBuilder() {
+		{
+			Storage<Integer> storage = StoreType.of(int.class).settingNullToValue(0).storage();
+			StoreBuilder<Integer> b = storage.newBuilder(4);
+			for (int i = 0; i < 1000; i++) {
+				if ((i & 1) == 0) b.appendInt(i); else b.append(i);
+			}
+			assertEquals(1000, b.size());
+			Store<Integer> s = b.seal();
+			assertEquals(1000, s.size());
+			assertTrue(s.isMutable());
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(i, s.get(i).intValue());
+			}
+			checkISE(() -> b.appendInt(0));
+			checkISE(() -> b.seal());
+		}
+		{
+			// exactly filling the initial capacity returns the chunk
+			Storage<Long> storage = StoreType.of(long.class).settingNullDisallowed().storage();
+			StoreBuilder<Long> b = storage.newBuilder(3);
+			b.appendLong(1L).appendInt(2).append(3L);
+			Store<Long> s = b.seal();
+			assertEquals(Arrays.asList(1L, 2L, 3L), s.asList());
+			checkIAE(() -> storage.newBuilder().append(null));
+		}
+		{
+			Storage<String> storage = StoreType.of(String.class).storage().immutable();
+			StoreBuilder<String> b = storage.newBuilder();
+			b.append("a").append(null).append("c");
+			Store<String> s = b.seal();
+			assertEquals(Arrays.asList("a", null, "c"), s.asList());
+			assertFalse(s.isMutable());
+		}
+		assertEquals(0, StoreType.of(double.class).storage().newBuilder().seal().size());
+		checkIAE(() -> StoreType.of(int.class).storage().newBuilder(0));
+	}
+
+	@Test
+	public void testCopyOnWriteStorage() {
+		Storage<Integer> storage = StoreType.of(int.class).settingNullToValue(0).storage().copyOnWrite(16);
+		Store<Integer> s = storage.newStore(100);
+		for (int i = 0; i < s.size(); i++) {
+			s.set(i, i);
+		}
+		Store<Integer> snapshot = s.immutableCopy();
+		assertFalse(snapshot.isMutable());
+		Store<Integer> copy = s.mutableCopy();
+		s.set(0, -1);
+		s.set(99, -1);
+		copy.set(50, -2);
+		assertEquals(0, snapshot.get(0).intValue());
+		assertEquals(99, snapshot.get(99).intValue());
+		assertEquals(50, snapshot.get(50).intValue());
+		assertEquals(0, copy.get(0).intValue());
+		assertEquals(50, s.get(50).intValue());
+		assertEquals(-2, copy.get(50).intValue());
+		checkISE(() -> snapshot.set(0, 1));
+
+		Store<Integer> resized = s.resizedCopy(120);
+		assertEquals(120, resized.size());
+		assertEquals(0, resized.get(119).intValue());
+		resized.set(1, -3);
+		assertEquals(1, s.get(1).intValue());
+		assertEquals(s.range(2, 100), resized.range(2, 100));
+
+		Store<Integer> filled = s.mutableCopy();
+		filled.fill(7);
+		assertEquals(Collections.nCopies(100, 7), filled.asList());
+		assertEquals(-1, s.get(0).intValue());
+		filled.setStore(10, snapshot.range(0, 40));
+		assertEquals(snapshot.range(0, 40), filled.range(10, 50));
+		assertEquals(-1, s.get(0).intValue());
+
+		Store<String> strings = StoreType.of(String.class).storage().copyOnWrite().newStore(5);
+		strings.set(2, "x");
+		Store<String> stringCopy = strings.immutableCopy();
+		strings.clear();
+		assertEquals(0, strings.count());
+		assertEquals(1, stringCopy.count());
+		checkIAE(() -> storage.copyOnWrite(10));
+	}
+
+	@Test
+	public void testSparseStorage() {
+		Random r = new Random(0L);
+		for (StoreType<Integer> type : Arrays.asList(StoreType.of(int.class), StoreType.of(int.class).settingNullToValue(0))) {
+			Store<Integer> sparse = type.sparseStorage(0.25).newStore(200);
+			Store<Integer> dense = type.storage().newStore(200);
+			for (int n = 0; n < 2000; n++) {
+				// bias towards removal in the second half, so that stores return to sparse
+				int index = r.nextInt(200);
+				Integer value = r.nextInt(n < 1000 ? 2 : 8) == 0 ? null : r.nextInt(3);
+				assertEquals(dense.set(index, value), sparse.set(index, value));
+				if (n % 100 == 0) {
+					assertEquals(dense, sparse);
+					assertEquals(dense.count(), sparse.count());
+					assertEquals(dense.population(), sparse.population());
+					assertEquals(dense.population().ones().count(), sparse.population().ones().count());
+					int position = r.nextInt(150);
+					assertEquals(dense.population().getBits(position, 50), sparse.population().getBits(position, 50));
+					assertEquals(dense.resizedCopy(150), sparse.resizedCopy(150));
+					assertEquals(dense.resizedCopy(250), sparse.resizedCopy(250));
+					List<Integer> expected = new ArrayList<>();
+					dense.forEach((Integer v) -> expected.add(v));
+					List<Integer> actual = new ArrayList<>();
+					sparse.forEach((Integer v) -> actual.add(v));
+					assertEquals(expected, actual);
+					assertEquals(expected, StreamSupport.stream(sparse.spliterator(), false).collect(Collectors.toList()));
+				}
+			}
+			Store<Integer> copy = sparse.immutableCopy();
+			assertFalse(copy.isMutable());
+			checkISE(() -> copy.set(0, 1));
+			sparse.clear();
+			assertEquals(type.nullGettable() ? 0 : 200, sparse.count());
+			assertEquals(dense, copy);
+		}
+		Store<String> s = StoreType.of(String.class).sparseStorage().newStore(10000000);
+		// the population is a live view that is indexed without probing each bit
+		BitStore population = s.population();
+		s.set(9999999, "z");
+		s.set(5, "a");
+		assertEquals(2, s.count());
+		assertEquals(2, population.ones().count());
+		assertEquals(9999999, population.ones().last());
+		assertEquals(1, s.populationIndex().rank(9999999));
+		assertEquals(9999999, s.populationIndex().select(1));
+		assertTrue(s.compact());
+		assertEquals("a", s.get(0));
+		assertEquals("z", s.get(1));
+		assertNull(s.get(9999999));
+		checkIAE(() -> ((Store) s).set(0, 1));
+		checkISE(() -> StoreType.of(int.class).settingNullDisallowed().sparseStorage());
+		checkIAE(() -> StoreType.of(int.class).sparseStorage(0.0));
+	}
+
+	@Test
+	public void testRunLengthStorage() {
+		Random r = new Random(0L);
+		for (StoreType<Integer> type : Arrays.asList(StoreType.of(int.class), StoreType.of(int.class).settingNullToValue(0))) {
+			Store<Integer> runs = type.runLengthStorage().newStore(100);
+			Store<Integer> plain = type.storage().newStore(100);
+			assertEquals(plain, runs);
+			for (int n = 0; n < 1000; n++) {
+				int index = r.nextInt(100);
+				Integer value = r.nextInt(4) == 0 ? null : r.nextInt(3);
+				switch (r.nextInt(4)) {
+				case 0:
+					int to = index + r.nextInt(100 - index + 1);
+					runs.range(index, to).fill(value);
+					plain.range(index, to).fill(value);
+					break;
+				case 1:
+					int length = r.nextInt(100 - index + 1);
+					int from = r.nextInt(100 - length + 1);
+					Store<Integer> source = r.nextBoolean() ? runs.mutableCopy() : plain.mutableCopy();
+					runs.setStore(index, source.range(from, from + length));
+					plain.setStore(index, source.range(from, from + length));
+					break;
+				default:
+					assertEquals(plain.set(index, value), runs.set(index, value));
+				}
+				assertEquals(plain, runs);
+				assertEquals(plain.count(), runs.count());
+			}
+			List<Integer> expected = new ArrayList<>();
+			plain.forEach((Integer v) -> expected.add(v));
+			List<Integer> actual = new ArrayList<>();
+			runs.forEach((Integer v) -> actual.add(v));
+			assertEquals(expected, actual);
+			assertEquals(expected, StreamSupport.stream(runs.spliterator(), true).collect(Collectors.toList()));
+			assertEquals(plain.resizedCopy(50), runs.resizedCopy(50));
+			assertEquals(plain.resizedCopy(150), runs.resizedCopy(150));
+			Store<Integer> copy = runs.immutableCopy();
+			checkISE(() -> copy.set(0, 1));
+			runs.setStore(10, runs.range(0, 50));
+			plain.setStore(10, plain.range(0, 50).mutableCopy());
+			assertEquals(plain, runs);
+		}
+		Store<String> s = StoreType.of(String.class).runLengthStorage().newStore(1000000, "a");
+		s.range(1000, 2000).fill("b");
+		s.set(1500, "a");
+		s.set(1500, "b");
+		assertEquals(1000000, s.count());
+		assertEquals("b", s.get(1999));
+		assertEquals("a", s.get(2000));
+		checkIAE(() -> StoreType.of(int.class).settingNullDisallowed().runLengthStorage().newStore(1));
+	}
+
+	@Test
+	public void testFrameOfReferenceStorage() {
+		Random r = new Random(0L);
+		for (boolean delta : new boolean[] {false, true}) {
+			StoreType<Long> type = StoreType.of(long.class).settingNullToDefault();
+			Store<Long> packed = type.frameOfReferenceStorage(delta).newStore(1000);
+			Store<Long> plain = type.storage().newStore(1000);
+			// timestamps with small increments
+			long time = 1_500_000_000_000L;
+			for (int i = 0; i < 1000; i++) {
+				time += r.nextInt(100);
+				packed.set(i, time);
+				plain.set(i, time);
+			}
+			assertEquals(plain, packed);
+			// random updates, some of which force blocks to be repacked
+			for (int n = 0; n < 2000; n++) {
+				int index = r.nextInt(1000);
+				long value = r.nextInt(20) == 0 ? r.nextLong() : time + r.nextInt(1000);
+				assertEquals(plain.set(index, value), packed.set(index, value));
+			}
+			assertEquals(plain, packed);
+			StoreAccessors.StoreLongs longs = StoreAccessors.longsFor(packed);
+			long[] values = new long[300];
+			longs.getLongs(100, values, 0, 300);
+			for (int i = 0; i < 300; i++) {
+				assertEquals(plain.get(100 + i).longValue(), values[i]);
+			}
+			longs.setLongs(50, values, 0, 300);
+			plain.setStore(50, plain.range(100, 400).mutableCopy());
+			assertEquals(plain, packed);
+			packed.setStore(10, packed.range(0, 500));
+			plain.setStore(10, plain.range(0, 500).mutableCopy());
+			assertEquals(plain, packed);
+			assertEquals(plain.asList(), new ArrayList<>(packed.asList()));
+			assertEquals(plain.resizedCopy(300), packed.resizedCopy(300));
+			assertEquals(plain.resizedCopy(1100), packed.resizedCopy(1100));
+			Store<Long> copy = packed.immutableCopy();
+			checkISE(() -> copy.set(0, 0L));
+			packed.range(200, 700).fill(Long.MIN_VALUE);
+			plain.range(200, 700).fill(Long.MIN_VALUE);
+			assertEquals(plain, packed);
+			assertFalse(copy.equals(packed));
+
+			Store<Integer> ints = StoreType.of(int.class).settingNullDisallowed().frameOfReferenceStorage(delta).newStore(500, Integer.MAX_VALUE);
+			StoreAccessors.StoreInts accessor = StoreAccessors.intsFor(ints);
+			accessor.setInt(3, Integer.MIN_VALUE);
+			assertEquals(Integer.MIN_VALUE, accessor.getInt(3));
+			assertEquals(Integer.MAX_VALUE, accessor.getInt(4));
+			checkIAE(() -> ints.set(0, null));
+		}
+		checkISE(() -> StoreType.of(long.class).frameOfReferenceStorage());
+		checkISE(() -> StoreType.of(String.class).frameOfReferenceStorage());
+	}
+
+	@Test
+	public void testDictionaryStorage() {
+		Random r = new Random(0L);
+		for (StoreType<String> type : Arrays.asList(StoreType.of(String.class), StoreType.of(String.class).settingNullToValue(""))) {
+			DictionaryStore<String> dict = (DictionaryStore<String>) type.dictionaryStorage().newStore(500);
+			Store<String> plain = type.storage().newStore(500);
+			for (int n = 0; n < 3000; n++) {
+				int index = r.nextInt(500);
+				// the number of distinct values grows over time
+				String value = r.nextInt(10) == 0 ? null : "v" + r.nextInt(1 + n / 20);
+				assertEquals(plain.set(index, value), dict.set(index, value));
+			}
+			assertEquals(plain, dict);
+			assertEquals(plain.count(), dict.count());
+			assertEquals(plain.population(), dict.population());
+			Store<Integer> codes = dict.codes();
+			StoreAccessors.StoreInts ints = StoreAccessors.intsFor(codes);
+			int code = dict.codeOf("v3");
+			assertEquals("v3", dict.dictionary().get(code));
+			for (int i = 0; i < dict.size(); i++) {
+				assertEquals("v3".equals(plain.get(i)), ints.isInt(i) && ints.getInt(i) == code);
+			}
+			assertEquals(-1, dict.codeOf("absent"));
+			assertEquals(plain.resizedCopy(300), dict.resizedCopy(300));
+			assertEquals(plain.resizedCopy(600), dict.resizedCopy(600));
+			Store<String> copy = dict.immutableCopy();
+			checkISE(() -> copy.set(0, "x"));
+			Store<String> other = dict.mutableCopy();
+			other.setStore(0, dict.range(100, 200));
+			plain.setStore(0, plain.range(100, 200).mutableCopy());
+			assertEquals(plain, other);
+			other.fill("w");
+			assertEquals(Collections.nCopies(500, "w"), other.asList());
+		}
+		checkIAE(() -> StoreType.of(String.class).settingNullDisallowed().dictionaryStorage().newStore(1));
+		assertEquals(3, StoreType.of(String.class).settingNullDisallowed().dictionaryStorage().newStore(3, "a").count());
+	}
+
 	private void checkIAE(Runnable r) {
 		try {
 			r.run();
@@ -277,6 +905,15 @@ public class StorageTest {
 		}
 	}
 
+	private void checkISE(Runnable r) {
+		try {
+			r.run();
+			fail("expected ISE");
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+	}
+
 	enum Tri {
 
 		SCALENE,
@@ -60,10 +60,18 @@ public class StorageTestUtil {
 	}
 
 	public static <V> Function<StoreType<V>, Store<V>> randomStores(Random r) {
+		return randomStores(r, StoreType::storage);
+	}
+
+	public static <V> Function<StoreType<V>, Store<V>> randomOffHeapStores(Random r) {
+		return randomStores(r, StoreType::offHeapStorage);
+	}
+
+	private static <V> Function<StoreType<V>, Store<V>> randomStores(Random r, Function<StoreType<V>, Storage<V>> storage) {
 		return t -> {
 			int size = r.nextInt(100);
 			Producer<V> p = produce(t.valueType(), r);
-			Store<V> store= t.storage().newStore(size, defaultValue(t));
+			Store<V> store= storage.apply(t).newStore(size, defaultValue(t));
 			for (int i = 0; i < size; i++) {
 				store.set(i, p.produce());
 			}
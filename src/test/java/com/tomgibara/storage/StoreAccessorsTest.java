@@ -22,9 +22,13 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.tomgibara.bits.Bits;
+import com.tomgibara.storage.StoreAccessors.StoreBooleans;
 import com.tomgibara.storage.StoreAccessors.StoreBytes;
 import com.tomgibara.storage.StoreAccessors.StoreInts;
 import com.tomgibara.storage.StoreAccessors.StoreLongs;
@@ -237,4 +241,176 @@ public class StoreAccessorsTest {
 
 		assertTrue(timeA > timeB);
 	}
+
+	@Test
+	public void testPrimitiveStreams() {
+		Random r = new Random(0L);
+		int size = 1000;
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = r.nextInt(100);
+		}
+		long sum = 0L;
+		for (int v : values) sum += v;
+		Store<Integer> ints = Stores.ints(values);
+		assertEquals(sum, StoreAccessors.intStream(ints).parallel().asLongStream().sum());
+		assertEquals(sum, StoreAccessors.longStream(ints).parallel().sum());
+		assertEquals(sum, StoreAccessors.doubleStream(ints).parallel().sum(), 0.0);
+		Store<Integer> offHeap = StoreType.of(int.class).settingNullToValue(0).offHeapStorage().newStore(size);
+		offHeap.setStore(0, ints);
+		assertEquals(sum, StoreAccessors.intStream(offHeap).parallel().asLongStream().sum());
+		assertEquals(size, StoreAccessors.intStream(offHeap).spliterator().getExactSizeIfKnown());
+
+		// nulls are skipped
+		Store<Long> longs = StoreType.of(long.class).storage().newStore(size);
+		long expected = 0L;
+		for (int i = 0; i < size; i += 3) {
+			longs.set(i, (long) i);
+			expected += i;
+		}
+		assertEquals(expected, StoreAccessors.longStream(longs).parallel().sum());
+		assertEquals(longs.count(), StoreAccessors.longStream(longs).count());
+		assertEquals(3.5, StoreAccessors.doubleStream(Stores.objects(1.0, null, 2.5)).sum(), 0.0);
+	}
+
+	@Test
+	public void testBulkIntAccess() {
+		Random r = new Random(0L);
+		StoreType<Integer> type = StoreType.of(int.class).settingNullToValue(0);
+		for (int range = 1; range < 20; range++) {
+			testBulkIntAccess(r, type.smallValueStorage(range).newStore(200), range);
+		}
+		testBulkIntAccess(r, type.storage().newStore(200), Integer.MAX_VALUE);
+		testBulkIntAccess(r, type.offHeapStorage().newStore(200), Integer.MAX_VALUE);
+		testBulkIntAccess(r, StoreType.of(Integer.class).storage().newStore(200, 0), Integer.MAX_VALUE);
+	}
+
+	private void testBulkIntAccess(Random r, Store<Integer> store, int range) {
+		StoreInts ints = StoreAccessors.intsFor(store);
+		int[] values = new int[store.size() + 10];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = r.nextInt(range);
+		}
+		for (int test = 0; test < 20; test++) {
+			int length = r.nextInt(store.size() + 1);
+			int from = r.nextInt(store.size() - length + 1);
+			int offset = r.nextInt(10);
+			ints.setInts(from, values, offset, length);
+			for (int i = 0; i < length; i++) {
+				assertEquals(values[offset + i], store.get(from + i).intValue());
+			}
+			int[] dest = new int[length + 1];
+			ints.getInts(from, dest, 1, length);
+			for (int i = 0; i < length; i++) {
+				assertEquals(values[offset + i], dest[i + 1]);
+			}
+		}
+		try {
+			ints.getInts(1, new int[store.size()], 0, store.size());
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			ints.getInts(0, new int[1], 0, 2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		// large arguments must not overflow the checks
+		try {
+			ints.getInts(0, new int[1], 1, Integer.MAX_VALUE);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			ints.getInts(Integer.MAX_VALUE, new int[1], 0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testIndexedForEach() {
+		Random r = new Random(0L);
+		StoreType<Integer> type = StoreType.of(int.class);
+		for (int range = 1; range < 20; range++) {
+			testIndexedForEach(r, type.settingNullToValue(0).smallValueStorage(range).newStore(500, 0), range);
+			testIndexedForEach(r, type.smallValueStorage(range).newStore(500), range);
+		}
+		testIndexedForEach(r, type.settingNullToValue(0).storage().newStore(500), 1000);
+		testIndexedForEach(r, type.storage().newStore(500), 1000);
+		testIndexedForEach(r, StoreType.of(Integer.class).storage().newStore(500), 1000);
+
+		Store<Long> longs = StoreType.of(long.class).storage().newStore(5);
+		longs.set(1, 10L);
+		longs.set(3, 30L);
+		long[] sum = {0L};
+		StoreAccessors.longsFor(longs).forEachLong(0, 5, (i, v) -> sum[0] += i * v);
+		assertEquals(100L, sum[0]);
+		Store<Double> doubles = StoreType.of(double.class).settingNullToValue(0.0).storage().newStore(5);
+		doubles.set(4, 0.5);
+		double[] total = {0.0};
+		StoreAccessors.doublesFor(doubles).forEachDouble(2, 5, (i, v) -> total[0] += i * v);
+		assertEquals(2.0, total[0], 0.0);
+	}
+
+	private void testIndexedForEach(Random r, Store<Integer> store, int range) {
+		for (int i = 0; i < store.size(); i++) {
+			if (store.type().nullGettable() && r.nextInt(4) == 0) continue;
+			store.set(i, r.nextInt(range));
+		}
+		StringBuilder expected = new StringBuilder();
+		store.forEach((i, v) -> expected.append(i).append('=').append(v).append(' '));
+		StringBuilder indexed = new StringBuilder();
+		store.forEachIndexed((i, v) -> indexed.append(i).append('=').append(v).append(' '));
+		assertEquals(expected.toString(), indexed.toString());
+		StringBuilder actual = new StringBuilder();
+		StoreInts ints = StoreAccessors.intsFor(store);
+		ints.forEachInt(0, 200, (i, v) -> actual.append(i).append('=').append(v).append(' '));
+		ints.forEachInt(200, 200, (i, v) -> fail());
+		ints.forEachInt(200, store.size(), (i, v) -> actual.append(i).append('=').append(v).append(' '));
+		assertEquals(expected.toString(), actual.toString());
+		// iteration may be nested within the action of another iteration on the same thread
+		StringBuilder outer = new StringBuilder();
+		StringBuilder nested = new StringBuilder();
+		ints.forEachInt(0, store.size(), (i, v) -> {
+			if (nested.length() == 0) ints.forEachInt(0, store.size(), (j, w) -> nested.append(j).append('=').append(w).append(' '));
+			outer.append(i).append('=').append(v).append(' ');
+		});
+		assertEquals(expected.toString(), nested.toString());
+		assertEquals(expected.toString(), outer.toString());
+		try {
+			ints.forEachInt(1, store.size() + 1, (i, v) -> {});
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testBulkBooleanAccess() {
+		Random r = new Random(0L);
+		testBulkBooleanAccess(r, Stores.bits(Bits.store(300)));
+		testBulkBooleanAccess(r, StoreType.of(boolean.class).settingNullToValue(false).storage().newStore(300));
+	}
+
+	private void testBulkBooleanAccess(Random r, Store<Boolean> store) {
+		StoreBooleans booleans = StoreAccessors.booleansFor(store);
+		boolean[] values = new boolean[store.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = r.nextBoolean();
+		}
+		booleans.setBooleans(0, values, 0, values.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], store.get(i));
+		}
+		boolean[] dest = new boolean[values.length - 7];
+		booleans.getBooleans(7, dest, 0, dest.length);
+		for (int i = 0; i < dest.length; i++) {
+			assertEquals(values[i + 7], dest[i]);
+		}
+	}
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.tomgibara.storage.StoreAggregates.DoubleSummary;
+import com.tomgibara.storage.StoreAggregates.LongSummary;
+
+public class StoreAggregatesTest {
+
+	@Test
+	public void testPrimitiveStores() {
+		Store<Integer> ints = Stores.ints(3, -1, 4, 1, -5, 9);
+		LongSummary summary = StoreAggregates.summary(ints);
+		assertEquals(new LongSummary(6, 11, -5, 9), summary);
+		assertEquals(11, StoreAggregates.sum(ints));
+		assertEquals(11.0 / 6, summary.mean(), 0.0);
+		assertEquals(new LongSummary(3, 0, -5, 4), StoreAggregates.summary(ints.range(2, 5)));
+
+		DoubleSummary doubles = StoreAggregates.doubleSummary(Stores.doubles(0.5, -2.0, 1.5));
+		assertEquals(new DoubleSummary(3, 0.0, -2.0, 1.5), doubles);
+		assertEquals(new LongSummary(3, -1, -2, 1), StoreAggregates.summary(Stores.doubles(0.5, -2.0, 1.5)));
+		assertEquals(new LongSummary(0, 0, Long.MAX_VALUE, Long.MIN_VALUE), StoreAggregates.summary(Stores.longs()));
+		assertEquals(new DoubleSummary(0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY), StoreAggregates.doubleSummary(Stores.ints()));
+	}
+
+	@Test
+	public void testNullStores() {
+		Store<Long> longs = StoreType.LONG.storage().newStore(10);
+		longs.set(1, 7L);
+		longs.set(2, -3L);
+		longs.set(3, 2L);
+		longs.set(8, 10L);
+		assertEquals(new LongSummary(4, 16, -3, 10), StoreAggregates.summary(longs));
+		assertEquals(new LongSummary(2, 12, 2, 10), StoreAggregates.summary(longs.range(3, 9)));
+		assertEquals(new LongSummary(4, 16, -3, 10), StoreAggregates.summary(longs.immutableView()));
+
+		Store<Integer> objects = Stores.objects(4, null, 1);
+		assertEquals(new LongSummary(2, 5, 1, 4), StoreAggregates.summary(objects));
+	}
+
+	@Test
+	public void testSmallValueStores() {
+		Random r = new Random(0L);
+		for (int range : new int[] {1, 2, 3, 4, 5, 7, 100}) {
+			checkSmallValues(r, StoreType.INT.settingNullDisallowed().smallValueStorage(range), range, false);
+			checkSmallValues(r, StoreType.INT.smallValueStorage(range), range, true);
+		}
+	}
+
+	@Test
+	public void testHistogram() {
+		Store<Integer> store = Stores.ints(0, 2, 2, 1, 2);
+		assertArrayEquals(new long[] {1, 1, 3, 0}, StoreAggregates.histogram(store, 4));
+		try {
+			StoreAggregates.histogram(store, 2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			StoreAggregates.histogram(Stores.longs(-1L), 2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		Random r = new Random(0L);
+		int size = 1_000_000;
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = r.nextInt(1000) - 200;
+		}
+		Store<Integer> ints = Stores.ints(values);
+		assertEquals(StoreAggregates.summary(ints), StoreAggregates.parallelSummary(ints));
+		assertEquals(StoreAggregates.doubleSummary(ints), StoreAggregates.parallelDoubleSummary(ints));
+
+		Store<Integer> small = StoreType.INT.smallValueStorage(5).newStore(size);
+		for (int i = 0; i < size; i++) {
+			if (r.nextInt(4) != 0) small.set(i, r.nextInt(5));
+		}
+		assertArrayEquals(StoreAggregates.histogram(small, 5), StoreAggregates.parallelHistogram(small, 5));
+		assertEquals(StoreAggregates.summary(small), StoreAggregates.parallelSummary(small));
+
+		// a wide range makes each split's histogram as large as the store
+		for (int i = 0; i < size; i++) {
+			values[i] = r.nextInt(size);
+		}
+		Store<Integer> wide = Stores.ints(values);
+		assertArrayEquals(StoreAggregates.histogram(wide, size), StoreAggregates.parallelHistogram(wide, size));
+	}
+
+	private void checkSmallValues(Random r, Storage<Integer> storage, int range, boolean nulls) {
+		int size = 1000;
+		Store<Integer> store = storage.newStore(size, 0);
+		long[] counts = new long[range];
+		long count = 0;
+		long sum = 0;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			if (nulls && r.nextInt(3) == 0) {
+				store.set(i, null);
+				continue;
+			}
+			int value = r.nextInt(range);
+			store.set(i, value);
+			counts[value]++;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		assertEquals(new LongSummary(count, sum, min, max), StoreAggregates.summary(store));
+		assertArrayEquals(counts, StoreAggregates.histogram(store, range));
+		assertEquals(sum, StoreAggregates.doubleSummary(store).sum(), 0.0);
+	}
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 Tom Gibara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tomgibara.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.tomgibara.storage.StoreTable.Column;
+import com.tomgibara.storage.StoreTable.Schema;
+
+public class StoreTableTest {
+
+	private static final Column<Integer> ID = Column.of("id", StoreType.of(int.class).settingNullToDefault());
+	private static final Column<String> NAME = Column.of("name", StoreType.of(String.class));
+	private static final Column<Boolean> FLAG = Column.of("flag", StoreType.of(boolean.class).settingNullAllowed());
+
+	private static final Schema SCHEMA = Schema.of(ID, NAME, FLAG);
+
+	@Test
+	public void testSchema() {
+		assertEquals(Arrays.asList(ID, NAME, FLAG), SCHEMA.columns());
+		assertEquals(1, SCHEMA.indexOf("name"));
+		assertEquals(-1, SCHEMA.indexOf("missing"));
+		assertEquals(Schema.of(FLAG, ID), SCHEMA.project("flag", "id"));
+		try {
+			Schema.of(ID, Column.of("id", StoreType.of(long.class).settingNullToDefault()));
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			Column.of("id", StoreType.of(int.class).settingNullDisallowed());
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		try {
+			SCHEMA.project("missing");
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testColumns() {
+		StoreTable table = SCHEMA.newTable(5);
+		assertEquals(5, table.rows());
+		assertEquals(5, table.count());
+		assertTrue(table.population().ones().isAll());
+		Store<Integer> ids = table.column(ID);
+		assertEquals(5, ids.size());
+		assertEquals(0, ids.get(0).intValue());
+		assertTrue(ids instanceof StoreAccessors.StoreInts);
+		assertSame(ids, table.column("id"));
+		assertNull(table.column(NAME).get(0));
+		assertNull(table.column(FLAG).get(0));
+		try {
+			table.column(Column.of("id", StoreType.of(int.class).settingNullToDefault()));
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testRowOperations() {
+		StoreTable table = populate(SCHEMA.newTable(6));
+		table.transpose(0, 5);
+		assertEquals(5, table.column(ID).get(0).intValue());
+		assertEquals("r5", table.column(NAME).get(0));
+		assertEquals("r0", table.column(NAME).get(5));
+
+		table.clearRow(2);
+		assertEquals(5, table.count());
+		assertFalse(table.population().getBit(2));
+		assertEquals(0, table.column(ID).get(2).intValue());
+		assertNull(table.column(NAME).get(2));
+		assertNull(table.column(FLAG).get(2));
+
+		table.population().setBit(2, true);
+		table.transpose(2, 3);
+		assertTrue(table.population().getBit(2));
+		assertTrue(table.population().getBit(3));
+	}
+
+	@Test
+	public void testCompact() {
+		StoreTable table = populate(SCHEMA.newTable(8));
+		assertFalse(table.compact());
+		table.clearRow(0);
+		table.clearRow(3);
+		table.clearRow(4);
+		table.clearRow(7);
+		table.population().setBit(5, false);
+		assertTrue(table.compact());
+		assertEquals(3, table.count());
+		assertEquals(Arrays.asList(1, 2, 6, 0, 0, 0, 0, 0), table.column(ID).asList());
+		assertEquals(Arrays.asList("r1", "r2", "r6", null, null, null, null, null), table.column(NAME).asList());
+		assertEquals(Arrays.asList(true, true, false, null, null, null, null, null), table.column(FLAG).asList());
+		assertEquals(3, table.population().zeros().next(0));
+		assertFalse(table.compact());
+	}
+
+	@Test
+	public void testCompactPackedColumns() {
+		Column<Integer> level = Column.of("level", StoreType.of(int.class).settingNullToDefault().smallValueStorage(16));
+		Column<String> tag = Column.of("tag", StoreType.of(String.class).dictionaryStorage());
+		StoreTable table = Schema.of(ID, level, tag).newTable(6);
+		for (int i = 0; i < 6; i++) {
+			table.column(ID).set(i, i);
+			table.column(level).set(i, i + 10);
+			table.column(tag).set(i, "t" + (i % 2));
+		}
+		table.clearRow(1);
+		table.population().setBit(3, false);
+		assertTrue(table.compact());
+		assertEquals(Arrays.asList(0, 2, 4, 5, 0, 0), table.column(ID).asList());
+		assertEquals(Arrays.asList(10, 12, 14, 15, 0, 0), table.column(level).asList());
+		assertEquals(Arrays.asList("t0", "t0", "t0", "t1", null, null), table.column(tag).asList());
+	}
+
+	@Test
+	public void testCompactInPlace() {
+		// runs are copied down each column without a snapshot, so every kind of store must support the overlap
+		StoreType<Integer> nullable = StoreType.of(int.class);
+		StoreType<Integer> nonNull = nullable.settingNullToDefault();
+		Schema schema = Schema.of(
+				Column.of("primitive", nonNull),
+				Column.of("nullable", nullable),
+				Column.of("object", StoreType.of(Integer.class)),
+				Column.of("small", nonNull.smallValueStorage(5)),
+				Column.of("smallNullable", nullable.smallValueStorage(100)),
+				Column.of("dictionary", nullable.dictionaryStorage()),
+				Column.of("sparse", nullable.sparseStorage()),
+				Column.of("offHeap", nullable.offHeapStorage()),
+				Column.of("frame", nonNull.frameOfReferenceStorage()),
+				Column.of("delta", nonNull.frameOfReferenceStorage(true)),
+				Column.of("runLength", nullable.runLengthStorage()),
+				Column.of("atomic", nonNull.atomicStorage())
+				);
+		int rows = 2000;
+		StoreTable table = schema.newTable(rows);
+		List<Store<Integer>> columns = new ArrayList<>();
+		for (Column<?> column : schema.columns()) {
+			@SuppressWarnings("unchecked")
+			Store<Integer> store = (Store<Integer>) table.column(column);
+			columns.add(store);
+		}
+		Random r = new Random(0L);
+		for (int i = 0; i < rows; i++) {
+			int value = r.nextInt(5);
+			for (Store<Integer> column : columns) {
+				column.set(i, value);
+			}
+		}
+		// alternating runs of varying length, so that runs straddle word boundaries
+		boolean populated = true;
+		for (int from = 0; from < rows; populated = !populated) {
+			int to = Math.min(rows, from + 1 + r.nextInt(150));
+			if (!populated) table.population().range(from, to).clear();
+			from = to;
+		}
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			if (table.population().getBit(i)) expected.add(columns.get(0).get(i));
+		}
+		assertTrue(table.compact());
+		for (int c = 0; c < columns.size(); c++) {
+			assertEquals(schema.columns().get(c).toString(), expected, columns.get(c).range(0, expected.size()).asList());
+		}
+	}
+
+	@Test
+	public void testResizedCopy() {
+		StoreTable table = populate(SCHEMA.newTable(4));
+		table.clearRow(1);
+		StoreTable larger = table.resizedCopy(6);
+		assertEquals(6, larger.rows());
+		assertEquals(5, larger.count());
+		assertFalse(larger.population().getBit(1));
+		assertEquals("r3", larger.column(NAME).get(3));
+		assertNull(larger.column(NAME).get(5));
+		larger.column(NAME).set(0, "changed");
+		assertEquals("r0", table.column(NAME).get(0));
+
+		StoreTable smaller = table.resizedCopy(2);
+		assertEquals(2, smaller.rows());
+		assertEquals(1, smaller.count());
+		assertEquals(Arrays.asList(0, 0), smaller.column(ID).asList());
+	}
+
+	@Test
+	public void testProject() {
+		StoreTable table = populate(SCHEMA.newTable(3));
+		StoreTable projected = table.project("flag", "id");
+		assertEquals(Schema.of(FLAG, ID), projected.schema());
+		assertSame(table.column(ID), projected.column(ID));
+		projected.population().setBit(1, false);
+		assertFalse(table.population().getBit(1));
+		// rows of a projection cannot be moved or cleared
+		try {
+			projected.compact();
+			fail();
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		try {
+			projected.transpose(0, 2);
+			fail();
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		try {
+			projected.clearRow(0);
+			fail();
+		} catch (IllegalStateException e) {
+			/* expected */
+		}
+		assertEquals(Arrays.asList(0, 1, 2), table.column(ID).asList());
+		assertEquals(Arrays.asList("r0", "r1", "r2"), table.column(NAME).asList());
+		StoreTable copy = projected.resizedCopy(3);
+		assertTrue(copy.compact());
+		assertEquals(Arrays.asList(0, 2, 0), copy.column(ID).asList());
+		assertEquals(Arrays.asList(0, 1, 2), table.column(ID).asList());
+		try {
+			projected.column("name");
+			fail();
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	private static StoreTable populate(StoreTable table) {
+		Store<Integer> ids = table.column(ID);
+		Store<String> names = table.column(NAME);
+		Store<Boolean> flags = table.column(FLAG);
+		for (int i = 0; i < table.rows(); i++) {
+			ids.set(i, i);
+			names.set(i, "r" + i);
+			flags.set(i, i % 3 != 0);
+		}
+		return table;
+	}
+
+}
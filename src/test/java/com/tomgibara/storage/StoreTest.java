@@ -25,10 +25,19 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
@@ -314,6 +323,45 @@ public class StoreTest {
 			assertFalse(s.tryAdvance(v -> fail()));
 			testSpliterator(none);
 		}
+		{
+			Random r = new Random(0L);
+			Store<Integer> sparse = StoreType.of(int.class).storage().newStore(1000);
+			for (int i = 0; i < 20; i++) {
+				sparse.set(r.nextInt(1000), i);
+			}
+			Spliterator<Integer> s = sparse.spliterator();
+			assertEquals(sparse.count(), s.getExactSizeIfKnown());
+			Spliterator<Integer> t = s.trySplit();
+			assertEquals(sparse.count() / 2, t.getExactSizeIfKnown());
+			assertEquals(sparse.count() - sparse.count() / 2, s.getExactSizeIfKnown());
+			testSpliterator(sparse);
+			testSpliterator(sparse.immutableView());
+			List<Integer> expected = new ArrayList<>(sparse.asList());
+			expected.removeIf(v -> v == null);
+			assertEquals(expected, StreamSupport.stream(sparse.spliterator(), true).collect(Collectors.toList()));
+			Store<Integer> offHeap = StoreType.of(int.class).offHeapStorage().newStore(1000);
+			offHeap.setStore(0, sparse);
+			assertEquals(expected, StreamSupport.stream(offHeap.spliterator(), true).collect(Collectors.toList()));
+		}
+		{
+			// spliterators must size themselves from the population, not a possibly stale count
+			Store<Integer> ints = StoreType.of(int.class).storage().newStore(100);
+			for (int i = 0; i < 100; i += 3) {
+				ints.set(i, i);
+			}
+			Store<Integer> view = ints.immutableView();
+			ints.set(1, 1);
+			ints.set(2, 2);
+			testSpliterator(view);
+			testSpliterator(ints.resizedCopy(10));
+			Store<Integer> sparse = StoreType.of(int.class).sparseStorage().newStore(100);
+			sparse.setStore(0, ints);
+			testSpliterator(sparse.resizedCopy(10));
+			Store<Integer> offHeap = StoreType.of(int.class).offHeapStorage().newStore(100);
+			offHeap.setStore(0, ints);
+			testSpliterator(offHeap.resizedCopy(10));
+			testSpliterator(offHeap.immutableView());
+		}
 	}
 
 	private <V> void testSpliterator(Store<V> s) {
@@ -372,6 +420,50 @@ public class StoreTest {
 		}
 	}
 
+	@Test
+	public void testSmallStoreBulkDecode() {
+		Random r = new Random(0L);
+		for (int range = 1; range < 7; range++) {
+			for (int test = 0; test < 50; test++) {
+				int size = r.nextInt(1000);
+				Store<Integer> store = StoreType.of(int.class).settingNullToValue(0).smallValueStorage(range).newStore(size);
+				for (int i = 0; i < size; i++) {
+					store.set(i, r.nextInt(range));
+				}
+				List<Integer> expected = new ArrayList<>(store.asList());
+
+				List<Integer> forEach = new ArrayList<>();
+				store.forEach((Integer v) -> forEach.add(v));
+				assertEquals(expected, forEach);
+
+				List<Integer> biForEach = new ArrayList<>();
+				store.forEach((i, v) -> biForEach.add(v));
+				assertEquals(expected, biForEach);
+
+				List<Integer> iterated = new ArrayList<>();
+				store.iterator().forEachRemaining(iterated::add);
+				assertEquals(expected, iterated);
+
+				assertEquals(expected, StreamSupport.stream(store.spliterator(), true).collect(Collectors.toList()));
+
+				int[] array = (int[]) Stores.toPrimitiveArray(store);
+				for (int i = 0; i < size; i++) {
+					assertEquals(expected.get(i).intValue(), array[i]);
+				}
+
+				int from = size == 0 ? 0 : r.nextInt(size);
+				int length = r.nextInt(size - from + 1);
+				int[] ints = new int[length + 1];
+				((StoreAccessors.StoreInts) store).getInts(from, ints, 1, length);
+				for (int i = 0; i < length; i++) {
+					assertEquals(expected.get(from + i).intValue(), ints[i + 1]);
+				}
+				((StoreAccessors.StoreInts) store).setInts(from, ints, 1, length);
+				assertEquals(expected, store.asList());
+			}
+		}
+	}
+
 	@Test
 	public void testIsSettable() {
 		{
@@ -500,6 +592,28 @@ public class StoreTest {
 		testSetStore(intsA, 5, intsB);
 	}
 
+	@Test
+	public void testSetStoreAtPosition() {
+		StoreType<Integer> type = StoreType.of(Integer.class);
+		Store<Integer> coded = type.dictionaryStorage().newStore(3);
+		coded.set(0, 5);
+		coded.set(2, 6);
+		List<Storage<Integer>> storages = Arrays.asList(
+				type.dictionaryStorage(),
+				type.sparseStorage(),
+				StoreType.of(int.class).settingNullToDefault().atomicStorage(),
+				Storage.concurrentWeak(),
+				Storage.cache(10)
+				);
+		for (Storage<Integer> storage : storages) {
+			Store<Integer> dst = storage.newStore(10);
+			dst.set(0, 1);
+			dst.set(5, 2);
+			testSetStore(dst, 4, Stores.ints(7, 8, 9));
+			testSetStore(dst, 7, coded);
+		}
+	}
+
 	private <V> void testSetStore(Store<V> dst, int position, Store<V> src) {
 		Store<V> t0 = dst.mutableCopy();
 		for (int i = 0; i < src.size(); i++) {
@@ -511,6 +625,8 @@ public class StoreTest {
 		t2.setStore(position, new DefaultStore<>(src));
 		assertEquals(t0, t1);
 		assertEquals(t0, t2);
+		assertEquals(t0.count(), t1.count());
+		assertEquals(t0.count(), t2.count());
 		assertEquals(new DefaultStore<>(t0).size(), t0.size());
 		assertEquals(new DefaultStore<>(t1).size(), t1.size());
 		assertEquals(new DefaultStore<>(t2).size(), t2.size());
@@ -542,7 +658,9 @@ public class StoreTest {
 			bg = a;
 		}
 		bg.setStore(pos, sm);
+		assertEquals(bg.population().ones().count(), bg.count());
 		bg.setStore(pos, new DefaultStore<>(sm));
+		assertEquals(bg.population().ones().count(), bg.count());
 	}
 
 	@Test
@@ -572,6 +690,51 @@ public class StoreTest {
 		}
 	}
 
+	@Test
+	public void testSpecializedObjectMethods() {
+		// primitive arrays of the same class
+		Store<Double> d1 = StoreType.of(double.class).settingNullToValue(0.0).storage().newStoreOf(1.0, Double.NaN, -0.0);
+		Store<Double> d2 = StoreType.of(double.class).settingNullToValue(0.0).storage().newStoreOf(1.0, Double.NaN, 0.0);
+		checkObjectMethods(d1, d1.mutableCopy());
+		checkObjectMethods(d1, d2);
+		// populated values only
+		Store<Integer> n1 = StoreType.of(int.class).storage().newStoreOf(1, 2, 3, null);
+		Store<Integer> n2 = StoreType.of(int.class).storage().newStoreOf(1, 5, 3, null);
+		n2.set(1, null);
+		n1.set(1, null);
+		checkObjectMethods(n1, n2);
+		n2.set(3, 0);
+		checkObjectMethods(n1, n2);
+		// bits and packed values
+		Random r = new Random(0L);
+		for (int range : new int[] {1, 2, 3, 5, 7}) {
+			Store<Integer> s1 = StoreType.of(int.class).settingNullToValue(0).smallValueStorage(range).newStore(300);
+			for (int i = 0; i < s1.size(); i++) s1.set(i, r.nextInt(range));
+			checkObjectMethods(s1, s1.mutableCopy());
+			checkObjectMethods(s1, s1.resizedCopy(299));
+			checkObjectMethods(s1, StoreType.of(int.class).settingNullToValue(0).smallValueStorage(range + 1).newCopyOf(s1));
+			Store<Integer> s2 = s1.mutableCopy();
+			s2.set(150, (s2.get(150) + 1) % range);
+			checkObjectMethods(s1, s2);
+		}
+		BitStore bits = Bits.store(130);
+		bits.range(5, 70).fill();
+		checkObjectMethods(Stores.bits(bits), Stores.bits(bits.mutableCopy()));
+		BitStore flipped = bits.mutableCopy();
+		flipped.flipBit(129);
+		checkObjectMethods(Stores.bits(bits), Stores.bits(flipped));
+	}
+
+	// checks consistency with list semantics
+	private <V> void checkObjectMethods(Store<V> s, Store<V> t) {
+		List<V> sl = new ArrayList<>(s.asList());
+		List<V> tl = new ArrayList<>(t.asList());
+		assertEquals(sl.equals(tl), s.equals(t));
+		assertEquals(sl.equals(tl), t.equals(s));
+		assertEquals(sl.hashCode(), s.hashCode());
+		assertEquals(tl.hashCode(), t.hashCode());
+	}
+
 	@Test
 	public void testObjectMethodsRandom() {
 		testRandom(this::testObjectMethods);
@@ -602,6 +765,293 @@ public class StoreTest {
 		}
 	}
 
+	@Test
+	public void testPopulationIndex() {
+		testRandom(this::testPopulationIndex);
+	}
+
+	private <V> void testPopulationIndex(Random r, Store<V> store) {
+		PopulationIndex index = store.populationIndex();
+		checkPopulationIndex(index, store);
+		V value = store.type().settingNullToDefault().nullValue;
+		if (!store.isMutable() || !store.type().nullSettable() || value == null) return;
+		int size = store.size();
+		for (int i = 0; i < 20 && size > 0; i++) {
+			switch (r.nextInt(4)) {
+			case 0: store.set(r.nextInt(size), null); break;
+			case 1: store.set(r.nextInt(size), value); break;
+			case 2:
+				int from = r.nextInt(size);
+				store.range(from, from + r.nextInt(size - from + 1)).fill(r.nextBoolean() ? value : null);
+				break;
+			case 3: store.compact(); break;
+			}
+			// stores that maintain their index return the same, updated, instance
+			index = store.populationIndex();
+			checkPopulationIndex(index, store);
+		}
+	}
+
+	private void checkPopulationIndex(PopulationIndex index, Store<?> store) {
+		BitStore population = store.population();
+		int size = store.size();
+		assertEquals(size, index.size());
+		assertEquals(store.count(), index.count());
+		int rank = 0;
+		for (int i = 0; i < size; i++) {
+			assertEquals(rank, index.rank(i));
+			if (population.getBit(i)) {
+				assertEquals(i, index.select(rank));
+				rank++;
+			}
+		}
+		assertEquals(rank, index.rank(size));
+		checkIAE(() -> index.rank(-1));
+		checkIAE(() -> index.rank(size + 1));
+		checkIAE(() -> index.select(index.count()));
+	}
+
+	@Test
+	public void testParallelFillAndSetStore() {
+		Random r = new Random(0L);
+		testParallel(r, StoreType.of(String.class).storage(), "x", i -> "v" + (i % 7));
+		testParallel(r, StoreType.of(String.class).settingNullToValue("").storage(), "x", i -> "v" + (i % 7));
+		testParallel(r, StoreType.of(int.class).storage(), 3, i -> i % 11 == 0 ? null : i);
+		testParallel(r, StoreType.of(long.class).settingNullToDefault().storage(), 3L, i -> (long) i);
+		testParallel(r, StoreType.of(boolean.class).storage(), true, i -> i % 3 == 0);
+		for (int range : new int[] {2, 3, 5, 7, 100}) {
+			testParallel(r, StoreType.of(int.class).settingNullDisallowed().smallValueStorage(range), 1, i -> i % range);
+		}
+		// nullable small value stores must be populated with the initial value
+		Store<Integer> store = StoreType.of(int.class).smallValueStorage(3).newStore(1000, 2);
+		assertEquals(1000, store.count());
+		store.parallelFill(null);
+		assertEquals(0, store.count());
+	}
+
+	@Test
+	public void testParallelSetStorePartitionsPackedStores() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int range : new int[] {2, 3, 5, 7}) {
+				Storage<Integer> storage = StoreType.of(int.class).settingNullDisallowed().smallValueStorage(range);
+				Store<Integer> source = storage.newStore(300000, 0);
+				for (int i = 0; i < source.size(); i++) {
+					source.set(i, i % range);
+				}
+				ReaderStore<Integer> reader = new ReaderStore<>(source);
+				Store<Integer> store = storage.newStore(source.size(), 0);
+				pool.submit(() -> store.parallelSetStore(0, reader)).get();
+				assertEquals(source, store);
+				assertTrue(reader.readers.size() > 1);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private <V> void testParallel(Random r, Storage<V> storage, V value, IntFunction<V> values) {
+		int size = 300000;
+		Store<V> source = storage.newStore(size, value);
+		for (int i = 0; i < size; i++) {
+			source.set(i, values.apply(i));
+		}
+		Store<V> store = storage.newStore(size, values.apply(1));
+		store.parallelFill(value);
+		assertEquals(storage.type().constantStore(value, size), store);
+		int position = r.nextInt(1000);
+		int from = r.nextInt(1000);
+		int to = size - r.nextInt(1000) - position;
+		Store<V> expected = store.mutableCopy();
+		expected.setStore(position, source.range(from, to));
+		store.parallelSetStore(position, source.range(from, to));
+		assertEquals(expected, store);
+		assertEquals(expected.count(), store.count());
+		// from an overlapping range of the same store, in both directions
+		for (int shift : new int[] {1000, -1000}) {
+			int start = Math.max(shift, 0);
+			Store<V> self = source.mutableCopy();
+			expected = source.mutableCopy();
+			expected.setStore(start, source.range(start - shift, size - Math.abs(shift) + start - shift));
+			self.parallelSetStore(start, self.range(start - shift, size - Math.abs(shift) + start - shift));
+			assertEquals(expected, self);
+			assertEquals(expected.count(), self.count());
+			self = source.mutableCopy();
+			self.parallelSetStore(start, self.immutableView().range(start - shift, size - Math.abs(shift) + start - shift));
+			assertEquals(expected, self);
+		}
+		// from a store of a different class
+		Store<V> copy = storage.type().settingNullAllowed().storage().newStore(size);
+		copy.setStore(0, source);
+		store.parallelFill(value);
+		store.parallelSetStore(0, copy.immutableView());
+		assertEquals(source, store);
+		assertEquals(source.count(), store.count());
+	}
+
+	@Test
+	public void testSort() {
+		testRandom(this::testSort);
+		Store<Tri> tris = StoreType.of(Tri.class).settingNullToValue(Tri.SCALENE).storage().newStore(50);
+		Random r = new Random(0L);
+		for (int i = 0; i < tris.size(); i++) {
+			tris.set(i, Tri.values()[r.nextInt(3)]);
+		}
+		testSort(r, tris);
+		// nullable enum stores sort their packed values with nulls last
+		Store<Tri> nullTris = StoreType.of(Tri.class).storage().newStore(50);
+		for (int i = 0; i < nullTris.size(); i++) {
+			nullTris.set(i, r.nextInt(4) == 0 ? null : Tri.values()[r.nextInt(3)]);
+		}
+		testSort(r, nullTris);
+		int count = nullTris.count();
+		nullTris.sort();
+		for (int i = 0; i < nullTris.size(); i++) {
+			assertEquals(i >= count, nullTris.isNull(i));
+			if (i > 0 && i < count) assertTrue(nullTris.get(i - 1).compareTo(nullTris.get(i)) <= 0);
+		}
+	}
+
+	@Test
+	public void testSortIndices() {
+		Random r = new Random(0L);
+		Object[] longs = { Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE };
+		Object[] doubles = { Double.NEGATIVE_INFINITY, -1.0, -0.0, 0.0, 1.0, Double.MAX_VALUE, Double.NaN };
+		Object[] floats = { Float.NEGATIVE_INFINITY, -1.0f, -0.0f, 0.0f, Float.MIN_VALUE, Float.NaN };
+		Object[] ints = { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE };
+		Object[] chars = { (char) 0, 'a', Character.MAX_VALUE };
+		Object[] bytes = { Byte.MIN_VALUE, (byte) 0, Byte.MAX_VALUE };
+		Object[] booleans = { false, true };
+		Object[] tris = Tri.values();
+		Object[][] valuess = { longs, doubles, floats, ints, chars, bytes, booleans, tris };
+		Class<?>[] classes = { long.class, double.class, float.class, int.class, char.class, byte.class, boolean.class, Tri.class };
+		for (int t = 0; t < classes.length; t++) {
+			Object[] values = valuess[t];
+			@SuppressWarnings("unchecked")
+			StoreType<Object> type = (StoreType<Object>) StoreType.of(classes[t]);
+			for (Storage<Object> storage : Arrays.asList(type.storage(), type.settingNullToValue(values[0]).storage())) {
+				Store<Object> store = storage.newStore(500);
+				for (int i = 0; i < store.size(); i++) {
+					// nulls are only retained by the nullable storage
+					store.set(i, r.nextInt(4) == 0 ? null : values[r.nextInt(values.length)]);
+				}
+				// the comparator is only applied by the unspecialized implementation
+				@SuppressWarnings({ "unchecked", "rawtypes" })
+				Comparator<Object> natural = (Comparator) Comparator.naturalOrder();
+				assertEquals(store.sortIndices(natural), store.sortIndices());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V> void testSort(Random r, Store<V> store) {
+		if (!Comparable.class.isAssignableFrom(store.type().valueType()) && !store.type().valueType().isPrimitive()) return;
+		List<V> expected = new ArrayList<>();
+		store.forEach(v -> expected.add(v));
+		expected.sort(null);
+		while (expected.size() < store.size()) expected.add(null);
+
+		Store<Integer> indices = store.sortIndices();
+		assertEquals(store.size(), indices.size());
+		for (int i = 0; i < indices.size(); i++) {
+			assertEquals(expected.get(i), store.get(indices.get(i)));
+			// equal values retain their order
+			if (i > 0 && Objects.equals(expected.get(i - 1), expected.get(i))) assertTrue(indices.get(i - 1) < indices.get(i));
+		}
+
+		Store<V> sorted = store.mutableCopy();
+		sorted.sort();
+		assertEquals(expected, sorted.asList());
+		assertEquals(store.count(), sorted.count());
+		checkPopulationIndex(sorted.populationIndex(), sorted);
+		sorted = store.mutableCopy();
+		sorted.parallelSort();
+		assertEquals(expected, sorted.asList());
+
+		// sorting with a comparator still places nulls last
+		sorted = store.mutableCopy();
+		sorted.sort((Comparator<V>) Comparator.reverseOrder());
+		List<V> reversed = new ArrayList<>(expected.subList(0, store.count()));
+		Collections.reverse(reversed);
+		assertEquals(reversed, sorted.asList().subList(0, store.count()));
+		assertEquals(store.count(), sorted.count());
+
+		if (store.isMutable() && store.size() > 0) {
+			Store<V> immutable = store.immutableCopy();
+			try {
+				immutable.sort();
+				fail("expected ISE");
+			} catch (IllegalStateException e) {
+				/* expected */
+			}
+		}
+	}
+
+	@Test
+	public void testSearch() {
+		testRandom(this::testSearch);
+		Store<Long> longs = Stores.longs(5L, 1L, 9L, 3L, 3L, 7L);
+		longs.sort();
+		assertEquals(1, longs.binarySearch(3L));
+		assertEquals(-4, longs.binarySearch(4L));
+		assertEquals(-7, longs.binarySearch(10L));
+		assertEquals(3, longs.upperBound(3L));
+		assertEquals(4, longs.countInRange(3L, 8L));
+		assertEquals(0, longs.countInRange(8L, 3L));
+		assertEquals(0, longs.range(1, 4).binarySearch(3L));
+		assertEquals(-4, longs.range(1, 4).binarySearch(9L));
+		checkIAE(() -> longs.binarySearch(null));
+		// nullable enum stores search their packed values, which sort nulls last
+		Random r = new Random(0L);
+		Store<Tri> tris = StoreType.of(Tri.class).storage().newStore(50);
+		for (int i = 0; i < tris.size(); i++) {
+			tris.set(i, r.nextInt(4) == 0 ? null : Tri.values()[r.nextInt(2)]);
+		}
+		tris.sort();
+		checkSearch(r, tris, null);
+		int count = tris.count();
+		assertEquals(count, tris.lowerBound(Tri.EQUILATERAL));
+		assertEquals(-1 - count, tris.binarySearch(Tri.EQUILATERAL));
+		assertEquals(count, tris.countInRange(Tri.SCALENE, Tri.EQUILATERAL));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V> void testSearch(Random r, Store<V> store) {
+		if (!Comparable.class.isAssignableFrom(store.type().valueType()) && !store.type().valueType().isPrimitive()) return;
+		if (store.count() == 0) return;
+		Store<V> sorted = store.mutableCopy();
+		sorted.sort();
+		checkSearch(r, sorted, null);
+		int from = r.nextInt(sorted.size());
+		int to = from + r.nextInt(sorted.size() - from + 1);
+		checkSearch(r, sorted.range(from, to), null);
+		Comparator<V> reverse = (Comparator<V>) Comparator.reverseOrder();
+		sorted.sort(reverse);
+		checkSearch(r, sorted, reverse);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V> void checkSearch(Random r, Store<V> store, Comparator<? super V> comparator) {
+		Comparator<? super V> c = comparator == null ? (Comparator<V>) Comparator.naturalOrder() : comparator;
+		for (int i = 0; i < 10 && store.size() > 0; i++) {
+			V key = store.get(r.nextInt(store.size()));
+			if (key == null) continue;
+			int lower = 0;
+			int upper = 0;
+			for (int j = 0; j < store.size(); j++) {
+				V value = store.get(j);
+				if (value == null) continue;
+				int cmp = c.compare(value, key);
+				if (cmp < 0) lower++;
+				if (cmp <= 0) upper++;
+			}
+			assertEquals(lower, store.lowerBound(key, comparator));
+			assertEquals(upper, store.upperBound(key, comparator));
+			assertEquals(lower, store.binarySearch(key, comparator));
+			if (comparator == null) assertEquals(0, store.countInRange(key, key));
+		}
+	}
+
 	@Test
 	public void testBadSetStore() {
 		testRandom(this::testBadSetStore);
@@ -652,6 +1102,28 @@ public class StoreTest {
 		@Override public V get(int index) { return store.get(index); }
 	}
 
+	// records the threads that read the store, the first read by each waits for a second reader
+	private static final class ReaderStore<V> extends AbstractStore<V> {
+		private final Store<V> store;
+		private final Set<Thread> readers = ConcurrentHashMap.newKeySet();
+		private final CountDownLatch latch = new CountDownLatch(2);
+		ReaderStore(Store<V> store) { this.store = store; }
+		@Override public StoreType<V> type() { return store.type(); }
+		@Override public int size() { return store.size(); }
+		@Override public int count() { return store.count(); }
+		@Override public V get(int index) {
+			if (readers.add(Thread.currentThread())) {
+				latch.countDown();
+				try {
+					latch.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return store.get(index);
+		}
+	}
+
 	private void testRandom(RandomTest rt) {
 		Random r = new Random(0L);
 		int tests = 100;
@@ -662,6 +1134,14 @@ public class StoreTest {
 				rt.perform(r, store);
 			}
 		});
+		Function<StoreType<Object>, Store<Object>> q = StorageTestUtil.randomOffHeapStores(r);
+		StorageTestUtil.forAllTypes(t -> {
+			if (!t.valueType().isPrimitive()) return;
+			for (int test = 0; test < tests; test++) {
+				Store<Object> store = q.apply((StoreType<Object>) t);
+				rt.perform(r, store);
+			}
+		});
 		for (int range = 1; range < 16; range++) {
 			Producer<Store<Integer>> p1 = StorageTestUtil.randomSmallValueStores(r, range, true);
 			Producer<Store<Integer>> p2 = StorageTestUtil.randomSmallValueStores(r, range, false);